@@ -0,0 +1,59 @@
+import bench.Workload;
+
+/**
+ * Solves a fixed set of equations with the batch kernel, starting every equation in a given precision tier. The
+ * equations are those of {@link GetRootsWorkload}. The fast tier is solved by the scalar loop or by the vector kernel
+ * of a given width. Closing the workload prints how many equations each tier solved.
+ */
+public class BatchKernelWorkload implements Workload {
+    private final double[] a;
+    private final double[] b;
+    private final double[] c;
+    private final double[] real1;
+    private final double[] imag1;
+    private final double[] real2;
+    private final double[] imag2;
+    private final QuadraticEquation.Tier floor;
+
+    /**
+     * Constructs the workload.
+     * @param args The kind of discriminant, the name of the tier to start in, the number of equations, and optionally
+     *             the kernel of the fast tier: scalar, or vector-BITS, which needs the incubator module.
+     * @throws IllegalStateException If the vector kernel was asked for but this JVM cannot run it.
+     */
+    public BatchKernelWorkload(String[] args) {
+        int count = Integer.parseInt(args[2]);
+        a = new double[count];
+        b = new double[count];
+        c = new double[count];
+        GetRootsWorkload.fill(args[0], a, b, c);
+        real1 = new double[count];
+        imag1 = new double[count];
+        real2 = new double[count];
+        imag2 = new double[count];
+        floor = QuadraticEquation.Tier.valueOf(args[1]);
+        String kernel = args.length > 3 ? args[3] : "scalar";
+        if (kernel.equals("scalar")) {
+            QuadraticEquation.useKernel(null);
+        } else {
+            QuadraticEquation.BatchKernel vector =
+                    QuadraticEquation.loadVectorKernel(Integer.parseInt(kernel.substring("vector-".length())));
+            if (vector == null) {
+                throw new IllegalStateException("No vector kernel: run with --add-modules=jdk.incubator.vector");
+            }
+            QuadraticEquation.useKernel(vector);
+        }
+    }
+
+    @Override
+    public double run() {
+        QuadraticEquation.solve(a, b, c, 0, a.length, real1, imag1, real2, imag2, floor);
+        return real1[a.length - 1];
+    }
+
+    @Override
+    public void close() {
+        System.out.println(QuadraticEquation.getKernelName() + ": " + QuadraticEquation.getTierSummary());
+        QuadraticEquation.useKernel(null);
+    }
+}
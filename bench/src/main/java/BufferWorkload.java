@@ -0,0 +1,69 @@
+import bench.Workload;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves equations through the equation ring of a SolverBuffer from a number of producer threads to a number of
+ * consumer threads. The threads are kept for the whole trial.
+ */
+public class BufferWorkload implements Workload {
+    private static final QuadraticEquation EQUATION = new QuadraticEquation(1, -3, 2);
+
+    private final SolverBuffer buffer;
+    private final int producers;
+    private final int consumers;
+    private final int transfers;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs the workload.
+     * @param args The kind of buffer, monitor or lock-free, its capacity, the threads as producers x consumers, and
+     *             the number of equations moved per invocation, which both thread counts must divide.
+     */
+    public BufferWorkload(String[] args) {
+        int capacity = Integer.parseInt(args[1]);
+        buffer = args[0].equals("monitor") ? new Buffer(capacity) : new LockFreeBuffer(capacity, WaitStrategy.PARK);
+        String[] threads = args[2].split("x");
+        producers = Integer.parseInt(threads[0]);
+        consumers = Integer.parseInt(threads[1]);
+        transfers = Integer.parseInt(args[3]);
+        executor = Executors.newFixedThreadPool(producers + consumers);
+    }
+
+    @Override
+    public double run() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        for (int p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < transfers / producers; i++) {
+                        buffer.blockingPutEquation(EQUATION);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        for (int q = 0; q < consumers; q++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < transfers / consumers; i++) {
+                        buffer.blockingGetEquation();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        return transfers;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
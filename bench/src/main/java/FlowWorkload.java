@@ -0,0 +1,146 @@
+import bench.Workload;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams equations through a SolverProcessor: one thread publishes them into the processor, which solves them on the
+ * slave threads of one SolverService that lives as long as the workload, and a subscriber takes the results in chunks
+ * of 1024.
+ */
+public class FlowWorkload implements Workload {
+    private static final int REQUEST = 1024;    // Results the subscriber requests at a time
+
+    private final QuadraticEquation[] equations;
+    private final SolverService service;
+    private final int batchSize;
+    private final int batches;
+    private final boolean ordered;
+
+    /**
+     * Constructs the workload and starts its SolverService.
+     * @param args Whether results are delivered in input order, the number of equations per stream, followed by
+     *             solver options such as --threads=4 or --batch-size=256 for the SolverService.
+     */
+    public FlowWorkload(String[] args) {
+        ordered = Boolean.parseBoolean(args[0]);
+        equations = new QuadraticEquation[Integer.parseInt(args[1])];
+        SolverOptions options = SolverOptions.parse(Arrays.copyOfRange(args, 2, args.length));
+        Random random = new Random(42);
+        for (int i = 0; i < equations.length; i++) {
+            equations[i] = new QuadraticEquation(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5,
+                    random.nextDouble() * 10 - 5);
+        }
+        batchSize = options.getBatchSize() > 0 ? options.getBatchSize() : SolverService.DEFAULT_BATCH_SIZE;
+        batches = options.getWindow() > 0 ? options.getWindow() : 2 * options.getThreads();
+        service = new SolverService(options.createLocalBuffer(), options.getThreads(), options);
+    }
+
+    @Override
+    public double run() throws Exception {
+        SolverProcessor processor = new SolverProcessor(service, batchSize, batches, ordered);
+        CountingSubscriber subscriber = new CountingSubscriber();
+        processor.subscribe(subscriber);
+        new ArrayPublisher(equations).subscribe(processor);
+        return subscriber.await();
+    }
+
+    @Override
+    public void close() {
+        service.close();
+    }
+
+    /**
+     * ArrayPublisher publishes the equations of an array on the thread that requests them. Requests made while it is
+     * already publishing only add to the demand, so a subscriber that requests from onNext does not recurse.
+     */
+    private static class ArrayPublisher implements Flow.Publisher<QuadraticEquation> {
+        private final QuadraticEquation[] equations;
+
+        ArrayPublisher(QuadraticEquation[] equations) {
+            this.equations = equations;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super QuadraticEquation> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicLong requested = new AtomicLong();
+                private int index;
+                private volatile boolean cancelled;
+
+                @Override
+                public void request(long n) {
+                    if (requested.getAndAdd(n) > 0) {
+                        return;
+                    }
+                    long emitted = 0;
+                    while (true) {
+                        long available = requested.get();
+                        while (emitted < available && index < equations.length && !cancelled) {
+                            subscriber.onNext(equations[index++]);
+                            emitted++;
+                        }
+                        if (index == equations.length && !cancelled) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        if (cancelled || requested.addAndGet(-emitted) == 0) {
+                            return;
+                        }
+                        emitted = 0;
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * CountingSubscriber requests results in chunks and counts them until the stream completes.
+     */
+    private static class CountingSubscriber implements Flow.Subscriber<SolvedEquation> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private long received;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(REQUEST);
+        }
+
+        @Override
+        public void onNext(SolvedEquation item) {
+            if (++received % REQUEST == 0) {
+                subscription.request(REQUEST);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        long await() throws Exception {
+            done.await();
+            if (error != null) {
+                throw new IllegalStateException("Stream failed", error);
+            }
+            return received;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import bench.Workload;
+import java.util.Random;
+
+/**
+ * Calls QuadraticEquation.getRoots on a fixed set of equations that all have one kind of discriminant: two real
+ * roots, a repeated root, two complex roots, or two real roots so close together that plain double arithmetic is not
+ * accurate enough.
+ */
+public class GetRootsWorkload implements Workload {
+    private final QuadraticEquation[] equations;
+
+    /**
+     * Constructs the workload.
+     * @param args The kind of discriminant, see {@link #fill}, and the number of equations.
+     */
+    public GetRootsWorkload(String[] args) {
+        int count = Integer.parseInt(args[1]);
+        double[] a = new double[count];
+        double[] b = new double[count];
+        double[] c = new double[count];
+        fill(args[0], a, b, c);
+        equations = new QuadraticEquation[count];
+        for (int i = 0; i < count; i++) {
+            equations[i] = new QuadraticEquation(a[i], b[i], c[i]);
+        }
+    }
+
+    @Override
+    public double run() {
+        double sum = 0;
+        for (QuadraticEquation equation : equations) {
+            sum += equation.getRoots().getReal();
+        }
+        return sum;
+    }
+
+    /**
+     * Fills the coefficient arrays with random equations that all have the given kind of discriminant.
+     * @param discriminant "real" for b^2 > 4ac, "repeated" for b^2 = 4ac, "complex" for b^2 < 4ac, or "close" for
+     *                     b^2 a few roundings above 4ac.
+     */
+    static void fill(String discriminant, double[] a, double[] b, double[] c) {
+        Random random = new Random(42);
+        for (int i = 0; i < a.length; i++) {
+            // Pick a and the root r, then derive b and c so the discriminant has the right sign
+            a[i] = random.nextDouble() * 4 + 1;
+            double r = random.nextDouble() * 10 - 5;
+            b[i] = -2 * a[i] * r;
+            double shift = random.nextDouble() * 4 + 1;
+            switch (discriminant) {
+                case "real":
+                    c[i] = a[i] * (r * r - shift);
+                    break;
+                case "repeated":
+                    // Integer coefficients keep b^2 - 4ac exactly zero
+                    a[i] = Math.rint(a[i]);
+                    b[i] = -2 * a[i] * Math.rint(r);
+                    c[i] = a[i] * Math.rint(r) * Math.rint(r);
+                    break;
+                case "close":
+                    // Roots about 1e-7 apart, so the discriminant cancels down to about 1e-14 of b^2
+                    c[i] = a[i] * (r * r - 1e-14 * shift);
+                    break;
+                case "complex":
+                    c[i] = a[i] * (r * r + shift);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown discriminant: " + discriminant);
+            }
+        }
+    }
+}
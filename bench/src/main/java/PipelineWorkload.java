@@ -0,0 +1,39 @@
+import bench.Workload;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Runs a whole MasterThread job: generating, solving and collecting every equation. The MasterThread's console output
+ * is discarded while it runs.
+ */
+public class PipelineWorkload implements Workload {
+    private final SolverOptions options;
+    private final int count;
+
+    /**
+     * Constructs the workload.
+     * @param args The number of equations per job, followed by solver options such as --batch-size=256.
+     */
+    public PipelineWorkload(String[] args) {
+        long count = Long.parseLong(args[0]);
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many equations for one MasterThread job: " + count);
+        }
+        this.count = (int) count;
+        this.options = SolverOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    @Override
+    public double run() throws InterruptedException {
+        MasterThread master = new MasterThread(options.createBuffer(), options.getThreads(), count, false, options);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            master.start();
+        } finally {
+            System.setOut(console);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,42 @@
+import bench.Workload;
+import java.util.Random;
+
+/**
+ * Solves a fixed set of polynomials of one degree, with coefficients drawn uniformly between -5 and 5, either with the
+ * solver PolynomialSolver picks for the degree or with Aberth at every degree.
+ */
+public class PolynomialWorkload implements Workload {
+    private final int degree;
+    private final boolean aberth;
+    private final int polynomials;
+    private final double[] coefficients;
+    private final double[] real;
+    private final double[] imag;
+
+    /**
+     * Constructs the workload.
+     * @param args The degree, the solver, default or aberth, and the number of polynomials.
+     */
+    public PolynomialWorkload(String[] args) {
+        degree = Integer.parseInt(args[0]);
+        aberth = args[1].equals("aberth");
+        polynomials = Integer.parseInt(args[2]);
+        coefficients = new double[(degree + 1) * polynomials];
+        Random random = new Random(42);
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = random.nextDouble() * 10 - 5;
+        }
+        real = new double[degree * polynomials];
+        imag = new double[degree * polynomials];
+    }
+
+    @Override
+    public double run() {
+        if (aberth) {
+            PolynomialSolver.solveAberth(degree, coefficients, 0, polynomials, real, imag);
+        } else {
+            PolynomialSolver.solve(degree, coefficients, 0, polynomials, real, imag);
+        }
+        return real[real.length - 1];
+    }
+}
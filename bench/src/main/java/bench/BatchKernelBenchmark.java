@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the batch kernel QuadraticEquation.solve with the same discriminant cases as {@link GetRootsBenchmark}.
+ * The floor is the precision tier every equation starts in: FAST is the normal kernel, and FMA and DOUBLE_DOUBLE show
+ * what always using the higher precision would cost. One operation is one equation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchKernelBenchmark {
+    static final int EQUATIONS = 1024;
+
+    @Param({"real", "repeated", "complex", "close"})
+    public String discriminant;
+
+    @Param({"FAST", "FMA", "DOUBLE_DOUBLE"})
+    public String floor;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = Workload.load("BatchKernelWorkload", discriminant, floor, String.valueOf(EQUATIONS));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EQUATIONS)
+    public double solve() throws Exception {
+        return workload.run();
+    }
+}
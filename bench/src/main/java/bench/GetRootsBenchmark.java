@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures QuadraticEquation.getRoots on equations that all have one kind of discriminant: two real roots, a repeated
+ * root, two complex roots, or two real roots so close together that plain double arithmetic is not accurate enough.
+ * One operation is one equation. Run with -prof gc to see that getRoots does not allocate once it is inlined.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetRootsBenchmark {
+    static final int EQUATIONS = 1024;
+
+    @Param({"real", "repeated", "complex", "close"})
+    public String discriminant;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = Workload.load("GetRootsWorkload", discriminant, String.valueOf(EQUATIONS));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EQUATIONS)
+    public double getRoots() throws Exception {
+        return workload.run();
+    }
+}
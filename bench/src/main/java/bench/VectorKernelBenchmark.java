@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the fast tier of the batch kernel in the scalar loop with the vector kernel at each vector width, for the
+ * discriminant cases of {@link GetRootsBenchmark}. Close roots fail the error bound of the fast tier, so they show the
+ * cost of the vector kernel handing a block back to the scalar loop. Widths the CPU lacks fail in setup. One operation
+ * is one equation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorKernelBenchmark {
+
+    @Param({"real", "repeated", "complex", "close"})
+    public String discriminant;
+
+    @Param({"scalar", "vector-128", "vector-256", "vector-512"})
+    public String kernel;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = Workload.load("BatchKernelWorkload", discriminant, "FAST",
+                String.valueOf(BatchKernelBenchmark.EQUATIONS), kernel);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BatchKernelBenchmark.EQUATIONS)
+    public double solve() throws Exception {
+        return workload.run();
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+/**
+ * Workload is the part of a benchmark that calls the solver. The solver's classes are in the default package, which
+ * JMH benchmarks cannot be in, and which no named package can import. So every benchmark in this package loads a
+ * workload of the default package by name and only calls it through this interface. Each benchmark runs in its own
+ * fork, where the call to {@link #run} only ever sees one implementation and is inlined like a direct call.
+ */
+public interface Workload extends AutoCloseable {
+
+    /**
+     * Performs one invocation of the benchmark.
+     * @return A result that depends on the work, to be consumed by JMH so the JIT cannot remove the work.
+     * @throws Exception If the work fails.
+     */
+    double run() throws Exception;
+
+    /**
+     * Releases the threads and buffers of the workload.
+     * @throws Exception If they cannot be released.
+     */
+    @Override
+    default void close() throws Exception {
+    }
+
+    /**
+     * Creates a workload of the default package.
+     * @param name The name of the class, which has a public constructor taking the arguments as a String array.
+     * @param args The arguments, such as the parameters of the benchmark.
+     * @return The workload.
+     * @throws ReflectiveOperationException If the class cannot be created.
+     */
+    static Workload load(String name, String... args) throws ReflectiveOperationException {
+        return (Workload) Class.forName(name).getConstructor(String[].class).newInstance((Object) args);
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * BatchBuffer is the side of a buffer that a job submits batches to and collects them from once they are solved. It is
+ * all the MasterThread, the EquationSolver and the monitors need, so it is implemented both by the buffers that local
+ * SlaveThreads take their work from, which are {@link SolverBuffer}s, and by {@link DistributedBuffer}, which sends
+ * the batches to remote workers. Every method blocks until it can complete.
+ */
+public interface BatchBuffer {
+
+    /**
+     * Adds a batch of unsolved equations to the buffer, waiting while the buffer is full.
+     * @param batch The batch of equations to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void blockingPutBatch(SolverBatch batch) throws InterruptedException;
+
+    /**
+     * Retrieves a solved batch from the buffer, waiting while the buffer is empty.
+     * @return The retrieved solved batch.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    SolverBatch blockingGetSolvedBatch() throws InterruptedException;
+
+    /**
+     * Gets how many equations and batches are waiting to be solved. The value may be stale while threads are active,
+     * so it is only meant for monitoring.
+     * @return The number of occupied cells in the equation and batch rings.
+     */
+    int getPendingEquations();
+
+    /**
+     * Gets how many roots and solved batches are waiting to be collected. The value may be stale while threads are
+     * active, so it is only meant for monitoring.
+     * @return The number of occupied cells in the roots and solved batch rings.
+     */
+    int getPendingResults();
+
+    /**
+     * Gets a snapshot of the traffic of each ring: its depth, its put and get counts and the time threads waited on
+     * it. Meant for monitoring, through {@link SolverMonitor}.
+     * @return One snapshot per ring, or an empty array if the buffer does not count its traffic.
+     */
+    default RingStatistics[] getRingStatistics() {
+        return new RingStatistics[0];
+    }
+
+    /**
+     * Gets the number of cells in each ring of the buffer.
+     * @return The capacity of the buffer.
+     */
+    int getCapacity();
+}
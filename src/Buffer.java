@@ -1,8 +1,18 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
 /**
  * Buffer represents a class that holds quadratic equations and their corresponding roots. This class provides methods
  * for adding equations and roots to the buffer, as well as retrieving them in a synchronized manner.
+ * Each ring has its own ReentrantLock with separate notFull and notEmpty conditions, so producers and consumers of
+ * different rings never block each other and only threads waiting on the changed side of a ring are woken up.
+ * Waiting on a Condition instead of an object monitor also keeps the buffer free of pinning on virtual threads.
+ * Every ring counts its puts and gets and the time threads spent waiting on its conditions, under the ring's own lock,
+ * so the counts cost no extra atomics and can be read through {@link #getRingStatistics()}.
  */
-public class Buffer {
+public class Buffer implements SolverBuffer {
     private final QuadraticEquation[] equationBuffer;
     private final Complex[] rootsBuffer;
     private int writeEquationIndex;
@@ -11,9 +21,44 @@ public class Buffer {
     private int readRootsIndex;
     private int occupiedEquationCells;
     private int occupiedRootsCells;
+    private final SolverBatch[] batchBuffer;
+    private final SolverBatch[] solvedBatchBuffer;
+    private int writeBatchIndex;
+    private int readBatchIndex;
+    private int writeSolvedBatchIndex;
+    private int readSolvedBatchIndex;
+    private int occupiedBatchCells;
+    private int occupiedSolvedBatchCells;
+
+    private final ReentrantLock equationLock = new ReentrantLock();
+    private final Condition equationNotFull = equationLock.newCondition();
+    private final Condition equationNotEmpty = equationLock.newCondition();
+    private final ReentrantLock rootsLock = new ReentrantLock();
+    private final Condition rootsNotFull = rootsLock.newCondition();
+    private final Condition rootsNotEmpty = rootsLock.newCondition();
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private final Condition batchNotFull = batchLock.newCondition();
+    private final Condition batchNotEmpty = batchLock.newCondition();
+    private final ReentrantLock solvedBatchLock = new ReentrantLock();
+    private final Condition solvedBatchNotFull = solvedBatchLock.newCondition();
+    private final Condition solvedBatchNotEmpty = solvedBatchLock.newCondition();
+    private final RingCounters equationCounters = new RingCounters();   // Guarded by equationLock
+    private final RingCounters rootsCounters = new RingCounters();  // Guarded by rootsLock
+    private final RingCounters batchCounters = new RingCounters();  // Guarded by batchLock
+    private final RingCounters solvedBatchCounters = new RingCounters();    // Guarded by solvedBatchLock
 
     public Buffer() {
-        int bufferSize = 10;
+        this(10);
+    }
+
+    /**
+     * Constructs a buffer whose rings each hold the given number of cells.
+     * @param bufferSize The number of cells in each ring.
+     */
+    public Buffer(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
         this.equationBuffer = new QuadraticEquation[bufferSize];
         this.rootsBuffer = new Complex[bufferSize];
         this.writeEquationIndex = 0;
@@ -22,122 +67,321 @@ public class Buffer {
         this.readRootsIndex = 0;
         this.occupiedEquationCells = 0;
         this.occupiedRootsCells = 0;
+        this.batchBuffer = new SolverBatch[bufferSize];
+        this.solvedBatchBuffer = new SolverBatch[bufferSize];
+    }
+
+    @Override
+    public int getCapacity() {
+        return equationBuffer.length;
+    }
+
+    @Override
+    public int getPendingEquations() {
+        return readUnderLock(equationLock, () -> occupiedEquationCells)
+                + readUnderLock(batchLock, () -> occupiedBatchCells);
+    }
+
+    @Override
+    public int getPendingResults() {
+        return readUnderLock(rootsLock, () -> occupiedRootsCells)
+                + readUnderLock(solvedBatchLock, () -> occupiedSolvedBatchCells);
+    }
+
+    @Override
+    public RingStatistics[] getRingStatistics() {
+        return new RingStatistics[] {
+                snapshotUnderLock(equationLock, () -> equationCounters.snapshot("equations", occupiedEquationCells)),
+                snapshotUnderLock(rootsLock, () -> rootsCounters.snapshot("roots", occupiedRootsCells)),
+                snapshotUnderLock(batchLock, () -> batchCounters.snapshot("batches", occupiedBatchCells)),
+                snapshotUnderLock(solvedBatchLock,
+                        () -> solvedBatchCounters.snapshot("solved batches", occupiedSolvedBatchCells))
+        };
+    }
+
+    /**
+     * Takes a snapshot of one ring while holding that ring's lock.
+     * @param lock     The lock of the ring.
+     * @param snapshot Takes the snapshot.
+     * @return The snapshot.
+     */
+    private static RingStatistics snapshotUnderLock(ReentrantLock lock, Supplier<RingStatistics> snapshot) {
+        lock.lock();
+        try {
+            return snapshot.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits on a condition once and measures how long the wait took. The caller holds the condition's lock.
+     * @param condition The condition to wait on.
+     * @return The time waited in nanoseconds.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private static long awaitNanos(Condition condition) throws InterruptedException {
+        long start = System.nanoTime();
+        condition.await();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Reads a count of one ring while holding that ring's lock.
+     * @param lock  The lock of the ring.
+     * @param count Reads the count.
+     * @return The count.
+     */
+    private static int readUnderLock(ReentrantLock lock, IntSupplier count) {
+        lock.lock();
+        try {
+            return count.getAsInt();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Adds a quadratic equation to the buffer. If the buffer is full, the method waits until space becomes available.
-     * It updates the write index and notifies waiting threads.
-     * Uses the 'synchronized' keyword to ensure thread safety.
+     * It updates the write index and signals a thread waiting for an equation.
+     * Uses the equation ring's lock to ensure thread safety.
      * @param equation The quadratic equation to add to the buffer.
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
-    public synchronized void blockingPutEquation(QuadraticEquation equation) throws InterruptedException {
-        // Wait for space in buffer
-        while (occupiedEquationCells == equationBuffer.length) {
-            wait();
-        }
+    public void blockingPutEquation(QuadraticEquation equation) throws InterruptedException {
+        equationLock.lockInterruptibly();
+        try {
+            // Wait for space in buffer
+            while (occupiedEquationCells == equationBuffer.length) {
+                equationCounters.putWaitNanos += awaitNanos(equationNotFull);
+            }
 
-        // Add the equation to the buffer
-        equationBuffer[writeEquationIndex] = equation;
+            // Add the equation to the buffer
+            equationBuffer[writeEquationIndex] = equation;
 
-        // Write index gets incremented and if it exceeds buffer size, it wraps around to the beginning to reuse space in the buffer
-        writeEquationIndex = (writeEquationIndex + 1) % equationBuffer.length;
+            // Write index gets incremented and if it exceeds buffer size, it wraps around to the beginning to reuse space in the buffer
+            writeEquationIndex = (writeEquationIndex + 1) % equationBuffer.length;
 
-        // Increment occupiedCells count that keeps track of how many positions in the buffer are full
-        ++occupiedEquationCells;
+            // Increment occupiedCells count that keeps track of how many positions in the buffer are full
+            ++occupiedEquationCells;
+            equationCounters.puts++;
 
-        // Notify all waiting threads that the buffer has been updated
-        notifyAll();
+            // Wake one thread waiting for an equation
+            equationNotEmpty.signal();
+        } finally {
+            equationLock.unlock();
+        }
     }
 
     /**
      * Retrieves a quadratic equation from the buffer. If the buffer is empty, the method waits until an equation
-     * becomes available. It updates the read index and notifies waiting threads.
-     * Uses the 'synchronized' keyword to ensure thread safety.
+     * becomes available. It updates the read index and signals a thread waiting for space.
+     * Uses the equation ring's lock to ensure thread safety.
      * @return The retrieved quadratic equation.
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
-    public synchronized QuadraticEquation blockingGetEquation() throws InterruptedException {
-        // Wait until there is an equation in the buffer
-        while (occupiedEquationCells == 0) {
-            wait();
-        }
+    public QuadraticEquation blockingGetEquation() throws InterruptedException {
+        equationLock.lockInterruptibly();
+        try {
+            // Wait until there is an equation in the buffer
+            while (occupiedEquationCells == 0) {
+                equationCounters.getWaitNanos += awaitNanos(equationNotEmpty);
+            }
 
-        // Retrieve and remove equation from the buffer
-        QuadraticEquation equation = equationBuffer[readEquationIndex];
+            // Retrieve and remove equation from the buffer
+            QuadraticEquation equation = equationBuffer[readEquationIndex];
 
-        // Mark corresponding position as null to make room for new equation
-        equationBuffer[readEquationIndex] = null;
+            // Mark corresponding position as null to make room for new equation
+            equationBuffer[readEquationIndex] = null;
 
-        // Read index gets incremented and if it exceeds the buffer size, wraps around to beginning to reuse space in the buffer
-        readEquationIndex = (readEquationIndex + 1) % equationBuffer.length;
+            // Read index gets incremented and if it exceeds the buffer size, wraps around to beginning to reuse space in the buffer
+            readEquationIndex = (readEquationIndex + 1) % equationBuffer.length;
 
-        // Decrement occupiedCells count that keeps track of how many positions in the buffer are full
-        --occupiedEquationCells;
+            // Decrement occupiedCells count that keeps track of how many positions in the buffer are full
+            --occupiedEquationCells;
+            equationCounters.gets++;
 
-        // Notify all waiting threads that the buffer has been updated
-        notifyAll();
+            // Wake one thread waiting for space
+            equationNotFull.signal();
 
-        // Return the retrieved equation
-        return equation;
+            // Return the retrieved equation
+            return equation;
+        } finally {
+            equationLock.unlock();
+        }
     }
 
     /**
      * Adds roots to the buffer. If the buffer is full, the method waits until space becomes available.
-     * It updates the write index and notifies waiting threads.
-     * Uses the 'synchronized' keyword to ensure thread safety.
+     * It updates the write index and signals a thread waiting for roots.
+     * Uses the roots ring's lock to ensure thread safety.
      * @param roots The roots to add to the buffer.
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
-    public synchronized void blockingPutRoots(Complex roots) throws InterruptedException {
-        // Wait until there is space in buffer
-        while (occupiedRootsCells == rootsBuffer.length) {
-            wait();
-        }
+    public void blockingPutRoots(Complex roots) throws InterruptedException {
+        rootsLock.lockInterruptibly();
+        try {
+            // Wait until there is space in buffer
+            while (occupiedRootsCells == rootsBuffer.length) {
+                rootsCounters.putWaitNanos += awaitNanos(rootsNotFull);
+            }
 
-        // Add the roots to the buffer
-        rootsBuffer[writeRootsIndex] = roots;
+            // Add the roots to the buffer
+            rootsBuffer[writeRootsIndex] = roots;
 
-        // Update the write index with same logic as other put method
-        writeRootsIndex = (writeRootsIndex + 1) % rootsBuffer.length;
+            // Update the write index with same logic as other put method
+            writeRootsIndex = (writeRootsIndex + 1) % rootsBuffer.length;
 
-        // Increment occupiedCells count that keeps track of how many positions in the buffer are full
-        ++occupiedRootsCells;
+            // Increment occupiedCells count that keeps track of how many positions in the buffer are full
+            ++occupiedRootsCells;
+            rootsCounters.puts++;
 
-        // Notify all waiting threads that the buffer has been updated
-        notifyAll();
+            // Wake one thread waiting for roots
+            rootsNotEmpty.signal();
+        } finally {
+            rootsLock.unlock();
+        }
     }
 
     /**
      * Retrieves roots from the buffer. If the buffer is empty, it waits until roots are available.
-     * It updates the read index and notifies waiting threads.
-     * Uses the 'synchronized' keyword to ensure thread safety.
+     * It updates the read index and signals a thread waiting for space.
+     * Uses the roots ring's lock to ensure thread safety.
      * @return The retrieved roots.
      * @throws InterruptedException If the thread is interrupted while waiting.
      */
-    public synchronized Complex blockingGetRoots() throws InterruptedException {
-        // Wait until there are roots in the buffer
-        while (rootsBuffer[readRootsIndex] == null) {
-            wait();
-        }
+    public Complex blockingGetRoots() throws InterruptedException {
+        rootsLock.lockInterruptibly();
+        try {
+            // Wait until there are roots in the buffer
+            while (occupiedRootsCells == 0) {
+                rootsCounters.getWaitNanos += awaitNanos(rootsNotEmpty);
+            }
 
-        // Retrieve and remove roots from buffer
-        Complex roots = rootsBuffer[readRootsIndex];
+            // Retrieve and remove roots from buffer
+            Complex roots = rootsBuffer[readRootsIndex];
 
-        // Mark corresponding position as null to make room for new roots
-        rootsBuffer[readRootsIndex] = null;
+            // Mark corresponding position as null to make room for new roots
+            rootsBuffer[readRootsIndex] = null;
 
-        // Update the read index with same logic as other get method
-        readRootsIndex = (readRootsIndex + 1) % rootsBuffer.length;
+            // Update the read index with same logic as other get method
+            readRootsIndex = (readRootsIndex + 1) % rootsBuffer.length;
 
-        // Decrement occupiedCells count that keeps track of how many positions in the buffer are full
-        --occupiedRootsCells;
+            // Decrement occupiedCells count that keeps track of how many positions in the buffer are full
+            --occupiedRootsCells;
+            rootsCounters.gets++;
 
-        // Notify waiting threads that the buffer has been updated
-        notifyAll();
+            // Wake one thread waiting for space
+            rootsNotFull.signal();
 
-        // Return retrieved roots
-        return roots;
+            // Return retrieved roots
+            return roots;
+        } finally {
+            rootsLock.unlock();
+        }
     }
 
+    /**
+     * Adds a batch of unsolved equations to the buffer. If the buffer is full, the method waits until space becomes
+     * available. Works like {@link #blockingPutEquation} but moves a whole batch per call.
+     * @param batch The batch of equations to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void blockingPutBatch(SolverBatch batch) throws InterruptedException {
+        batchLock.lockInterruptibly();
+        try {
+            while (occupiedBatchCells == batchBuffer.length) {
+                batchCounters.putWaitNanos += awaitNanos(batchNotFull);
+            }
+            batchBuffer[writeBatchIndex] = batch;
+            writeBatchIndex = (writeBatchIndex + 1) % batchBuffer.length;
+            ++occupiedBatchCells;
+            batchCounters.puts++;
+            batchNotEmpty.signal();
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a batch of unsolved equations from the buffer. If the buffer is empty, the method waits until a batch
+     * becomes available.
+     * @return The retrieved batch.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public SolverBatch blockingGetBatch() throws InterruptedException {
+        batchLock.lockInterruptibly();
+        try {
+            while (occupiedBatchCells == 0) {
+                batchCounters.getWaitNanos += awaitNanos(batchNotEmpty);
+            }
+            SolverBatch batch = batchBuffer[readBatchIndex];
+            batchBuffer[readBatchIndex] = null;
+            readBatchIndex = (readBatchIndex + 1) % batchBuffer.length;
+            --occupiedBatchCells;
+            batchCounters.gets++;
+            batchNotFull.signal();
+            return batch;
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a solved batch to the buffer. If the buffer is full, the method waits until space becomes available.
+     * @param batch The solved batch to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void blockingPutSolvedBatch(SolverBatch batch) throws InterruptedException {
+        solvedBatchLock.lockInterruptibly();
+        try {
+            while (occupiedSolvedBatchCells == solvedBatchBuffer.length) {
+                solvedBatchCounters.putWaitNanos += awaitNanos(solvedBatchNotFull);
+            }
+            solvedBatchBuffer[writeSolvedBatchIndex] = batch;
+            writeSolvedBatchIndex = (writeSolvedBatchIndex + 1) % solvedBatchBuffer.length;
+            ++occupiedSolvedBatchCells;
+            solvedBatchCounters.puts++;
+            solvedBatchNotEmpty.signal();
+        } finally {
+            solvedBatchLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a solved batch from the buffer. If the buffer is empty, it waits until a solved batch is available.
+     * @return The retrieved solved batch.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public SolverBatch blockingGetSolvedBatch() throws InterruptedException {
+        solvedBatchLock.lockInterruptibly();
+        try {
+            while (occupiedSolvedBatchCells == 0) {
+                solvedBatchCounters.getWaitNanos += awaitNanos(solvedBatchNotEmpty);
+            }
+            SolverBatch batch = solvedBatchBuffer[readSolvedBatchIndex];
+            solvedBatchBuffer[readSolvedBatchIndex] = null;
+            readSolvedBatchIndex = (readSolvedBatchIndex + 1) % solvedBatchBuffer.length;
+            --occupiedSolvedBatchCells;
+            solvedBatchCounters.gets++;
+            solvedBatchNotFull.signal();
+            return batch;
+        } finally {
+            solvedBatchLock.unlock();
+        }
+    }
+
+    /**
+     * RingCounters holds the traffic counts of one ring. It is only read and written while holding the ring's lock.
+     */
+    private static final class RingCounters {
+        long puts;
+        long gets;
+        long putWaitNanos;  // Time spent waiting for space
+        long getWaitNanos;  // Time spent waiting for an item
+
+        RingStatistics snapshot(String name, int depth) {
+            return new RingStatistics(name, depth, puts, gets, putWaitNanos, getWaitNanos);
+        }
+    }
 }
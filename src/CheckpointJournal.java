@@ -0,0 +1,428 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * CheckpointJournal records every solved batch of a job in an append-only file, so a job that is stopped can be resumed
+ * and skip the ranges it had already solved. The file starts with a 24-byte header, the magic number, a fingerprint of
+ * the job and the number of root bytes per equation, followed by one record per batch, all little-endian:
+ * <ul>
+ *     <li>the index of the first equation as a long, the number of equations n as an int, and a CRC32C of the rest of
+ *     the record as an int</li>
+ *     <li>if the journal keeps roots, n times real1, imag1, real2 and imag2 as doubles</li>
+ * </ul>
+ * Roots are 32 bytes per equation, which costs far more to write than the 16 bytes of a record header per batch, so a
+ * journal only keeps them when a resumed run needs them, for example to rebuild its output file.
+ * Records are encoded into one of two direct buffers. Once a buffer holds the configured number of equations, a writer
+ * thread appends it and forces it to disk while the other buffer is filled, so a crash loses at most about two buffers
+ * of work. Opening an existing journal reads it through memory-mapped windows, truncates a torn last record, and
+ * remembers the completed ranges; its roots can be replayed with {@link #replay}.
+ */
+public class CheckpointJournal implements ResultSink<SolverBatch> {
+    private static final long MAGIC = 0x314C4E524A4B4843L;     // "CHKJRNL1"
+    private static final int HEADER_BYTES = 3 * Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    private static final int ROOTS_BYTES = 4 * Double.BYTES;    // Per equation
+    private static final long READ_WINDOW = 1L << 30;   // Bytes of the journal mapped at once when it is read
+    private static final ByteBuffer END = ByteBuffer.allocate(0);   // Tells the writer thread to stop
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int flushEquations;   // Equations per buffer before it is written
+    private final int rootBytes;    // Bytes of roots per equation, 0 if the journal only keeps the ranges
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);    // Buffers ready to be filled
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(3);  // Buffers waiting for the writer
+    private final Thread writer;
+    private final CRC32C crc = new CRC32C();    // Guarded by this
+    private final long[] rangeStarts;   // First index of each completed range, sorted, ranges do not touch
+    private final long[] rangeEnds;     // Index after the last equation of each completed range
+    private final long resumedEquations;    // Equations in the completed ranges
+    private ByteBuffer current;     // Buffer being filled, guarded by this
+    private int currentEquations;   // Equations encoded into the current buffer, guarded by this
+    private volatile IOException failure;   // First error of the writer thread
+    private boolean closed;
+
+    /**
+     * Opens a journal, creating it if it does not exist. An existing journal must have been written for the same job.
+     *
+     * @param path           The journal file.
+     * @param fingerprint    Identifies the job, so that a journal is never resumed by a different job.
+     * @param maxBatchSize   The largest number of equations in a batch that will be recorded.
+     * @param flushEquations The number of equations collected before they are written and forced to disk.
+     * @param roots          Whether the roots are kept, or only the ranges that were solved.
+     * @throws IOException If the file cannot be opened, is not a journal, or belongs to another job.
+     */
+    public CheckpointJournal(Path path, long fingerprint, int maxBatchSize, int flushEquations, boolean roots)
+            throws IOException {
+        if (maxBatchSize <= 0 || flushEquations <= 0) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive: " + maxBatchSize
+                    + ", " + flushEquations);
+        }
+        this.path = path;
+        this.flushEquations = flushEquations;
+        this.rootBytes = roots ? ROOTS_BYTES : 0;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Ranges ranges = new Ranges();
+            long validBytes;    // Length of the journal without a torn last record
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(MAGIC).putLong(fingerprint).putLong(rootBytes).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                validBytes = HEADER_BYTES;
+            } else {
+                validBytes = scan(fingerprint, null, ranges);
+                // Drop a record that was cut off by a crash, so new records follow the last complete one
+                channel.truncate(validBytes);
+            }
+            channel.position(validBytes);
+            ranges.merge();
+            this.rangeStarts = Arrays.copyOf(ranges.starts, ranges.count);
+            this.rangeEnds = Arrays.copyOf(ranges.ends, ranges.count);
+            long resumed = 0;
+            for (int i = 0; i < ranges.count; i++) {
+                resumed += rangeEnds[i] - rangeStarts[i];
+            }
+            this.resumedEquations = resumed;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        // Room for a full buffer plus one more batch, with a record header for every equation at worst
+        int bufferBytes = (int) Math.min(Integer.MAX_VALUE,
+                (long) (flushEquations + maxBatchSize) * (rootBytes + RECORD_HEADER_BYTES));
+        for (int i = 0; i < 2; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        this.writer = new Thread(this::write, "checkpoint-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Calculates a fingerprint of a job from a description of everything that decides its equations and batches.
+     *
+     * @param description The description, such as the options of the job.
+     * @return A 64-bit FNV-1a hash of the description.
+     */
+    public static long fingerprint(String description) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < description.length(); i++) {
+            hash = (hash ^ description.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether a range of equations was solved by an earlier run.
+     *
+     * @param first  The index of the first equation.
+     * @param length The number of equations.
+     * @return True if every equation of the range is in the journal.
+     */
+    public boolean isCompleted(long first, int length) {
+        int range = Arrays.binarySearch(rangeStarts, first);
+        if (range < 0) {
+            range = -range - 2;     // The last range that starts before first
+        }
+        return range >= 0 && rangeEnds[range] >= first + length;
+    }
+
+    /**
+     * Gets the number of equations solved by earlier runs, which this run skips.
+     *
+     * @return The number of equations in the journal when it was opened.
+     */
+    public long getResumedEquations() {
+        return resumedEquations;
+    }
+
+    /**
+     * Reads the roots of every batch that was in the journal when it was opened and passes them on, for example to
+     * rebuild an output file. The batches only hold roots; their coefficients are zero.
+     *
+     * @param maxBatchSize The largest number of equations in a recorded batch.
+     * @param results      Receives each batch. The batch is reused for the next one.
+     * @throws IOException           If the journal cannot be read.
+     * @throws IllegalStateException If the journal does not keep roots.
+     */
+    public void replay(int maxBatchSize, Consumer<EquationBatch> results) throws IOException {
+        if (rootBytes == 0) {
+            throw new IllegalStateException(path + " only keeps the solved ranges, not their roots");
+        }
+        EquationBatch batch = new EquationBatch(maxBatchSize);
+        scan(0, record -> {
+            int size = record.getInt(record.position() + Long.BYTES);
+            if (size > maxBatchSize) {
+                throw new UncheckedIOException(new IOException("Journal batch of " + size + " equations is larger "
+                        + "than the batch size " + maxBatchSize));
+            }
+            batch.reset(record.getLong(record.position()));
+            int offset = record.position() + RECORD_HEADER_BYTES;
+            for (int i = 0; i < size; i++, offset += ROOTS_BYTES) {
+                batch.add(0, 0, 0);
+                batch.setRoots(i, record.getDouble(offset), record.getDouble(offset + Double.BYTES),
+                        record.getDouble(offset + 2 * Double.BYTES), record.getDouble(offset + 3 * Double.BYTES));
+            }
+            results.accept(batch);
+        }, null);
+    }
+
+    /**
+     * Encodes the range of a solved batch, and its roots if the journal keeps them, as one record. Blocks while both
+     * buffers are waiting to be written. The ranges of a batch of any degree can be recorded, but only the roots of
+     * quadratic equations.
+     *
+     * @param batch The solved batch.
+     * @throws UncheckedIOException If writing has failed or the thread was interrupted while waiting.
+     * @throws IllegalArgumentException If the journal keeps roots and the batch is not of degree 2.
+     */
+    @Override
+    public synchronized void accept(SolverBatch batch) {
+        if (rootBytes > 0 && batch.getDegree() != 2) {
+            throw new IllegalArgumentException("Journal keeps the roots of quadratic equations, not of degree "
+                    + batch.getDegree());
+        }
+        try {
+            checkFailure();
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+            if (current == null) {
+                current = free.take();
+            }
+            int start = current.position();
+            int size = batch.size();
+            current.putLong(batch.getFirstIndex());
+            current.putInt(size);
+            current.putInt(0);  // CRC, filled in below
+            for (int i = 0; rootBytes > 0 && i < size; i++) {
+                current.putDouble(batch.getRootReal(i, 0));
+                current.putDouble(batch.getRootImag(i, 0));
+                current.putDouble(batch.getRootReal(i, 1));
+                current.putDouble(batch.getRootImag(i, 1));
+            }
+            current.putInt(start + Long.BYTES + Integer.BYTES, checksum(current, start, current.position()));
+            currentEquations += size;
+            if (currentEquations >= flushEquations) {
+                current.flip();
+                filled.put(current);
+                current = null;
+                currentEquations = 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the writer"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes and forces everything that is still buffered, stops the writer thread and closes the file.
+     *
+     * @throws IOException If writing failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current != null && current.position() > 0) {
+                current.flip();
+                filled.put(current);
+                current = null;
+            }
+            filled.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+            throw new InterruptedIOException("Interrupted while closing the journal");
+        } finally {
+            channel.close();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Writing the checkpoint journal failed", failure);
+        }
+    }
+
+    /**
+     * Calculates the CRC32C of a record, leaving out its first 12 bytes and its CRC field.
+     */
+    private int checksum(ByteBuffer buffer, int start, int end) {
+        crc.reset();
+        crc.update(buffer.duplicate().limit(start + Long.BYTES + Integer.BYTES).position(start));
+        crc.update(buffer.duplicate().limit(end).position(start + RECORD_HEADER_BYTES));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writer loop. Appends each filled buffer and forces it to disk before returning it to the free pool.
+     */
+    private void write() {
+        try {
+            while (true) {
+                ByteBuffer buffer = filled.take();
+                if (buffer == END) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        channel.force(false);
+                    } catch (IOException e) {
+                        // Keep taking buffers so that callers fail on their next accept instead of blocking forever
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                free.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the journal through memory-mapped windows, checks its header and the CRC of every record, and passes each
+     * valid record on. Reading stops at the first record that is cut off or does not match its CRC.
+     *
+     * @param fingerprint The fingerprint the header must have, or 0 to not check it.
+     * @param records     Receives a buffer positioned at the start of each record, or null.
+     * @param ranges      Receives the range of each record, or null.
+     * @return The length of the journal up to the end of the last valid record.
+     */
+    private long scan(long fingerprint, Consumer<MappedByteBuffer> records, Ranges ranges) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            throw new IOException(path + " is not a checkpoint journal");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getLong(0) != MAGIC) {
+            throw new IOException(path + " is not a checkpoint journal");
+        }
+        if (fingerprint != 0 && header.getLong(Long.BYTES) != fingerprint) {
+            throw new IOException(path + " was written by a different job. Resume with the same options, such as"
+                    + " --seed, --readers and --batch-size, or delete it to start over");
+        }
+        if (header.getLong(2 * Long.BYTES) != rootBytes) {
+            throw new IOException(path + (rootBytes == 0 ? " keeps roots" : " does not keep roots")
+                    + ". Resume with the same options, including --output, or delete it to start over");
+        }
+
+        CRC32C check = new CRC32C();
+        long position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= size) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(READ_WINDOW, size - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            int offset = 0;
+            while (offset + RECORD_HEADER_BYTES <= window.capacity()) {
+                long first = window.getLong(offset);
+                int count = window.getInt(offset + Long.BYTES);
+                long recordBytes = RECORD_HEADER_BYTES + (long) count * rootBytes;
+                if (count <= 0 || recordBytes > READ_WINDOW) {
+                    return position + offset;   // Garbage, the rest of the file was never written completely
+                }
+                if (offset + recordBytes > window.capacity()) {
+                    break;      // The record continues past this window
+                }
+                check.reset();
+                check.update(window.duplicate().limit(offset + Long.BYTES + Integer.BYTES).position(offset));
+                check.update(window.duplicate().limit(offset + (int) recordBytes)
+                        .position(offset + RECORD_HEADER_BYTES));
+                if ((int) check.getValue() != window.getInt(offset + Long.BYTES + Integer.BYTES)) {
+                    return position + offset;
+                }
+                if (ranges != null) {
+                    ranges.add(first, first + count);
+                }
+                if (records != null) {
+                    window.position(offset);
+                    records.accept(window);
+                }
+                offset += (int) recordBytes;
+            }
+            if (offset == 0) {
+                return position;    // A record longer than what is left of the file
+            }
+            position += offset;
+        }
+        return position;
+    }
+
+    /**
+     * Ranges collects the ranges of the records while the journal is read.
+     */
+    private static final class Ranges {
+        long[] starts = new long[64];
+        long[] ends = new long[64];
+        int count;
+
+        void add(long start, long end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * count);
+                ends = Arrays.copyOf(ends, 2 * count);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        /**
+         * Merges the ranges that overlap or touch. The union only depends on the sorted starts and the sorted ends, so
+         * both are sorted on their own: walking them together, a range of the union starts where the first of a run
+         * of overlapping starts is, and ends where as many ends as starts have been passed.
+         */
+        void merge() {
+            long[] sortedStarts = Arrays.copyOf(starts, count);
+            long[] sortedEnds = Arrays.copyOf(ends, count);
+            Arrays.sort(sortedStarts);
+            Arrays.sort(sortedEnds);
+            int merged = 0;
+            int open = 0;
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                // Close the ranges that end before this one starts; touching ranges stay open and merge
+                while (sortedEnds[j] < sortedStarts[i]) {
+                    j++;
+                    if (--open == 0) {
+                        ends[merged - 1] = sortedEnds[j - 1];
+                    }
+                }
+                if (open++ == 0) {
+                    starts[merged++] = sortedStarts[i];
+                }
+            }
+            if (merged > 0) {
+                ends[merged - 1] = sortedEnds[count - 1];
+            }
+            count = merged;
+        }
+    }
+}
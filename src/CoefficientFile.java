@@ -0,0 +1,500 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * CoefficientFile reads the coefficients of quadratic equations from a file and feeds them to an EquationSolver in
+ * batches. Two formats are supported:
+ * <ul>
+ *     <li>binary: packed little-endian doubles, three per equation in the order a, b, c</li>
+ *     <li>CSV (files ending in .csv): one equation per line as a,b,c</li>
+ * </ul>
+ * The file is split into one region per reader thread and read through memory-mapped windows, so it is never copied
+ * onto the heap. Each reader reuses a fixed number of EquationBatch objects and waits for a batch to be solved before
+ * refilling it, so heap use depends on the number of readers and batches, not on the size of the file.
+ * Batches are indexed by the position of their first equation in the file. A CSV region cannot know where it starts
+ * in equations until the regions before it are counted, so the readers of a CSV file first count the equations of
+ * their regions in parallel, which costs one extra pass over the file.
+ */
+public class CoefficientFile {
+    private static final int EQUATION_BYTES = 3 * Double.BYTES;
+    private static final long BINARY_WINDOW = EQUATION_BYTES * (1L << 22);  // 96 MiB, a whole number of equations
+    private static final long CSV_WINDOW = 64L << 20;   // 64 MiB, lines must be shorter than this
+    static final int BATCHES_PER_READER = 4;    // Batches each reader keeps in flight
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };  // Every power of ten that is exactly representable as a double
+
+    private final Path path;
+    private final boolean csv;
+
+    /**
+     * Constructs a CoefficientFile. The format is CSV if the file name ends in .csv, otherwise binary.
+     *
+     * @param path The file to read.
+     */
+    public CoefficientFile(Path path) {
+        this.path = path;
+        this.csv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * Reads every equation in the file and submits it to the solver, using one thread per region of the file.
+     * Solved batches are passed to the result consumer on the reader thread that submitted them, in file order within
+     * each region. The consumer must not keep the batch, because it is refilled afterwards.
+     *
+     * @param solver    The solver to submit batches to.
+     * @param readers   The number of reader threads.
+     * @param batchSize The number of equations per batch.
+     * @param results   Receives each solved batch.
+     * @return The number of equations read.
+     * @throws IOException          If the file cannot be read.
+     * @throws InterruptedException If the thread is interrupted while waiting for the readers.
+     */
+    public long solve(EquationSolver solver, int readers, int batchSize, Consumer<? super EquationBatch> results)
+            throws IOException, InterruptedException {
+        return solve(solver, readers, batchSize, results, null);
+    }
+
+    /**
+     * Reads every equation in the file and submits the batches that a checkpoint journal has not recorded yet. Batches
+     * are cut the same way as long as the file, the number of readers and the batch size stay the same, so a resumed
+     * run skips exactly the batches its journal holds. The skipped equations are still read and counted.
+     *
+     * @param solver     The solver to submit batches to.
+     * @param readers    The number of reader threads.
+     * @param batchSize  The number of equations per batch.
+     * @param results    Receives each solved batch.
+     * @param checkpoint The journal of an earlier run, or null to submit every batch.
+     * @return The number of equations read.
+     * @throws IOException          If the file cannot be read.
+     * @throws InterruptedException If the thread is interrupted while waiting for the readers.
+     */
+    public long solve(EquationSolver solver, int readers, int batchSize, Consumer<? super EquationBatch> results,
+                      CheckpointJournal checkpoint) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!csv && size % EQUATION_BYTES != 0) {
+                throw new IOException(path + " is not a whole number of 24-byte equations: " + size + " bytes");
+            }
+
+            // A small file, or one with long lines, can leave regions empty, which get no reader
+            List<RegionReader> regions = new ArrayList<>();
+            long start = 0;
+            for (int i = 0; i < readers; i++) {
+                long end = regionBoundary(channel, size, i + 1, readers);
+                if (end > start) {
+                    regions.add(new RegionReader(channel, start, end, size, solver, batchSize, results, checkpoint));
+                    start = end;
+                }
+            }
+
+            if (csv) {
+                runRegions(regions, RegionReader::countCsv, "coefficient-counter-");
+                long first = 0;
+                for (RegionReader region : regions) {
+                    region.firstEquation = first;
+                    first += region.equationsCounted;
+                }
+            } else {
+                for (RegionReader region : regions) {
+                    region.firstEquation = region.start / EQUATION_BYTES;
+                }
+            }
+            runRegions(regions, RegionReader::read, "coefficient-reader-");
+
+            long total = 0;
+            for (RegionReader region : regions) {
+                total += region.equationsRead;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Runs a task on every region, one thread per region, and waits for all of them.
+     *
+     * @param regions The regions.
+     * @param task    What each thread does with its region.
+     * @param name    The name of the threads, followed by the number of the region.
+     * @throws IOException          If a task failed.
+     * @throws InterruptedException If the thread is interrupted while waiting for the tasks.
+     */
+    private void runRegions(List<RegionReader> regions, RegionTask task, String name)
+            throws IOException, InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        Exception[] failures = new Exception[regions.size()];
+        for (int i = 0; i < regions.size(); i++) {
+            RegionReader region = regions.get(i);
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    task.run(region);
+                } catch (InterruptedException e) {
+                    failures[index] = e;
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    failures[index] = e;
+                }
+            }, name + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Exception failure : failures) {
+            if (failure != null) {
+                throw new IOException("Failed to read " + path, failure);
+            }
+        }
+    }
+
+    /**
+     * RegionTask is the work a thread does on one region.
+     */
+    private interface RegionTask {
+        void run(RegionReader region) throws Exception;
+    }
+
+    /**
+     * Finds the byte offset where a region starts. Binary regions start on an equation boundary, CSV regions start at
+     * the beginning of a line, so every line belongs to the region in which it starts. When the file has fewer
+     * equations or bytes than there are regions, several boundaries fall on the same offset.
+     */
+    long regionBoundary(FileChannel channel, long size, int region, int regions) throws IOException {
+        if (region == 0) {
+            return 0;
+        }
+        if (region == regions) {
+            return size;
+        }
+        if (!csv) {
+            long equations = size / EQUATION_BYTES;
+            return equations * region / regions * EQUATION_BYTES;
+        }
+
+        // Move forward to the first byte after a newline, starting at the byte before the even split. A file shorter
+        // than the number of regions puts the even split of the first regions at 0, with no byte before it.
+        long position = Math.max(0, size * region / regions - 1);
+        while (position < size) {
+            long length = Math.min(64 * 1024, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * RegionReader reads the equations of one region into its own batches and submits them.
+     */
+    private class RegionReader {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long size;
+        private final EquationSolver solver;
+        private final Consumer<? super EquationBatch> results;
+        private final CheckpointJournal checkpoint;
+        private final EquationBatch[] batches = new EquationBatch[BATCHES_PER_READER];
+        private final List<CompletableFuture<EquationBatch>> inFlight = new ArrayList<>();
+        private int nextBatch;
+        private EquationBatch current;
+        private long firstEquation;     // Index of the first equation of the region in the file
+        private long equationsCounted;  // Equations found by the counting pass of a CSV region
+        private long equationsRead;
+
+        RegionReader(FileChannel channel, long start, long end, long size, EquationSolver solver, int batchSize,
+                     Consumer<? super EquationBatch> results, CheckpointJournal checkpoint) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+            this.solver = solver;
+            this.results = results;
+            this.checkpoint = checkpoint;
+            for (int i = 0; i < batches.length; i++) {
+                batches[i] = new EquationBatch(batchSize);
+                inFlight.add(null);
+            }
+        }
+
+        /**
+         * Reads and submits every equation of the region, and waits until all of them are solved.
+         */
+        void read() throws IOException, InterruptedException {
+            if (csv) {
+                readCsv(false);
+            } else {
+                readBinary();
+            }
+            submitCurrent();
+            // Wait for the remaining batches, oldest first
+            for (int i = 0; i < batches.length; i++) {
+                awaitBatch((nextBatch + i) % batches.length);
+            }
+        }
+
+        /**
+         * Counts the equations of a CSV region without parsing them.
+         */
+        void countCsv() throws IOException, InterruptedException {
+            readCsv(true);
+        }
+
+        /**
+         * Reads packed triples window by window.
+         */
+        private void readBinary() throws IOException, InterruptedException {
+            for (long position = start; position < end; position += BINARY_WINDOW) {
+                long length = Math.min(BINARY_WINDOW, end - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                for (int offset = 0; offset < length; offset += EQUATION_BYTES) {
+                    add(window.getDouble(offset), window.getDouble(offset + Double.BYTES),
+                            window.getDouble(offset + 2 * Double.BYTES));
+                }
+            }
+        }
+
+        /**
+         * Reads lines window by window. A window always ends at a line break, except at the end of the file, and the
+         * next window starts at the first line that was not parsed. When counting, every line that is not blank is
+         * counted as an equation; malformed lines are left for the reading pass to report.
+         */
+        private void readCsv(boolean count) throws IOException, InterruptedException {
+            double[] values = new double[3];
+            long position = start;
+            while (position < end) {
+                long length = Math.min(CSV_WINDOW, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+                int lineStart = 0;
+                while (position + lineStart < end) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < length && window.get(lineEnd) != '\n') {
+                        lineEnd++;
+                    }
+                    if (lineEnd == length && !lastWindow) {
+                        // The line continues past this window, map the next window from its start
+                        break;
+                    }
+                    if (count) {
+                        if (!isBlank(window, lineStart, lineEnd)) {
+                            equationsCounted++;
+                        }
+                    } else if (parseLine(window, lineStart, lineEnd, values, position + lineStart)) {
+                        add(values[0], values[1], values[2]);
+                    }
+                    lineStart = lineEnd + 1;
+                }
+                if (lineStart == 0 && position + lineStart < end) {
+                    throw new IOException("Line at offset " + position + " is longer than " + CSV_WINDOW + " bytes");
+                }
+                position += lineStart;
+            }
+        }
+
+        /**
+         * Adds one equation to the current batch, submitting the batch when it is full.
+         */
+        private void add(double a, double b, double c) throws InterruptedException {
+            if (current == null) {
+                awaitBatch(nextBatch);
+                current = batches[nextBatch];
+                current.reset(firstEquation + equationsRead);
+            }
+            current.add(a, b, c);
+            equationsRead++;
+            if (current.size() == current.capacity()) {
+                submitCurrent();
+            }
+        }
+
+        /**
+         * Submits the current batch, if it holds any equations, and moves on to the next batch of the pool. A batch the
+         * checkpoint journal already holds is dropped and refilled instead.
+         */
+        private void submitCurrent() throws InterruptedException {
+            if (current == null || current.size() == 0) {
+                return;
+            }
+            if (checkpoint != null && checkpoint.isCompleted(current.getFirstIndex(), current.size())) {
+                current = null;
+                return;
+            }
+            inFlight.set(nextBatch, solver.submitBatch(current));
+            current = null;
+            nextBatch = (nextBatch + 1) % batches.length;
+        }
+
+        /**
+         * Waits until a batch of the pool is solved and hands it to the result consumer, so it can be refilled.
+         */
+        private void awaitBatch(int index) {
+            CompletableFuture<EquationBatch> future = inFlight.get(index);
+            if (future != null) {
+                results.accept(future.join());
+                inFlight.set(index, null);
+            }
+        }
+    }
+
+    /**
+     * Parses a line of three comma-separated numbers. Blank lines are skipped.
+     *
+     * @return True if the line held an equation, false if it was blank.
+     * @throws IOException If the line is not three numbers.
+     */
+    private static boolean parseLine(MappedByteBuffer window, int from, int to, double[] values, long offset)
+            throws IOException {
+        int position = from;
+        for (int field = 0; field < 3; field++) {
+            int fieldEnd = position;
+            while (fieldEnd < to && window.get(fieldEnd) != ',') {
+                fieldEnd++;
+            }
+            if (field == 0 && isBlank(window, position, to)) {
+                return false;
+            }
+            if ((field < 2) == (fieldEnd == to)) {
+                throw new IOException("Expected three comma-separated numbers at offset " + offset);
+            }
+            values[field] = parseDouble(window, position, fieldEnd, offset);
+            position = fieldEnd + 1;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(MappedByteBuffer window, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number without creating a String. When the significant digits fit in 53 bits (about 15 digits)
+     * and the decimal exponent is at most 22, the number is converted exactly with one multiplication or division by
+     * a power of ten. Anything else
+     * falls back to Double.parseDouble, which allocates, so that every number is still parsed correctly.
+     */
+    private static double parseDouble(MappedByteBuffer window, int from, int to, long offset) throws IOException {
+        // Trim surrounding whitespace
+        while (from < to && isSpace(window.get(from))) {
+            from++;
+        }
+        while (to > from && isSpace(window.get(to - 1))) {
+            to--;
+        }
+
+        int position = from;
+        boolean negative = false;
+        if (position < to && (window.get(position) == '-' || window.get(position) == '+')) {
+            negative = window.get(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; position < to; position++) {
+            byte b = window.get(position);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && b == '0') {
+                    // Leading zeros are not significant
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (digits == 18) {
+                    return parseSlow(window, from, to, offset);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) {
+                    exponent--;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (b == 'e' || b == 'E') {
+                break;
+            } else {
+                return parseSlow(window, from, to, offset);
+            }
+        }
+        if (!seenDigit) {
+            return parseSlow(window, from, to, offset);
+        }
+
+        if (position < to) {
+            // Exponent part
+            position++;
+            boolean negativeExponent = false;
+            if (position < to && (window.get(position) == '-' || window.get(position) == '+')) {
+                negativeExponent = window.get(position) == '-';
+                position++;
+            }
+            if (position == to) {
+                return parseSlow(window, from, to, offset);
+            }
+            int value = 0;
+            for (; position < to; position++) {
+                byte b = window.get(position);
+                if (b < '0' || b > '9' || value > 10_000) {
+                    return parseSlow(window, from, to, offset);
+                }
+                value = value * 10 + (b - '0');
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        // Exact when the mantissa fits in 53 bits and 10^|exponent| is exactly representable (up to 10^22)
+        if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double result = mantissa;
+            if (exponent < 0) {
+                result /= POWERS_OF_TEN[-exponent];
+            } else {
+                result *= POWERS_OF_TEN[exponent];
+            }
+            return negative ? -result : result;
+        }
+        return parseSlow(window, from, to, offset);
+    }
+
+    private static double parseSlow(MappedByteBuffer window, int from, int to, long offset) throws IOException {
+        byte[] bytes = new byte[to - from];
+        window.get(from, bytes);
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number '" + text + "' in line at offset " + offset);
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -0,0 +1,299 @@
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * CoefficientGenerator produces random coefficients for synthetic jobs on several producer threads at once. The job is
+ * cut into blocks of {@value #BLOCK_SIZE} equations and block k belongs to producer k % producers. Every producer draws
+ * from its own SplittableRandom, split in order from one master seed, so producers share no state and no lock, and the
+ * same seed and number of producers always give exactly the same equations, whichever engine solves them.
+ * <p>
+ * Each coefficient follows its own {@link Distribution}, by default uniform between -5 and 5.
+ */
+public class CoefficientGenerator {
+    static final int BLOCK_SIZE = 4096;     // Equations per block, the unit of work of one producer
+
+    private final long seed;        // Master seed the producer streams are split from
+    private final int producers;    // Number of producer streams
+    private final Distribution a;   // Distribution of the coefficient of x^2
+    private final Distribution b;   // Distribution of the coefficient of x
+    private final Distribution c;   // Distribution of the constant term
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed      The master seed.
+     * @param producers The number of producers, each with its own stream.
+     * @param a         The distribution of the coefficient of x^2.
+     * @param b         The distribution of the coefficient of x.
+     * @param c         The distribution of the constant term.
+     */
+    public CoefficientGenerator(long seed, int producers, Distribution a, Distribution b, Distribution c) {
+        if (producers <= 0) {
+            throw new IllegalArgumentException("Number of producers must be positive: " + producers);
+        }
+        this.seed = seed;
+        this.producers = producers;
+        this.a = a;
+        this.b = b;
+        this.c = c;
+    }
+
+    /**
+     * Constructs a generator that draws every coefficient uniformly between -5 and 5.
+     *
+     * @param seed      The master seed.
+     * @param producers The number of producers, each with its own stream.
+     */
+    public CoefficientGenerator(long seed, int producers) {
+        this(seed, producers, Distribution.DEFAULT, Distribution.DEFAULT, Distribution.DEFAULT);
+    }
+
+    /**
+     * Creates the random streams of the producers, split in order from the master seed. Each stream must only be used
+     * by its own producer, for its own blocks, in increasing order.
+     *
+     * @return One stream per producer.
+     */
+    public SplittableRandom[] newStreams() {
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[producers];
+        for (int i = 0; i < producers; i++) {
+            streams[i] = master.split();
+        }
+        return streams;
+    }
+
+    /**
+     * Gets the number of producers.
+     *
+     * @return The number of producers.
+     */
+    public int getProducers() {
+        return producers;
+    }
+
+    /**
+     * Gets the producer that generates the block holding an equation.
+     *
+     * @param index The index of the equation within the job.
+     * @return The producer.
+     */
+    public int producerOf(long index) {
+        return (int) (index / BLOCK_SIZE % producers);
+    }
+
+    /**
+     * Runs an action for every block of a job that belongs to a producer, in increasing order.
+     *
+     * @param producer The producer.
+     * @param total    The number of equations in the job.
+     * @param action   The action, given the index of the first equation of the block and its length.
+     * @throws InterruptedException If the action is interrupted.
+     */
+    public void forEachBlock(int producer, long total, BlockAction action) throws InterruptedException {
+        long stride = (long) producers * BLOCK_SIZE;
+        for (long first = (long) producer * BLOCK_SIZE; first < total; first += stride) {
+            action.accept(first, (int) Math.min(BLOCK_SIZE, total - first));
+        }
+    }
+
+    /**
+     * Fills a range of coefficient arrays.
+     *
+     * @param stream The stream of the producer that owns the range.
+     * @param a      Receives the coefficients of x^2.
+     * @param b      Receives the coefficients of x.
+     * @param c      Receives the constant terms.
+     * @param offset The index of the first equation.
+     * @param length The number of equations.
+     */
+    public void fill(SplittableRandom stream, double[] a, double[] b, double[] c, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            a[i] = this.a.sample(stream);
+            b[i] = this.b.sample(stream);
+            c[i] = this.c.sample(stream);
+        }
+    }
+
+    /**
+     * Empties a batch and fills it with new equations. A PolynomialBatch is filled with polynomials of its degree,
+     * whose leading coefficient follows the distribution of a, whose constant term follows that of c, and whose other
+     * coefficients follow that of b, so at degree 2 it gets exactly the equations of a plain batch.
+     *
+     * @param stream     The stream of the producer that owns the range.
+     * @param batch      The batch to fill, an EquationBatch or a PolynomialBatch.
+     * @param firstIndex The index of the first equation within the job.
+     * @param length     The number of equations, at most the capacity of the batch.
+     */
+    public void fill(SplittableRandom stream, SolverBatch batch, long firstIndex, int length) {
+        batch.reset(firstIndex);
+        if (batch instanceof PolynomialBatch) {
+            PolynomialBatch polynomials = (PolynomialBatch) batch;
+            int degree = polynomials.getDegree();
+            double[] coefficients = polynomials.getCoefficients();
+            for (int i = 0; i < length; i++) {
+                int slot = polynomials.slot();
+                coefficients[slot] = a.sample(stream);
+                for (int k = 1; k < degree; k++) {
+                    coefficients[slot + k] = b.sample(stream);
+                }
+                coefficients[slot + degree] = c.sample(stream);
+            }
+            return;
+        }
+        EquationBatch equations = (EquationBatch) batch;
+        for (int i = 0; i < length; i++) {
+            equations.add(a.sample(stream), b.sample(stream), c.sample(stream));
+        }
+    }
+
+    /**
+     * Fills a range of an off-heap store.
+     *
+     * @param stream The stream of the producer that owns the range.
+     * @param store  The store to fill.
+     * @param from   The index of the first equation.
+     * @param length The number of equations.
+     */
+    public void fill(SplittableRandom stream, OffHeapEquationStore store, long from, int length) {
+        for (long i = from; i < from + length; i++) {
+            store.setCoefficients(i, a.sample(stream), b.sample(stream), c.sample(stream));
+        }
+    }
+
+    /**
+     * Creates a single equation.
+     *
+     * @param stream The stream of the producer that owns the equation.
+     * @return The equation.
+     */
+    public QuadraticEquation next(SplittableRandom stream) {
+        double nextA = a.sample(stream);
+        double nextB = b.sample(stream);
+        double nextC = c.sample(stream);
+        return new QuadraticEquation(nextA, nextB, nextC);
+    }
+
+    /**
+     * BlockAction handles one block of a producer.
+     */
+    public interface BlockAction {
+        void accept(long first, int length) throws InterruptedException;
+    }
+
+    /**
+     * Distribution describes how one coefficient is drawn. It is written as kind:first:second, where the kind is
+     * uniform (between first and second), normal (mean first, standard deviation second) or integer (whole numbers
+     * from first to second, both included, which must be whole numbers themselves).
+     */
+    public static class Distribution {
+        static final Distribution DEFAULT = new Distribution(Kind.UNIFORM, -5, 5);
+        static final double MAX_INTEGER = 0x1p53;   // Bounds of integer beyond this are not exact as doubles
+
+        private final Kind kind;
+        private final double first;
+        private final double second;
+
+        private Distribution(Kind kind, double first, double second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Parses a distribution such as uniform:-5:5, normal:0:2 or integer:-10:10.
+         *
+         * @param spec The distribution.
+         * @return The parsed distribution.
+         * @throws IllegalArgumentException If the distribution is malformed.
+         */
+        public static Distribution parse(String spec) {
+            String[] parts = spec.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected kind:first:second but got: " + spec);
+            }
+            double first;
+            double second;
+            try {
+                first = Double.parseDouble(parts[1]);
+                second = Double.parseDouble(parts[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected numbers in distribution: " + spec);
+            }
+            Kind kind;
+            switch (parts[0]) {
+                case "uniform":
+                    kind = Kind.UNIFORM;
+                    break;
+                case "normal":
+                    kind = Kind.NORMAL;
+                    break;
+                case "integer":
+                    kind = Kind.INTEGER;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown distribution " + parts[0] + " in: " + spec);
+            }
+            if (kind == Kind.NORMAL) {
+                if (!(second >= 0)) {
+                    throw new IllegalArgumentException("Standard deviation must not be negative in: " + spec);
+                }
+            } else if (!(first <= second)) {
+                throw new IllegalArgumentException("Lower bound above upper bound in: " + spec);
+            }
+            if (kind == Kind.INTEGER && !(isWhole(first) && isWhole(second))) {
+                throw new IllegalArgumentException("Bounds of integer must be whole numbers up to 2^53 in: " + spec);
+            }
+            return new Distribution(kind, first, second);
+        }
+
+        /**
+         * Draws one value.
+         *
+         * @param stream The stream to draw from.
+         * @return The value.
+         */
+        double sample(SplittableRandom stream) {
+            switch (kind) {
+                case NORMAL:
+                    return first + second * gaussian(stream);
+                case INTEGER:
+                    return first + stream.nextLong((long) second - (long) first + 1);
+                default:
+                    return stream.nextDouble() * (second - first) + first;
+            }
+        }
+
+        private static boolean isWhole(double value) {
+            return Math.abs(value) <= MAX_INTEGER && Math.rint(value) == value;
+        }
+
+        /**
+         * Draws a standard normal value with the Marsaglia polar method. SplittableRandom has no nextGaussian in Java
+         * 17. The second value of each pair is dropped, so every draw only depends on the stream.
+         */
+        private static double gaussian(SplittableRandom stream) {
+            double x;
+            double y;
+            double s;
+            do {
+                x = 2 * stream.nextDouble() - 1;
+                y = 2 * stream.nextDouble() - 1;
+                s = x * x + y * y;
+            } while (s >= 1 || s == 0);
+            return x * Math.sqrt(-2 * Math.log(s) / s);
+        }
+
+        @Override
+        public String toString() {
+            return kind.name().toLowerCase(Locale.ROOT) + ":" + first + ":" + second;
+        }
+
+        /**
+         * Kind is the family of a distribution, resolved once when it is parsed.
+         */
+        private enum Kind {
+            UNIFORM, NORMAL, INTEGER
+        }
+    }
+}
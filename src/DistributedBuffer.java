@@ -0,0 +1,478 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DistributedBuffer hands batches to RemoteWorker processes instead of local SlaveThreads. It listens on a port, and
+ * each worker that connects says how many batches it accepts at once. Those are its credits: a batch is only sent to a
+ * worker that has a credit left, and every result gives the credit back, so no worker is sent more than it can hold.
+ * Batches wait in a queue of the buffer's capacity until some worker has a credit.
+ * <p>
+ * If a worker disconnects, the batches it had not answered yet go back to the front of the queue and are sent to the
+ * other workers. Workers may join at any time. It is only a BatchBuffer, so single equations are never sent, and no
+ * SlaveThread of this process can take its batches.
+ * <p>
+ * All network I/O happens on one thread with a Selector, using the frames described in {@link WireProtocol}.
+ */
+public class DistributedBuffer implements BatchBuffer, AutoCloseable {
+    private static final int OUTPUT_BYTES = 1 << 20;    // Per-worker output buffer, grown for larger batches
+
+    private final int capacity;     // Maximum number of batches waiting to be sent
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread ioThread;
+    private final ArrayDeque<EquationBatch> pending = new ArrayDeque<>();   // Batches waiting for a credit
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Condition pendingNotFull = pendingLock.newCondition();
+    private final Condition workersChanged = pendingLock.newCondition();
+    private final LinkedBlockingQueue<EquationBatch> solved = new LinkedBlockingQueue<>();
+    private final List<Worker> workers = new ArrayList<>();    // Only used on the I/O thread
+    private final List<String> finishedWorkers = new ArrayList<>();    // Summaries of workers that are gone
+    private final AtomicInteger connectedWorkers = new AtomicInteger();
+    private final LongAdder reassigned = new LongAdder();
+    private final LongAdder solvedEquations = new LongAdder();
+    private long nextId;    // Id of the next batch sent, only used on the I/O thread
+    private int maxBatchSize;   // Largest batch sent, bounds the frames of workers, only used on the I/O thread
+    private volatile boolean closed;
+
+    /**
+     * Opens the port and starts the I/O thread.
+     *
+     * @param port     The port to listen on.
+     * @param capacity The maximum number of batches waiting to be sent.
+     * @throws UncheckedIOException If the port cannot be opened.
+     */
+    public DistributedBuffer(int port, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        try {
+            this.selector = Selector.open();
+            this.server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on port " + port, e);
+        }
+        this.ioThread = new Thread(this::runIo, "distributed-buffer-io");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    /**
+     * Waits until the given number of workers are connected.
+     *
+     * @param count The number of workers.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void awaitWorkers(int count) throws InterruptedException {
+        pendingLock.lockInterruptibly();
+        try {
+            while (connectedWorkers.get() < count) {
+                workersChanged.await();
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the port the buffer listens on, which is useful when it was opened on port 0.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Queues a batch for the remote workers, waiting while the queue is full.
+     * @param batch The batch, which must be an EquationBatch, because the wire protocol only carries quadratic
+     *              equations.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     * @throws IllegalArgumentException If the batch holds polynomials of another degree.
+     */
+    @Override
+    public void blockingPutBatch(SolverBatch batch) throws InterruptedException {
+        if (!(batch instanceof EquationBatch)) {
+            throw new IllegalArgumentException("Remote workers only solve quadratic equations, not degree "
+                    + batch.getDegree());
+        }
+        pendingLock.lockInterruptibly();
+        try {
+            while (pending.size() >= capacity) {
+                pendingNotFull.await();
+            }
+            pending.addLast((EquationBatch) batch);
+        } finally {
+            pendingLock.unlock();
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public EquationBatch blockingGetSolvedBatch() throws InterruptedException {
+        return solved.take();
+    }
+
+    @Override
+    public int getPendingEquations() {
+        pendingLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    @Override
+    public int getPendingResults() {
+        return solved.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of workers that are connected and have said hello.
+     *
+     * @return The number of workers batches can be sent to.
+     */
+    public int getConnectedWorkers() {
+        return connectedWorkers.get();
+    }
+
+    /**
+     * Gets the number of equations the workers have solved.
+     *
+     * @return The number of solved equations.
+     */
+    public long getSolvedEquations() {
+        return solvedEquations.sum();
+    }
+
+    /**
+     * Gets the number of batches that were sent again because their worker disconnected.
+     *
+     * @return The number of reassigned batches.
+     */
+    public long getReassignedBatches() {
+        return reassigned.sum();
+    }
+
+    /**
+     * Describes every worker that was connected: its address, how many equations it solved and whether it was lost.
+     * Call this after {@link #close()}.
+     *
+     * @return One line per worker.
+     */
+    public List<String> getWorkerSummaries() {
+        synchronized (finishedWorkers) {
+            return new ArrayList<>(finishedWorkers);
+        }
+    }
+
+    /**
+     * Disconnects every worker, which makes them exit, and stops the I/O thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * I/O loop. Accepts workers, reads their frames, and sends pending batches to workers with credits.
+     */
+    private void runIo() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Worker worker = (Worker) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                worker.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                worker.flush();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            lose(worker, e);
+                        }
+                    }
+                }
+                dispatch();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                System.err.println("Distributed buffer stopped: " + e);
+            }
+        } finally {
+            for (Worker worker : new ArrayList<>(workers)) {
+                finish(worker, "finished");
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Accepts a worker. A connection that fails while it is being set up, such as one the peer resets right away, is
+     * closed on its own, so the other workers are not affected.
+     */
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Worker worker = new Worker(channel);
+            worker.key = channel.register(selector, SelectionKey.OP_READ, worker);
+            workers.add(worker);
+        } catch (IOException e) {
+            System.err.println("Could not accept a worker: " + e);
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeFailure) {
+                    // Already closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends pending batches, one worker after the other, while there are batches and credits.
+     */
+    private void dispatch() throws IOException {
+        boolean sent = true;
+        while (sent) {
+            sent = false;
+            for (Worker worker : new ArrayList<>(workers)) {
+                // A worker that has not said hello yet has no credits, so it is not sent anything
+                if (!worker.helloReceived || worker.credits <= 0) {
+                    continue;
+                }
+                EquationBatch batch;
+                pendingLock.lock();
+                try {
+                    batch = pending.pollFirst();
+                    if (batch != null) {
+                        pendingNotFull.signal();
+                    }
+                } finally {
+                    pendingLock.unlock();
+                }
+                if (batch == null) {
+                    return;
+                }
+                maxBatchSize = Math.max(maxBatchSize, batch.size());
+                try {
+                    worker.send(nextId++, batch);
+                    sent = true;
+                } catch (IOException e) {
+                    lose(worker, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a worker whose connection failed and puts its unanswered batches back at the front of the queue.
+     */
+    private void lose(Worker worker, Exception cause) {
+        List<EquationBatch> unanswered = new ArrayList<>(worker.inFlight.values());
+        finish(worker, "lost (" + cause.getMessage() + "), " + unanswered.size() + " batches reassigned");
+        pendingLock.lock();
+        try {
+            for (EquationBatch batch : unanswered) {
+                pending.addFirst(batch);
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+        reassigned.add(unanswered.size());
+    }
+
+    private void finish(Worker worker, String state) {
+        worker.key.cancel();
+        try {
+            worker.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        if (workers.remove(worker)) {
+            if (worker.helloReceived) {
+                connectedWorkers.decrementAndGet();
+            }
+            synchronized (finishedWorkers) {
+                finishedWorkers.add("Worker " + worker.address + " solved " + worker.solvedEquations
+                        + " equations, " + state);
+            }
+        }
+    }
+
+    /**
+     * Worker is the master's side of one connection: its credits, the batches it has not answered and its partly read
+     * and written frames.
+     */
+    private class Worker {
+        private final SocketChannel channel;
+        private final SocketAddress address;
+        private final Map<Long, EquationBatch> inFlight = new HashMap<>();
+        private ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        private ByteBuffer out = ByteBuffer.allocate(OUTPUT_BYTES);    // Kept in write mode
+        private SelectionKey key;
+        private boolean helloReceived;  // Whether the worker has said how many credits it has
+        private int credits;    // Batches the worker can still take
+        private long solvedEquations;
+
+        Worker(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.address = channel.getRemoteAddress();
+        }
+
+        /**
+         * Reads what has arrived and handles every complete frame.
+         */
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                throw new IOException("connection closed");
+            }
+            in.flip();
+            while (in.remaining() >= WireProtocol.LENGTH_BYTES) {
+                int length = in.getInt(in.position());
+                // A result is the largest frame a worker sends, so a longer one is garbage and must not grow the buffer
+                if (length <= 0 || length > WireProtocol.resultFrameSize(maxBatchSize) - WireProtocol.LENGTH_BYTES) {
+                    throw new IOException("frame of " + length + " bytes");
+                }
+                if (in.remaining() < WireProtocol.LENGTH_BYTES + length) {
+                    break;
+                }
+                in.position(in.position() + WireProtocol.LENGTH_BYTES);
+                int end = in.position() + length;
+                handle(in.get());
+                in.position(end);
+            }
+            in.compact();
+            if (!in.hasRemaining()) {
+                // A frame larger than the input buffer is arriving
+                ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+        }
+
+        private void handle(byte type) throws IOException {
+            if (type == WireProtocol.HELLO) {
+                if (helloReceived) {
+                    throw new IOException("second hello");
+                }
+                credits = in.getInt();
+                if (credits <= 0) {
+                    throw new IOException("hello without credits");
+                }
+                helloReceived = true;
+                connectedWorkers.incrementAndGet();
+                pendingLock.lock();
+                try {
+                    workersChanged.signalAll();
+                } finally {
+                    pendingLock.unlock();
+                }
+            } else if (type == WireProtocol.RESULT) {
+                EquationBatch batch = inFlight.remove(in.getLong());
+                if (batch == null) {
+                    throw new IOException("result for a batch that was not sent");
+                }
+                WireProtocol.readResult(in, batch);
+                credits++;
+                solvedEquations += batch.size();
+                DistributedBuffer.this.solvedEquations.add(batch.size());
+                solved.add(batch);
+            } else {
+                throw new IOException("unexpected frame type " + type);
+            }
+        }
+
+        /**
+         * Sends a batch, using up one credit.
+         */
+        void send(long id, EquationBatch batch) throws IOException {
+            // Track the batch first, so it is reassigned even if writing it fails
+            inFlight.put(id, batch);
+            credits--;
+            int size = WireProtocol.batchFrameSize(batch.size());
+            if (out.remaining() < size) {
+                flush();
+                if (out.remaining() < size) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                    out.flip();
+                    larger.put(out);
+                    out = larger;
+                }
+            }
+            WireProtocol.writeBatch(out, id, batch);
+            flush();
+        }
+
+        /**
+         * Writes as much of the output as the socket takes, and asks to be told when it can take the rest.
+         */
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            int interest = SelectionKey.OP_READ | (out.position() > 0 ? SelectionKey.OP_WRITE : 0);
+            if (key.interestOps() != interest) {
+                key.interestOps(interest);
+            }
+        }
+    }
+}
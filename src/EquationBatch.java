@@ -0,0 +1,203 @@
+import java.util.Objects;
+
+/**
+ * EquationBatch holds a block of quadratic equations and their roots as parallel primitive arrays. A batch is allocated
+ * once and reused, so moving batches through the buffer does not create any objects per equation.
+ */
+public class EquationBatch implements SolverBatch {
+    private final double[] a;
+    private final double[] b;
+    private final double[] c;
+    private final double[] real1;
+    private final double[] imag1;
+    private final double[] real2;
+    private final double[] imag2;
+    private long firstIndex;    // Index of the first equation of this batch within the whole job
+    private int size;           // Number of equations currently held
+    private long submitNanos;   // System.nanoTime() when the batch was handed to the slave threads
+
+    /**
+     * Constructs an empty batch that can hold up to the given number of equations.
+     * @param capacity The maximum number of equations in the batch.
+     */
+    public EquationBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity must be positive: " + capacity);
+        }
+        this.a = new double[capacity];
+        this.b = new double[capacity];
+        this.c = new double[capacity];
+        this.real1 = new double[capacity];
+        this.imag1 = new double[capacity];
+        this.real2 = new double[capacity];
+        this.imag2 = new double[capacity];
+    }
+
+    /**
+     * Empties the batch so it can be refilled.
+     * @param firstIndex The job-wide index of the first equation that will be added.
+     */
+    @Override
+    public void reset(long firstIndex) {
+        this.firstIndex = firstIndex;
+        this.size = 0;
+    }
+
+    /**
+     * Appends the coefficients of one equation to the batch.
+     * @param a The coefficient of x^2.
+     * @param b The coefficient of x.
+     * @param c The constant term.
+     */
+    public void add(double a, double b, double c) {
+        if (size == this.a.length) {
+            throw new IllegalStateException("Batch is full");
+        }
+        this.a[size] = a;
+        this.b[size] = b;
+        this.c[size] = c;
+        size++;
+    }
+
+    /**
+     * Solves every equation in the batch, storing the roots in the batch's output arrays.
+     */
+    @Override
+    public void solve() {
+        QuadraticEquation.solve(a, b, c, 0, size, real1, imag1, real2, imag2);
+    }
+
+    /**
+     * Solves every equation in the batch through a cache, which returns the roots of equations it has seen before.
+     * @param cache The cache to use, or null to solve every equation.
+     */
+    @Override
+    public void solve(RootCache cache) {
+        if (cache == null) {
+            solve();
+        } else {
+            cache.solve(a, b, c, 0, size, real1, imag1, real2, imag2);
+        }
+    }
+
+    /**
+     * Stores the roots of one equation that were solved somewhere else, such as on a remote worker.
+     * @param i     The index of the equation in the batch.
+     * @param real1 The real part of the first root.
+     * @param imag1 The imaginary part of the first root.
+     * @param real2 The real part of the second root.
+     * @param imag2 The imaginary part of the second root.
+     */
+    public void setRoots(int i, double real1, double imag1, double real2, double imag2) {
+        this.real1[i] = real1;
+        this.imag1[i] = imag1;
+        this.real2[i] = real2;
+        this.imag2[i] = imag2;
+    }
+
+    /**
+     * Gets the number of equations in the batch.
+     * @return The number of equations.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of equations the batch can hold.
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return a.length;
+    }
+
+    /**
+     * Records the time the batch is handed to the slave threads, so queue wait and end-to-end latency can be measured.
+     * @param submitNanos The current System.nanoTime().
+     */
+    @Override
+    public void setSubmitNanos(long submitNanos) {
+        this.submitNanos = submitNanos;
+    }
+
+    /**
+     * Gets the time the batch was handed to the slave threads.
+     * @return The System.nanoTime() recorded by {@link #setSubmitNanos}.
+     */
+    @Override
+    public long getSubmitNanos() {
+        return submitNanos;
+    }
+
+    /**
+     * Gets the job-wide index of the first equation in the batch.
+     * @return The index of the first equation.
+     */
+    @Override
+    public long getFirstIndex() {
+        return firstIndex;
+    }
+
+    /**
+     * Gets the degree of the equations, which is always 2.
+     * @return 2.
+     */
+    @Override
+    public int getDegree() {
+        return 2;
+    }
+
+    /**
+     * Gets the real part of one root of an equation.
+     * @param i    The index of the equation in the batch.
+     * @param root 0 for the first root, 1 for the second.
+     * @return The real part.
+     */
+    @Override
+    public double getRootReal(int i, int root) {
+        Objects.checkIndex(root, 2);
+        return root == 0 ? real1[i] : real2[i];
+    }
+
+    /**
+     * Gets the imaginary part of one root of an equation.
+     * @param i    The index of the equation in the batch.
+     * @param root 0 for the first root, 1 for the second.
+     * @return The imaginary part.
+     */
+    @Override
+    public double getRootImag(int i, int root) {
+        Objects.checkIndex(root, 2);
+        return root == 0 ? imag1[i] : imag2[i];
+    }
+
+    public double getA(int i) {
+        return a[i];
+    }
+
+    public double getB(int i) {
+        return b[i];
+    }
+
+    public double getC(int i) {
+        return c[i];
+    }
+
+    public double getReal1(int i) {
+        return real1[i];
+    }
+
+    public double getImag1(int i) {
+        return imag1[i];
+    }
+
+    public double getReal2(int i) {
+        return real2[i];
+    }
+
+    public double getImag2(int i) {
+        return imag2[i];
+    }
+}
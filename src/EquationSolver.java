@@ -0,0 +1,163 @@
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * EquationSolver lets callers submit equations without waiting for each result before sending the next one.
+ * Every submission returns a CompletableFuture that completes when a SlaveThread has solved it, so many equations can
+ * be in flight at once while each result still belongs to the input it was submitted with.
+ * The number of batches in flight is limited by a window, which keeps memory bounded when callers submit faster than
+ * the SlaveThreads can solve. The SlaveThreads must run in batch mode on the same buffer.
+ */
+public class EquationSolver implements AutoCloseable {
+    private final BatchBuffer buffer;   // Buffer shared with the SlaveThreads
+    private final Semaphore window;     // One permit per batch that may be in flight
+    private final int windowSize;
+    private final Map<SolverBatch, CompletableFuture<?>> pending = new ConcurrentHashMap<>();  // Future of each batch
+    private final Thread collector;     // Reads solved batches and completes their futures
+    private final LatencyHistogram endToEnd;    // Submit-to-collect latency per equation, or null
+
+    /**
+     * Constructs an EquationSolver and starts its collector thread.
+     *
+     * @param buffer     The buffer shared with SlaveThreads running in batch mode.
+     * @param windowSize The maximum number of batches in flight at once.
+     */
+    public EquationSolver(BatchBuffer buffer, int windowSize) {
+        this(buffer, windowSize, null);
+    }
+
+    /**
+     * Constructs an EquationSolver that also records the end-to-end latency of every equation, from submission until
+     * its batch is collected.
+     *
+     * @param buffer     The buffer shared with SlaveThreads running in batch mode.
+     * @param windowSize The maximum number of batches in flight at once.
+     * @param endToEnd   The histogram to record into, or null to not record.
+     */
+    public EquationSolver(BatchBuffer buffer, int windowSize, LatencyHistogram endToEnd) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.buffer = buffer;
+        this.windowSize = windowSize;
+        this.window = new Semaphore(windowSize);
+        this.endToEnd = endToEnd;
+        this.collector = new Thread(this::collect, "equation-solver-collector");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * Submits a single equation. This wraps the equation in a batch of one, so it allocates per call; use
+     * {@link #submitBatch} on hot paths.
+     *
+     * @param equation The equation to solve.
+     * @return A future that completes with the same root that {@link QuadraticEquation#getRoots()} returns.
+     * @throws InterruptedException If the thread is interrupted while waiting for room in the window.
+     */
+    public CompletableFuture<Complex> submit(QuadraticEquation equation) throws InterruptedException {
+        EquationBatch batch = new EquationBatch(1);
+        batch.reset(0);
+        batch.add(equation.getA(), equation.getB(), equation.getC());
+        return submitBatch(batch).thenApply(solved -> new Complex(solved.getReal1(0), solved.getImag1(0)));
+    }
+
+    /**
+     * Submits a batch of equations or polynomials. If the window is full, this waits until an earlier batch has been
+     * solved. The batch must not be changed or submitted again until its future completes.
+     *
+     * @param batch The batch to solve.
+     * @param <B>   The type of the batch.
+     * @return A future that completes with the same batch once its roots have been filled in.
+     * @throws InterruptedException If the thread is interrupted while waiting for room in the window.
+     */
+    public <B extends SolverBatch> CompletableFuture<B> submitBatch(B batch) throws InterruptedException {
+        window.acquire();
+        CompletableFuture<B> future = new CompletableFuture<>();
+        // Register before handing the batch over so the collector always finds the future
+        if (pending.putIfAbsent(batch, future) != null) {
+            window.release();
+            throw new IllegalStateException("Batch is already in flight");
+        }
+        try {
+            batch.setSubmitNanos(System.nanoTime());
+            SolverEvents.dispatch(buffer, batch);
+        } catch (InterruptedException e) {
+            pending.remove(batch);
+            window.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Waits until every submitted batch has been solved.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void drain() throws InterruptedException {
+        window.acquire(windowSize);
+        window.release(windowSize);
+    }
+
+    /**
+     * Gets the number of batches currently in flight.
+     *
+     * @return The number of submitted batches whose futures have not completed.
+     */
+    public int getInFlight() {
+        return windowSize - window.availablePermits();
+    }
+
+    /**
+     * Stops the collector thread. Futures of batches that are still in flight complete exceptionally.
+     */
+    @Override
+    public void close() {
+        collector.interrupt();
+        try {
+            collector.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CompletableFuture<?> future : pending.values()) {
+            future.completeExceptionally(new IllegalStateException("EquationSolver closed"));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Collector loop. Takes solved batches from the buffer, completes their futures and then frees their place in the
+     * window.
+     */
+    private void collect() {
+        try {
+            while (true) {
+                SolverBatch batch = buffer.blockingGetSolvedBatch();
+                if (endToEnd != null) {
+                    endToEnd.record(System.nanoTime() - batch.getSubmitNanos(), batch.size());
+                }
+                CompletableFuture<?> future = pending.remove(batch);
+                // Complete before freeing the window, so drain() also waits for callbacks such as a result sink
+                if (future != null) {
+                    complete(future, batch);
+                }
+                window.release();
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by close(), exit the loop
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Completes the future of a batch with the batch. The future was created by {@link #submitBatch} for this very
+     * batch, so it has the batch's type.
+     */
+    @SuppressWarnings("unchecked")
+    private static <B> void complete(CompletableFuture<B> future, SolverBatch batch) {
+        future.complete((B) batch);
+    }
+}
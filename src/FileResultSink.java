@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * FileResultSink writes the roots of solved batches to a file on a dedicated writer thread. A caller only copies the
+ * index and roots of its batch into one of a fixed number of reusable blocks and hands the block over, so the time to
+ * encode the roots is spent on the writer thread and not on the thread that collects the batches. The writer thread
+ * encodes each block into one of its direct ByteBuffers and writes the filled buffers with one gathering FileChannel
+ * write. When all blocks are waiting for the writer, accept blocks, so a slow disk limits memory use instead of
+ * letting it grow.
+ * <ul>
+ *     <li>BINARY writes 40 bytes per equation: the equation index as a long, then real1, imag1, real2 and imag2 as
+ *     doubles, all little-endian.</li>
+ *     <li>TEXT writes one line per equation: the index, real1, imag1, real2 and imag2 separated by spaces. Numbers are
+ *     formatted without allocating, with 15 significant digits.</li>
+ * </ul>
+ */
+public class FileResultSink implements ResultSink<EquationBatch> {
+
+    /**
+     * The output formats of a FileResultSink.
+     */
+    public enum Format {
+        BINARY, TEXT
+    }
+
+    private static final int BINARY_RECORD_BYTES = Long.BYTES + 4 * Double.BYTES;
+    private static final int MAX_TEXT_LINE_BYTES = 20 + 4 * 25;     // Index plus four formatted numbers and spaces
+    private static final RootBlock END = new RootBlock();   // Tells the writer thread to stop
+
+    private final FileChannel channel;
+    private final Format format;
+    private final BlockingQueue<RootBlock> free;    // Blocks ready to be filled by callers
+    private final BlockingQueue<RootBlock> filled;  // Blocks waiting for the writer thread
+    private final ByteBuffer[] buffers;     // Encoded roots, only used by the writer thread
+    private final Thread writer;
+    private final byte[] digits = new byte[32];     // Scratch space for formatting a number, writer thread only
+    private ByteBuffer current;     // Buffer being encoded into, writer thread only
+    private volatile IOException failure;   // First error of the writer thread
+    private volatile boolean closed;
+
+    /**
+     * Opens a sink that creates or truncates the given file.
+     *
+     * @param path        The file to write.
+     * @param format      The output format.
+     * @param bufferBytes The size of each direct buffer of the writer thread.
+     * @param buffers     The number of direct buffers, and of blocks callers can hand over before accept blocks.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FileResultSink(Path path, Format format, int bufferBytes, int buffers) throws IOException {
+        if (bufferBytes < MAX_TEXT_LINE_BYTES || buffers < 2) {
+            throw new IllegalArgumentException("Need at least 2 buffers of " + MAX_TEXT_LINE_BYTES + " bytes");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.format = format;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        this.buffers = new ByteBuffer[buffers];
+        for (int i = 0; i < buffers; i++) {
+            free.add(new RootBlock());
+            this.buffers[i] = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.writer = new Thread(this::write, "result-sink-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Copies the index and roots of every equation in the batch and hands them to the writer thread. Blocks while all
+     * blocks are waiting to be written. May be called from several threads at once.
+     *
+     * @param batch The solved batch.
+     * @throws UncheckedIOException If writing has failed or the thread was interrupted while waiting.
+     */
+    @Override
+    public void accept(EquationBatch batch) {
+        try {
+            checkFailure();
+            if (closed) {
+                throw new IOException("Sink is closed");
+            }
+            RootBlock block = free.take();
+            block.copy(batch);
+            filled.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the writer"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes everything that is still waiting, stops the writer thread and closes the file.
+     *
+     * @throws IOException If writing failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            filled.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+            throw new InterruptedIOException("Interrupted while closing the sink");
+        } finally {
+            channel.close();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Writing results failed", failure);
+        }
+    }
+
+    /**
+     * Writer loop. Encodes each block that is handed over and returns it to the callers, moving on to the next buffer
+     * when one is full. The full buffers are written with one gathering write once every buffer is used, or as soon as
+     * no block is waiting, so the file never lags far behind the solved batches.
+     */
+    private void write() {
+        int used = 0;   // Buffers holding encoded roots, the last one is current
+        current = buffers[0];
+        try {
+            while (true) {
+                RootBlock block = filled.take();
+                if (block == END) {
+                    break;
+                }
+                int recordBytes = format == Format.BINARY ? BINARY_RECORD_BYTES : MAX_TEXT_LINE_BYTES;
+                for (int i = 0; i < block.size; i++) {
+                    if (current.remaining() < recordBytes) {
+                        if (++used == buffers.length) {
+                            flush(used);
+                            used = 0;
+                        }
+                        current = buffers[used];
+                    }
+                    encode(block, i);
+                }
+                free.put(block);
+                if (filled.isEmpty()) {
+                    flush(used + 1);
+                    used = 0;
+                    current = buffers[0];
+                }
+            }
+            flush(used + 1);
+        } catch (IOException e) {
+            failure = e;
+            // Keep taking blocks so that callers fail on their next accept instead of blocking forever
+            drainAfterFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the first buffers with one gathering write and clears them.
+     *
+     * @param count The number of buffers to write.
+     * @throws IOException If writing failed.
+     */
+    private void flush(int count) throws IOException {
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+            buffers[i].flip();
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers, 0, count);
+        }
+        for (int i = 0; i < count; i++) {
+            buffers[i].clear();
+        }
+    }
+
+    /**
+     * Encodes the index and roots of one equation of a block into the current buffer.
+     */
+    private void encode(RootBlock block, int i) {
+        long index = block.firstIndex + i;
+        int root = 4 * i;
+        if (format == Format.BINARY) {
+            current.putLong(index);
+            current.putDouble(block.roots[root]);
+            current.putDouble(block.roots[root + 1]);
+            current.putDouble(block.roots[root + 2]);
+            current.putDouble(block.roots[root + 3]);
+        } else {
+            putLong(index);
+            current.put((byte) ' ');
+            putDouble(block.roots[root]);
+            current.put((byte) ' ');
+            putDouble(block.roots[root + 1]);
+            current.put((byte) ' ');
+            putDouble(block.roots[root + 2]);
+            current.put((byte) ' ');
+            putDouble(block.roots[root + 3]);
+            current.put((byte) '\n');
+        }
+    }
+
+    private void drainAfterFailure() {
+        try {
+            while (true) {
+                RootBlock block = filled.take();
+                if (block == END) {
+                    return;
+                }
+                free.put(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a long in decimal.
+     */
+    private void putLong(long value) {
+        if (value < 0) {
+            current.put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (length > 0) {
+            current.put(digits[--length]);
+        }
+    }
+
+    /**
+     * Writes a double with 15 significant digits, in plain notation between 0.001 and 10^7 and in scientific notation
+     * otherwise, like Double.toString. Trailing zeros are dropped.
+     */
+    private void putDouble(double value) {
+        if (Double.isNaN(value)) {
+            putAscii("NaN");
+            return;
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            current.put((byte) '-');
+            value = -value;
+        }
+        if (Double.isInfinite(value)) {
+            putAscii("Infinity");
+            return;
+        }
+        if (value == 0) {
+            putAscii("0.0");
+            return;
+        }
+
+        // Scale to a 15 digit integer: value = mantissa * 10^(exponent - 14)
+        int exponent = (int) Math.floor(Math.log10(value));
+        long mantissa = Math.round(divideByPowerOfTen(value, exponent - 14));
+        if (mantissa >= 1_000_000_000_000_000L) {
+            // log10 rounded down too far, or rounding carried into a 16th digit
+            mantissa = Math.round(mantissa / 10.0);
+            exponent++;
+        } else if (mantissa < 100_000_000_000_000L) {
+            mantissa = Math.round(divideByPowerOfTen(value, exponent - 15));
+            exponent--;
+        }
+        for (int i = 14; i >= 0; i--) {
+            digits[i] = (byte) ('0' + mantissa % 10);
+            mantissa /= 10;
+        }
+        int last = 14;
+        while (last > 0 && digits[last] == '0') {
+            last--;
+        }
+
+        if (exponent >= -3 && exponent < 7) {
+            if (exponent < 0) {
+                putAscii("0.");
+                for (int i = -1; i > exponent; i--) {
+                    current.put((byte) '0');
+                }
+                current.put(digits, 0, last + 1);
+            } else {
+                current.put(digits, 0, exponent + 1);
+                current.put((byte) '.');
+                if (last > exponent) {
+                    current.put(digits, exponent + 1, last - exponent);
+                } else {
+                    current.put((byte) '0');
+                }
+            }
+        } else {
+            current.put(digits[0]);
+            current.put((byte) '.');
+            if (last > 0) {
+                current.put(digits, 1, last);
+            } else {
+                current.put((byte) '0');
+            }
+            current.put((byte) 'E');
+            putLong(exponent);
+        }
+    }
+
+    /**
+     * Divides by 10^power, scaling tiny values first so that 10^power does not underflow to zero.
+     */
+    private static double divideByPowerOfTen(double value, int power) {
+        if (power < -300) {
+            return value * 1e100 / Math.pow(10, power + 100);
+        }
+        return value / Math.pow(10, power);
+    }
+
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            current.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * RootBlock is the copy of a solved batch that a caller hands to the writer thread: the index of the first equation
+     * and real1, imag1, real2 and imag2 of every equation, interleaved. Blocks are reused and grow to the largest
+     * batch.
+     */
+    private static final class RootBlock {
+        private long firstIndex;
+        private int size;
+        private double[] roots = new double[0];
+
+        void copy(EquationBatch batch) {
+            firstIndex = batch.getFirstIndex();
+            size = batch.size();
+            if (roots.length < 4 * size) {
+                roots = new double[4 * size];
+            }
+            for (int i = 0; i < size; i++) {
+                roots[4 * i] = batch.getReal1(i);
+                roots[4 * i + 1] = batch.getImag1(i);
+                roots[4 * i + 2] = batch.getReal2(i);
+                roots[4 * i + 3] = batch.getImag2(i);
+            }
+        }
+    }
+}
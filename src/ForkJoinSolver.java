@@ -0,0 +1,253 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ForkJoinSolver class is an alternative to MasterThread and SlaveThread. Instead of passing equations one at a
+ * time through a buffer, it stores all coefficients in primitive arrays and lets a work-stealing ForkJoinPool solve
+ * them in chunks. Chunks are split further only while other workers are short of work, so the chunk size adapts to
+ * the input size and to how busy the pool is.
+ */
+public class ForkJoinSolver {
+    private static final int MIN_CHUNK = 256;   // Chunks are never split below this many equations
+
+    private final int parallelism;      // Number of worker threads in the pool
+    private final long numCoefficients; // Number of quadratic coefficients to process
+    private final boolean is30Equations;    // Flag indicating whether to print the roots
+    private final CoefficientGenerator generator;   // Random coefficients, the same generator gives the same inputs as MasterThread
+    private final MasterThread.ThreadStats[] threadStats;   // Statistics for each worker thread
+    private final boolean offHeap;      // Whether coefficients and roots are kept in an OffHeapEquationStore
+    private double[] a, b, c, real1, imag1, real2, imag2;  // Heap columns while a heap job runs
+    private OffHeapEquationStore store; // Off-heap columns while an off-heap job runs
+    private long solvedCount;           // Equations the workers reported solving in the last job
+
+    /**
+     * Constructor for ForkJoinSolver.
+     *
+     * @param parallelism     The number of worker threads in the ForkJoinPool.
+     * @param numCoefficients The total number of sets of coefficients to solve with.
+     * @param is30Equations   A flag indicating whether to print the roots of each equation.
+     * @param seed            The seed for the random coefficients.
+     */
+    public ForkJoinSolver(int parallelism, int numCoefficients, boolean is30Equations, long seed) {
+        this(parallelism, numCoefficients, is30Equations, new CoefficientGenerator(seed, 1), false);
+    }
+
+    /**
+     * Constructor for ForkJoinSolver that can keep the job outside the heap.
+     *
+     * @param parallelism     The number of worker threads in the ForkJoinPool.
+     * @param numCoefficients The total number of sets of coefficients to solve with.
+     * @param is30Equations   A flag indicating whether to print the roots of each equation.
+     * @param generator       The generator of the random coefficients.
+     * @param offHeap         If true, coefficients and roots are kept in an OffHeapEquationStore, which is not limited
+     *                        by the heap size or by the length of an array.
+     */
+    public ForkJoinSolver(int parallelism, long numCoefficients, boolean is30Equations, CoefficientGenerator generator,
+                          boolean offHeap) {
+        if (!offHeap && numCoefficients > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Jobs of " + numCoefficients + " equations need off-heap storage");
+        }
+        this.parallelism = parallelism;
+        this.numCoefficients = numCoefficients;
+        this.is30Equations = is30Equations;
+        this.generator = generator;
+        this.offHeap = offHeap;
+        this.threadStats = new MasterThread.ThreadStats[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            threadStats[i] = new MasterThread.ThreadStats();
+        }
+    }
+
+    /**
+     * Generates the coefficients, solves them on a ForkJoinPool and prints the same output as MasterThread: the roots
+     * when 30 equations are solved, otherwise the statistics of each worker thread.
+     */
+    public void start() {
+        if (offHeap) {
+            // Freed as soon as the job ends, so the direct memory is back before the next job allocates
+            try (OffHeapEquationStore offHeapStore = new OffHeapEquationStore(numCoefficients)) {
+                store = offHeapStore;
+                run();
+            } finally {
+                store = null;
+            }
+        } else {
+            int n = (int) numCoefficients;
+            a = new double[n];
+            b = new double[n];
+            c = new double[n];
+            real1 = new double[n];
+            imag1 = new double[n];
+            real2 = new double[n];
+            imag2 = new double[n];
+            try {
+                run();
+            } finally {
+                a = b = c = real1 = imag1 = real2 = imag2 = null;
+            }
+        }
+    }
+
+    /**
+     * Generates, solves and reports on the job in the storage that start() allocated.
+     */
+    private void run() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long startTime;
+        long endTime;
+        try {
+            generate(pool);
+            solvedCount = -countSolved();
+            startTime = System.nanoTime();
+            pool.invoke(new SolveTask(0, numCoefficients));
+            endTime = System.nanoTime();
+        } finally {
+            pool.shutdown();
+        }
+
+        if (is30Equations) {
+            for (int i = 0; i < numCoefficients; i++) {
+                if (store != null) {
+                    System.out.println("Root: " + store.getReal1(i) + " + " + store.getImag1(i) + "i");
+                } else {
+                    System.out.println("Root: " + real1[i] + " + " + imag1[i] + "i");
+                }
+            }
+        }
+
+        System.out.println("----------------------------------------------------------");
+        solvedCount += countSolved();
+        System.out.println("All equations have been solved. Total solved: " + solvedCount);
+
+        if (!is30Equations) {
+            long totalTime = (endTime - startTime) / 1_000_000;
+            for (int i = 0; i < parallelism; i++) {
+                System.out.printf("Worker %d processed %d equations\n", i, threadStats[i].getEquationsProcessed());
+                System.out.println("Solve time: " + threadStats[i].getSolveTime());
+                System.out.println("----------------------------------");
+            }
+            System.out.printf("\nTotal time taken: %d milliseconds\n", totalTime);
+            if (store != null) {
+                System.out.printf("Off-heap storage: %d bytes\n", store.getFootprintBytes());
+            }
+            System.out.println(QuadraticEquation.getTierSummary());
+        }
+    }
+
+    /**
+     * Gets the number of equations the worker threads solved in the last job, counted as they solve them.
+     *
+     * @return The count, which equals the size of the job once it has been solved.
+     */
+    long getSolvedCount() {
+        return solvedCount;
+    }
+
+    /**
+     * Adds up the equations every worker thread has solved so far.
+     *
+     * @return The total over all jobs this solver ran.
+     */
+    private long countSolved() {
+        long count = 0;
+        for (MasterThread.ThreadStats stats : threadStats) {
+            count += stats.getEquationsProcessed();
+        }
+        return count;
+    }
+
+    /**
+     * Generates the coefficients on the pool, one task per producer of the generator. Each producer fills its own
+     * blocks from its own stream, so the coefficients are the same as MasterThread generates from the same generator.
+     *
+     * @param pool The pool to generate on.
+     */
+    private void generate(ForkJoinPool pool) {
+        SplittableRandom[] streams = generator.newStreams();
+        List<ForkJoinTask<?>> producers = new ArrayList<>();
+        for (int p = 0; p < streams.length; p++) {
+            int producer = p;
+            producers.add(pool.submit(() -> {
+                generator.forEachBlock(producer, numCoefficients, (first, length) -> {
+                    if (store != null) {
+                        generator.fill(streams[producer], store, first, length);
+                    } else {
+                        generator.fill(streams[producer], a, b, c, (int) first, length);
+                    }
+                });
+                return null;
+            }));
+        }
+        for (ForkJoinTask<?> producer : producers) {
+            producer.join();
+        }
+    }
+
+    /**
+     * SolveTask solves a range of equations, splitting it in half and forking one half while the range is large and
+     * the current worker has few queued tasks that idle workers could steal.
+     */
+    private class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long offset;
+        private final long length;
+        private SolveTask nextForked;   // Links the tasks forked by the same parent so they can be joined in order
+
+        SolveTask(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        protected void compute() {
+            long remaining = length;
+            long start = offset;
+            SolveTask forked = null;
+
+            // Keep splitting off the right half while the range is large and the local queue is nearly empty
+            while (remaining >= 2 * MIN_CHUNK && getSurplusQueuedTaskCount() <= 3) {
+                long half = remaining >>> 1;
+                SolveTask right = new SolveTask(start + half, remaining - half);
+                right.nextForked = forked;
+                forked = right;
+                right.fork();
+                remaining = half;
+            }
+
+            long solveStart = System.nanoTime();
+            if (store != null) {
+                store.solve(start, remaining);
+            } else {
+                QuadraticEquation.solve(a, b, c, (int) start, (int) remaining, real1, imag1, real2, imag2);
+            }
+            MasterThread.ThreadStats stats = threadStats[workerIndex()];
+            stats.getSolveTime().record((System.nanoTime() - solveStart) / remaining, remaining);
+            stats.addEquationsProcessed(remaining);
+
+            // Join the forked halves, most recent first
+            while (forked != null) {
+                forked.join();
+                forked = forked.nextForked;
+            }
+        }
+    }
+
+    /**
+     * Gets the statistics slot of the current worker thread.
+     *
+     * @return The index into threadStats.
+     */
+    private int workerIndex() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread) {
+            return ((ForkJoinWorkerThread) thread).getPoolIndex() % parallelism;
+        }
+        return 0;
+    }
+}
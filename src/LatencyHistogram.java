@@ -0,0 +1,143 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts durations in nanoseconds in log-linear buckets, in the style of HdrHistogram: every power of
+ * two is split into 32 equal buckets, so a reported value is never more than about 3% above the recorded one, from one
+ * nanosecond up to the largest long. Recording is lock-free and may happen from several threads while another thread
+ * reads percentiles.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS + 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one duration.
+     * @param nanos The duration in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records the same duration several times, for example once for every equation of a batch.
+     * @param nanos The duration in nanoseconds. Negative values are recorded as zero.
+     * @param count The number of times to record it.
+     */
+    public void record(long nanos, long count) {
+        counts.getAndAdd(bucketOf(Math.max(0, nanos)), count);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     * @return The total count.
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the duration that the given percentage of recorded durations do not exceed.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest value of the bucket holding the percentile, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKETS - 1);
+    }
+
+    /**
+     * Gets the largest recorded duration, rounded up to the top of its bucket.
+     * @return The maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds every count of another histogram to this one.
+     * @param other The histogram to merge in.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+    }
+
+    /**
+     * Creates a histogram of what was recorded here since an earlier copy of this histogram was taken.
+     * @param earlier A copy of this histogram taken earlier.
+     * @return A new histogram with the difference of the counts.
+     */
+    public LatencyHistogram since(LatencyHistogram earlier) {
+        LatencyHistogram interval = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            interval.counts.set(i, counts.get(i) - earlier.counts.get(i));
+        }
+        return interval;
+    }
+
+    /**
+     * Creates a copy of the current counts.
+     * @return The copy.
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Describes the histogram as a count and the p50, p99, p99.9 and max values in microseconds.
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.2fus p99=%.2fus p99.9=%.2fus max=%.2fus", getCount(),
+                getValueAtPercentile(50) / 1e3, getValueAtPercentile(99) / 1e3,
+                getValueAtPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (top + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
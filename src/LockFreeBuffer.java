@@ -0,0 +1,78 @@
+/**
+ * LockFreeBuffer is a SolverBuffer that keeps each ring in its own lock-free RingQueue. Producers and consumers of
+ * different rings never contend with each other, and waiting threads follow a WaitStrategy instead of being woken
+ * together by notifyAll().
+ */
+public class LockFreeBuffer implements SolverBuffer {
+    private final RingQueue<QuadraticEquation> equations;
+    private final RingQueue<Complex> roots;
+    private final RingQueue<SolverBatch> batches;
+    private final RingQueue<SolverBatch> solvedBatches;
+
+    /**
+     * Constructs a lock-free buffer.
+     * @param capacity     The minimum number of cells in each ring, rounded up to a power of two.
+     * @param waitStrategy What a thread does while a ring is full or empty.
+     */
+    public LockFreeBuffer(int capacity, WaitStrategy waitStrategy) {
+        this.equations = new RingQueue<>(capacity, waitStrategy);
+        this.roots = new RingQueue<>(capacity, waitStrategy);
+        this.batches = new RingQueue<>(capacity, waitStrategy);
+        this.solvedBatches = new RingQueue<>(capacity, waitStrategy);
+    }
+
+    @Override
+    public void blockingPutEquation(QuadraticEquation equation) throws InterruptedException {
+        equations.put(equation);
+    }
+
+    @Override
+    public QuadraticEquation blockingGetEquation() throws InterruptedException {
+        return equations.take();
+    }
+
+    @Override
+    public void blockingPutRoots(Complex roots) throws InterruptedException {
+        this.roots.put(roots);
+    }
+
+    @Override
+    public Complex blockingGetRoots() throws InterruptedException {
+        return roots.take();
+    }
+
+    @Override
+    public void blockingPutBatch(SolverBatch batch) throws InterruptedException {
+        batches.put(batch);
+    }
+
+    @Override
+    public SolverBatch blockingGetBatch() throws InterruptedException {
+        return batches.take();
+    }
+
+    @Override
+    public void blockingPutSolvedBatch(SolverBatch batch) throws InterruptedException {
+        solvedBatches.put(batch);
+    }
+
+    @Override
+    public SolverBatch blockingGetSolvedBatch() throws InterruptedException {
+        return solvedBatches.take();
+    }
+
+    @Override
+    public int getPendingEquations() {
+        return equations.size() + batches.size();
+    }
+
+    @Override
+    public int getPendingResults() {
+        return roots.size() + solvedBatches.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return equations.capacity();
+    }
+}
@@ -1,12 +1,51 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 /**
  * The Main class represents the starting point for the quadratic equation solver application.
  * It prompts the user to choose between generating and solving roots for 30 or 3000 randomly generated sets of coefficients.
  * The user's choice determines the number of equations to be solved concurrently by the application.
+ * Command-line options such as --batch-size=N are described in {@link SolverOptions}.
  */
 public class Main {
     public static void main(String[] args) throws InterruptedException {
+        SolverOptions options = SolverOptions.parse(args);
+        if (options.getCheckpoint() != null && (options.getConnect() != null || options.getJobs() > 0
+                || options.getEngine().equals("forkjoin"))) {
+            throw new IllegalArgumentException("--checkpoint journals a single job of the threads engine, it works "
+                    + "without --connect, --jobs and --engine=forkjoin");
+        }
+        // Every batch from here on, local or for a remote master, is solved with the selected kernel
+        QuadraticEquation.useKernel(options.createKernel());
+        if (options.getConnect() != null) {
+            // Work for a remote master instead of solving a job of our own
+            String connect = options.getConnect();
+            int colon = connect.lastIndexOf(':');
+            try {
+                new RemoteWorker(connect.substring(0, colon), Integer.parseInt(connect.substring(colon + 1)),
+                        options.getThreads()).start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        if (options.getInput() != null) {
+            // Solve the coefficients from the file instead of asking for a number of random equations
+            new MasterThread(options.createBuffer(), options.getThreads(), 0, false, options).start();
+            return;
+        }
+        if (options.getJobs() > 0) {
+            // Solve several jobs on the same warm slave threads
+            solveJobs(options);
+            return;
+        }
+        if (options.getCount() > 0) {
+            // Solve the given number of random equations instead of asking
+            solveCount(options);
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
 
         int choice;
@@ -29,11 +68,82 @@ public class Main {
 
         }
 
-        // Create and start the MasterThread based on the user's choice
-        MasterThread masterThread = MasterThread.getMasterThread(choice);
-        masterThread.start();
+        // Create and start the engine based on the user's choice
+        if (options.getEngine().equals("forkjoin")) {
+            int numCoefficients = choice == 1 ? 30 : 3000;
+            ForkJoinSolver solver = new ForkJoinSolver(options.getThreads(), numCoefficients, choice == 1,
+                    options.createGenerator(), options.getStorage().equals("off-heap"));
+            solver.start();
+        } else {
+            MasterThread masterThread = MasterThread.getMasterThread(choice, options);
+            masterThread.start();
+        }
 
         scanner.close();
     }
 
+    /**
+     * Solves the number of random equations given by --count with the selected engine and prints the statistics.
+     * @param options The command-line options.
+     * @throws InterruptedException If the thread is interrupted while waiting for the slave threads.
+     */
+    private static void solveCount(SolverOptions options) throws InterruptedException {
+        long count = options.getCount();
+        if (options.getDegree() != 2 && options.getEngine().equals("forkjoin")) {
+            throw new IllegalArgumentException("--degree runs on the threads engine, use --batch-size");
+        }
+        if (options.getEngine().equals("forkjoin")) {
+            new ForkJoinSolver(options.getThreads(), count, false, options.createGenerator(),
+                    options.getStorage().equals("off-heap")).start();
+        } else {
+            if (count > Integer.MAX_VALUE || options.getStorage().equals("off-heap")) {
+                throw new IllegalArgumentException("The threads engine solves at most " + Integer.MAX_VALUE
+                        + " equations and keeps them on the heap, use --engine=forkjoin");
+            }
+            new MasterThread(options.createBuffer(), options.getThreads(), (int) count, false, options).start();
+        }
+    }
+
+    /**
+     * Solves the number of jobs given by --jobs, each of --count random equations (3000 if not given), one after the
+     * other on one SolverService, and prints the statistics of every job and of every slave thread.
+     * @param options The command-line options.
+     * @throws InterruptedException If the thread is interrupted while waiting for a job.
+     */
+    private static void solveJobs(SolverOptions options) throws InterruptedException {
+        long count = options.getCount() > 0 ? options.getCount() : 3000;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A job holds at most " + Integer.MAX_VALUE + " equations");
+        }
+        CoefficientGenerator generator = options.createGenerator();
+        SplittableRandom random = generator.newStreams()[0];
+        double[] a = new double[(int) count];
+        double[] b = new double[(int) count];
+        double[] c = new double[(int) count];
+
+        long startTime = System.nanoTime();
+        SolverService service = new SolverService(options.createLocalBuffer(), options.getThreads(), options);
+        try {
+            for (int job = 0; job < options.getJobs(); job++) {
+                generator.fill(random, a, b, c, 0, (int) count);
+                System.out.println(service.submit(a, b, c).await());
+            }
+        } finally {
+            service.close();
+        }
+        long totalTime = System.nanoTime() - startTime;
+
+        System.out.println("----------------------------------------------------------");
+        System.out.printf("Solved %d jobs, %d equations, on %d slave threads started once\n",
+                service.getJobsSubmitted(), service.getSolvedCount(), options.getThreads());
+        MasterThread.ThreadStats[] threadStats = service.getThreadStats();
+        for (int i = 0; i < threadStats.length; i++) {
+            System.out.printf("Thread %d processed %d equations\n", i, threadStats[i].getEquationsProcessed());
+            System.out.println("Solve time: " + threadStats[i].getSolveTime());
+        }
+        System.out.printf("\nTotal time taken: %d milliseconds\n", totalTime / 1_000_000);
+        System.out.println("End-to-end: " + service.getLatency());
+        System.out.println(QuadraticEquation.getTierSummary());
+    }
+
 }
\ No newline at end of file
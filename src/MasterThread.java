@@ -1,21 +1,60 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
 
 /**
  * The MasterThread class is responsible for the execution of slave threads to solve quadratic equations.
  * It manages the buffer, slave threads, and provides statistics about the computation of individual threads.
  */
 public class MasterThread {
-    private final Buffer buffer;    // Buffer to hold equations and their roots
+    private final BatchBuffer buffer;     // Buffer to hold equations and their roots
+    private final SolverBuffer local;     // The same buffer if slave threads of this process solve, null for workers
     private final int numThreads;   // Number of slave threads
     private final int numCoefficients;  // Number of quadratic coefficients to process
-    private final CountDownLatch latch; // Countdown latch to synchronize the completion of slave threads
+    private final CountDownLatch latch; // Counted down once by every slave thread as it exits
     private final AtomicInteger solvedCount = new AtomicInteger(0); // Atomic counter to track total number of equations solved for
     private final ThreadStats[] threadStats;    // Array to hold statistics for each slave thread
     private final boolean is30Equations;    // Flag indicating whether to print additional information or not
+    private final int batchSize;    // Number of equations moved per batch, or 0 to move single QuadraticEquation objects
+    private final int window;   // Number of submissions kept in flight through an EquationSolver, or 0 for lockstep
+    private final CoefficientGenerator generator;   // Generates the random coefficients on one or more producers
+    private final String input; // Coefficient file to solve, or null to generate random coefficients
+    private final int readers;  // Number of threads reading the coefficient file
+    private final String output;    // File the roots are written to, or null to not write them
+    private final FileResultSink.Format outputFormat;   // Format of the output file
+    private ResultSink<EquationBatch> sink;    // Receives solved batches while a run is writing roots to a file
+    private final String checkpointPath;    // Journal of solved batches to resume from, or null to not checkpoint
+    private final int checkpointEvery;  // Equations collected before the journal is written and forced to disk
+    private final String jobDescription;    // Decides the fingerprint that ties the journal to this job
+    private CheckpointJournal checkpoint;   // Journal of the running job, or null while not checkpointing
+    private Consumer<SolverBatch> results;  // Receives every solved batch: the journal, the output file, both or none
+    private final boolean virtualThreads;   // Whether slave threads run on virtual threads instead of a fixed pool
+    private final RootCache cache;  // Cache of roots shared by the slave threads, or null to solve every equation
+    private final int workers;  // Remote workers to wait for when the buffer is a DistributedBuffer
+    private final long reportInterval;  // Milliseconds between metrics snapshots, or 0 for only the final report
+    private final LatencyHistogram endToEnd = new LatencyHistogram();   // Submit-to-result latency of every equation
+    private final int degree;   // Degree of the random polynomials, 2 for quadratic equations
 
 
     /**
@@ -27,8 +66,9 @@ public class MasterThread {
      * @param is30Equations   A flag indicating whether to print additional information specifically for if 30 equations
      *                        are to be processed.
      */
-    public MasterThread(Buffer buffer, int numThreads, int numCoefficients, boolean is30Equations) {
+    public MasterThread(SolverBuffer buffer, int numThreads, int numCoefficients, boolean is30Equations) {
         this.buffer = buffer;
+        this.local = buffer;
         this.numThreads = numThreads;
         this.numCoefficients = numCoefficients;
         this.latch = new CountDownLatch(numThreads);
@@ -37,79 +77,609 @@ public class MasterThread {
             threadStats[i] = new ThreadStats();
         }
         this.is30Equations = is30Equations;
+        this.batchSize = 0;
+        this.window = 0;
+        this.generator = new CoefficientGenerator(new Random().nextLong(), 1);
+        this.input = null;
+        this.readers = 1;
+        this.output = null;
+        this.outputFormat = FileResultSink.Format.TEXT;
+        this.virtualThreads = false;
+        this.cache = null;
+        this.workers = 1;
+        this.reportInterval = 0;
+        this.degree = 2;
+        this.checkpointPath = null;
+        this.checkpointEvery = 0;
+        this.jobDescription = null;
+    }
 
+    /**
+     * Constructor for MasterThread that takes the command-line options selecting how equations are moved and solved.
+     *
+     * @param buffer          The buffer for quadratic equations and their roots. A buffer that is not a SolverBuffer,
+     *                        such as a DistributedBuffer, only moves batches and is solved outside this process.
+     * @param numThreads      The number of slave threads to be used to solve the quadratic equations.
+     * @param numCoefficients The total number of sets of coefficients to solve with.
+     * @param is30Equations   A flag indicating whether to print additional information specifically for if 30 equations
+     *                        are to be processed.
+     * @param options         The options, such as the batch size and the in-flight window.
+     */
+    public MasterThread(BatchBuffer buffer, int numThreads, int numCoefficients, boolean is30Equations,
+                        SolverOptions options) {
+        this.buffer = buffer;
+        this.local = buffer instanceof SolverBuffer ? (SolverBuffer) buffer : null;
+        this.numThreads = numThreads;
+        this.numCoefficients = numCoefficients;
+        this.latch = new CountDownLatch(numThreads);
+        this.threadStats = new ThreadStats[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threadStats[i] = new ThreadStats();
+        }
+        this.is30Equations = is30Equations;
+        this.batchSize = options.getBatchSize();
+        this.window = options.getWindow();
+        this.generator = options.createGenerator();
+        this.input = options.getInput();
+        this.readers = options.getReaders();
+        this.output = options.getOutput();
+        this.outputFormat = options.getOutputFormat();
+        if (output != null && batchSize == 0 && input == null) {
+            throw new IllegalArgumentException("--output needs --batch-size or --input, single equations only carry one root");
+        }
+        this.virtualThreads = options.getExecutor().equals("virtual");
+        this.cache = options.createCache();
+        this.workers = options.getWorkers();
+        if (local == null && batchSize == 0 && window == 0 && input == null) {
+            throw new IllegalArgumentException("Distributed mode only moves batches, use --batch-size, --window or --input");
+        }
+        this.reportInterval = options.getReportInterval();
+        this.degree = options.getDegree();
+        if (degree != 2 && (batchSize == 0 || input != null || output != null || cache != null
+                || buffer instanceof DistributedBuffer)) {
+            throw new IllegalArgumentException("--degree needs --batch-size, and works without --input, --output, "
+                    + "--cache and --listen, which only handle quadratic equations");
+        }
+        this.checkpointPath = options.getCheckpoint();
+        this.checkpointEvery = options.getCheckpointEvery();
+        this.jobDescription = options.describeJob(numCoefficients);
+        if (checkpointPath != null && batchSize == 0 && input == null) {
+            throw new IllegalArgumentException("--checkpoint needs --batch-size or --input, single equations are not journaled");
+        }
     }
 
     /**
      * Starts the MasterThread. This method creates an executor service with a fixed number of threads. It generates
      * random coefficients for quadratic equations and adds them to the equation buffer. Launches slave threads to
-     * solve the quadratic equations concurrently. It waits for all slave threads to finish their processing using a
-     * CountDownLatch and measures the total time taken to solve all equations. It then shuts down the executor service,
-     * allowing time for threads to complete their tasks.
+     * solve the quadratic equations concurrently and measures the total time taken to solve all equations. Once every
+     * root has arrived it puts one poison pill per slave thread into the buffer, waits on the CountDownLatch until all
+     * of them have left their loops, and then shuts the executor service down.
      * Prints the total number of equations solved and, if 30 equations were solved, the roots for each equation.
      * If 3000 equations it prints statistics for each thread.
+     * If the run fails part way, the slave threads are interrupted and the journal, the output file, the reporter and
+     * the monitor are closed before the error is thrown, so a failed run does not leave the JVM hanging.
      *
      * @throws InterruptedException Throws if the thread is interrupted while waiting for slave threads to finish.
      */
     public void start() throws InterruptedException {
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        // A DistributedBuffer is served by remote workers instead of local slave threads
+        DistributedBuffer distributed = buffer instanceof DistributedBuffer ? (DistributedBuffer) buffer : null;
+        ExecutorService executor = null;
+        MetricsReporter reporter = null;
+        SolverMonitor monitor = null;
+        boolean finished = false;
+        try {
+            // Open the journal before the output file and before any thread starts, so a journal of another job fails
+            // the run straight away and leaves the output of the earlier run alone
+            if (checkpointPath != null) {
+                openCheckpoint();
+            }
+            if (output != null) {
+                try {
+                    sink = new FileResultSink(Path.of(output), outputFormat, 1 << 20, 8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            results = sink != null ? this::writeRoots : null;
+            if (checkpoint != null) {
+                replayCheckpoint();
+            }
 
-        long startTime = System.currentTimeMillis();    // For keeping track of the total time to calculate all equations
+            if (distributed != null) {
+                System.out.println("Waiting for " + workers + " workers on port " + distributed.getPort());
+                distributed.awaitWorkers(workers);
+            }
+            int localThreads = distributed != null ? 0 : numThreads;
+            executor = virtualThreads ? newVirtualThreadExecutor()
+                    : Executors.newFixedThreadPool(Math.max(1, localThreads));
 
-        // Launch slave threads to solve equations
-        for (int i = 0; i < numThreads; i++) {
-            executor.execute(new SlaveThread(buffer, solvedCount, latch, i, threadStats));
-        }
+            long startTime = System.nanoTime();    // For keeping track of the total time to calculate all equations
+            reporter = new MetricsReporter(threadStats,
+                    distributed != null ? distributed::getSolvedEquations : solvedCount::get, endToEnd, buffer,
+                    reportInterval, System.out);
+            reporter.start();
+            monitor = SolverMonitor.register("MasterThread", buffer, Arrays.copyOf(threadStats, localThreads),
+                    distributed != null ? distributed::getSolvedEquations : solvedCount::get);
 
+            // Launch slave threads to solve equations
+            boolean batchMode = batchSize > 0 || window > 0 || input != null;
+            for (int i = 0; i < localThreads; i++) {
+                executor.execute(new SlaveThread(local, solvedCount, latch, i, threadStats, batchMode, cache));
+            }
 
-        // Adds random coefficients to the equation buffer to be solved
-        Random random = new Random();
-        for (int i = 0; i < numCoefficients; i++) {
-            double a = random.nextDouble() * 10 - 5;
-            double b = random.nextDouble() * 10 - 5;
-            double c = random.nextDouble() * 10 - 5;
-            // Add an equation to the equation buffer
-            buffer.blockingPutEquation(new QuadraticEquation(a, b, c));
-            Complex root = buffer.blockingGetRoots();
-            if (root != null) {
-                if (is30Equations) {
-                    System.out.println("Root: " + root);
+
+            // Adds random coefficients to the equation buffer to be solved
+            if (input != null) {
+                solveFromFile();
+            } else if (window > 0) {
+                solvePipelined();
+            } else if (batchSize > 0) {
+                solveInBatches();
+            } else if (generator.getProducers() > 1) {
+                solveWithProducers();
+            } else {
+                SplittableRandom random = generator.newStreams()[0];
+                for (int i = 0; i < numCoefficients; i++) {
+                    QuadraticEquation equation = generator.next(random);
+                    // Add an equation to the equation buffer
+                    long submitted = System.nanoTime();
+                    local.blockingPutEquation(equation);
+                    Complex root = local.blockingGetRoots();
+                    endToEnd.record(System.nanoTime() - submitted);
+                    if (root != null) {
+                        if (is30Equations) {
+                            System.out.println("Root: " + root);
+                        }
+                    }
+                }
+            }
+            if (checkpoint != null) {
+                // Force the last solved batches to disk before the output file is complete
+                try {
+                    checkpoint.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (sink != null) {
+                // Flush the remaining roots so the total time includes writing them
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            long endTime = System.nanoTime();
+            reporter.stop();
+            monitor.close();
+
+            System.out.println("----------------------------------------------------------");
+            if (distributed != null) {
+                // Disconnecting makes the workers exit
+                distributed.close();
+                System.out.println("All equations have been solved. Total solved: " + distributed.getSolvedEquations());
+                for (String summary : distributed.getWorkerSummaries()) {
+                    System.out.println(summary);
+                }
+            } else {
+                System.out.println("All equations have been solved. Total solved: " + solvedCount.get());
+                // Every equation has been solved, so the poison pills are the only work left in the buffer
+                for (int i = 0; i < localThreads; i++) {
+                    if (batchMode) {
+                        buffer.blockingPutBatch(SlaveThread.POISON_BATCH);
+                    } else {
+                        local.blockingPutEquation(SlaveThread.POISON_EQUATION);
+                    }
+                }
+                latch.await();  // Wait for all slave threads to exit
+            }
+
+
+            executor.shutdown();    // Shut down the executor, its threads are already idle
+            System.out.println("\nExecutorService shutdown initiated\n");
+            if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Executor terminated");
+            }
+
+            // Print thread statistics if number of equations is set to be 3000
+            if (!is30Equations) {
+
+                long totalTime = endTime - startTime;   // Calculate total time taken to process all equations
+                for (int i = 0; i < localThreads; i++) {
+
+                    // Print how many equations a specific thread processed
+                    System.out.printf("Thread %d processed %d equations\n", i, threadStats[i].getEquationsProcessed());
+                    // Print the distribution of that thread's time to solve an equation
+                    System.out.println("Solve time: " + threadStats[i].getSolveTime());
+                    System.out.println("----------------------------------");
+
+                }
+
+                System.out.printf("\nTotal time taken: %d milliseconds\n", totalTime / 1_000_000);
+                reporter.printReport(totalTime);
+                if (degree != 2) {
+                    System.out.printf("Throughput at degree %d: %.0f polynomials/s\n", degree,
+                            remainingCoefficients() * 1e9 / totalTime);
+                }
+                if (cache != null) {
+                    System.out.println("Root cache: " + cache);
+                }
+                if (distributed == null && degree == 2) {
+                    // Remote equations are counted by the workers
+                    if (batchMode) {
+                        System.out.println("Batch kernel: " + QuadraticEquation.getKernelName());
+                    }
+                    System.out.println(QuadraticEquation.getTierSummary());
+                }
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                abort(executor, reporter, monitor, distributed);
+            }
+        }
+    }
+
+    /**
+     * Releases everything a run that failed part way has started, so that the slave threads, the writer threads and
+     * the workers do not keep the JVM alive. Slave threads are interrupted instead of poisoned, because the buffer
+     * may still be full of work nobody is collecting. Errors while closing are dropped, as the run has already failed.
+     *
+     * @param executor    The executor of the slave threads, or null if it was not created.
+     * @param reporter    The metrics reporter, or null if it was not created.
+     * @param monitor     The JMX monitor, or null if it was not registered.
+     * @param distributed The buffer of the remote workers, or null when solving locally.
+     */
+    private void abort(ExecutorService executor, MetricsReporter reporter, SolverMonitor monitor,
+                       DistributedBuffer distributed) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (reporter != null) {
+            reporter.stop();
+        }
+        if (monitor != null) {
+            monitor.close();
+        }
+        if (distributed != null) {
+            distributed.close();
+        }
+        for (Closeable closeable : new Closeable[] {checkpoint, sink}) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException | UncheckedIOException e) {
+                    // The run has already failed with the error that matters
                 }
             }
         }
+    }
+
+    /**
+     * Opens the checkpoint journal. When it holds batches of an earlier run of the same job, the producers skip them.
+     */
+    private void openCheckpoint() {
+        try {
+            String description = jobDescription;
+            if (input != null) {
+                // Batches only line up again if the file is unchanged
+                description += ",bytes=" + Files.size(Path.of(input));
+            }
+            // Roots are only journaled when the output file has to be rebuilt from them
+            checkpoint = new CheckpointJournal(Path.of(checkpointPath), CheckpointJournal.fingerprint(description),
+                    journalBatchSize(), checkpointEvery, output != null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (checkpoint.getResumedEquations() > 0) {
+            System.out.println("Resuming: " + checkpoint.getResumedEquations() + " equations already solved in "
+                    + checkpointPath);
+        }
+    }
 
-        long endTime = System.currentTimeMillis();
+    /**
+     * Sends every solved batch through the checkpoint journal. If roots are written to a file, the roots of an earlier
+     * run are replayed into it first, so the file still holds every root.
+     */
+    private void replayCheckpoint() {
+        if (sink != null && checkpoint.getResumedEquations() > 0) {
+            try {
+                checkpoint.replay(journalBatchSize(), sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        results = sink != null ? checkpoint.andThen(this::writeRoots) : checkpoint;
+    }
 
-        System.out.println("----------------------------------------------------------");
-        System.out.println("All equations have been solved. Total solved: " + solvedCount.get());
+    /**
+     * Gets the largest batch the checkpoint journal records, which is the batch size of file mode when none is given.
+     *
+     * @return The number of equations.
+     */
+    private int journalBatchSize() {
+        return batchSize > 0 ? batchSize : 1024;
+    }
 
-        latch.await();  // Wait for all slave threads to finish
+    /**
+     * Gets the number of equations this run has to solve, leaving out those a resumed checkpoint already holds.
+     *
+     * @return The number of equations left.
+     */
+    private long remainingCoefficients() {
+        return checkpoint != null ? numCoefficients - checkpoint.getResumedEquations() : numCoefficients;
+    }
 
+    /**
+     * Checks whether a batch was solved by an earlier run of a resumed checkpoint.
+     *
+     * @param batch The batch, filled with its equations.
+     * @return True if the batch must not be solved again.
+     */
+    private boolean isCheckpointed(SolverBatch batch) {
+        return checkpoint != null && checkpoint.isCompleted(batch.getFirstIndex(), batch.size());
+    }
 
-        executor.shutdownNow();    // Shut down the executor
-        System.out.println("\nExecutorService shutdown initiated\n");
-        if (executor.isShutdown()) {
-            System.out.println("Executor terminated");
+    /**
+     * Writes the roots of a solved batch to the output file. --output needs degree 2, so every batch holds quadratic
+     * equations.
+     *
+     * @param batch The solved batch.
+     */
+    private void writeRoots(SolverBatch batch) {
+        sink.accept((EquationBatch) batch);
+    }
+
+    /**
+     * Creates an empty batch of the configured batch size, holding quadratic equations or polynomials of the configured
+     * degree.
+     *
+     * @return A new batch.
+     */
+    private SolverBatch newBatch() {
+        return degree == 2 ? new EquationBatch(batchSize) : new PolynomialBatch(degree, batchSize);
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task. Virtual threads were added in Java 21,
+     * so the factory method is looked up at runtime and this project still compiles on older JDKs.
+     *
+     * @return An executor that runs each task on its own virtual thread.
+     * @throws UnsupportedOperationException If the running JVM has no virtual threads.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * File mode producer. Reads the coefficients from the input file with several reader threads and submits them in
+     * batches through an EquationSolver, so the whole file is solved without holding it in memory.
+     *
+     * @throws InterruptedException Throws if the thread is interrupted while waiting for the readers.
+     */
+    private void solveFromFile() throws InterruptedException {
+        int fileBatchSize = batchSize > 0 ? batchSize : 1024;
+        try (EquationSolver solver = new EquationSolver(buffer, readers * CoefficientFile.BATCHES_PER_READER,
+                endToEnd)) {
+            long read = new CoefficientFile(Path.of(input)).solve(solver, readers, fileBatchSize,
+                    results != null ? results : batch -> { }, checkpoint);
+            System.out.println("Read " + read + " equations from " + input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pipelined producer loop. The producers submit equations through an EquationSolver so that up to the configured
+     * window of submissions is in flight at once, instead of waiting for each root before sending the next equation.
+     * Equations are submitted one at a time, or in batches of the configured batch size. Roots are printed in input
+     * order when 30 equations are solved.
+     *
+     * @throws InterruptedException Throws if the thread is interrupted while waiting for the window.
+     */
+    private void solvePipelined() throws InterruptedException {
+        List<CompletableFuture<Complex>> roots = new ArrayList<>();
+        if (is30Equations) {
+            roots.addAll(Collections.nCopies(numCoefficients, null));
+        }
+        try (EquationSolver solver = new EquationSolver(buffer, window, endToEnd)) {
+            runProducers((producer, random) -> generator.forEachBlock(producer, numCoefficients, (first, length) -> {
+                if (batchSize > 0) {
+                    for (long start = first; start < first + length; start += batchSize) {
+                        SolverBatch batch = newBatch();
+                        generator.fill(random, batch, start, (int) Math.min(batchSize, first + length - start));
+                        if (isCheckpointed(batch)) {
+                            continue;
+                        }
+                        CompletableFuture<SolverBatch> solved = solver.submitBatch(batch);
+                        if (results != null) {
+                            solved.thenAccept(results);
+                        }
+                        if (is30Equations) {
+                            for (int i = 0; i < batch.size(); i++) {
+                                int index = i;
+                                roots.set((int) start + i,
+                                        solved.thenApply(b -> new Complex(b.getRootReal(index, 0),
+                                                b.getRootImag(index, 0))));
+                            }
+                        }
+                    }
+                } else {
+                    for (long i = first; i < first + length; i++) {
+                        CompletableFuture<Complex> root = solver.submit(generator.next(random));
+                        if (is30Equations) {
+                            roots.set((int) i, root);
+                        }
+                    }
+                }
+            }));
+
+            // Wait until everything that was submitted has been solved
+            solver.drain();
         }
 
-        // Print thread statistics if number of equations is set to be 3000
-        if (!is30Equations) {
+        for (CompletableFuture<Complex> root : roots) {
+            // Checkpointed batches are not solved again, so they have no roots to print
+            if (root != null) {
+                System.out.println("Root: " + root.join());
+            }
+        }
+    }
 
-            long totalTime = endTime - startTime;   // Calculate total time taken to process all equations
-            for (int i = 0; i < numThreads; i++) {
+    /**
+     * Batch mode producer loop. Every producer owns a fixed pool of EquationBatch objects, together no larger than the
+     * buffer. A producer fills its batches with random coefficients and hands them to the slave threads. The
+     * MasterThread reads every solved batch and gives it back to the producer that owns it to be refilled, so no
+     * objects are created per equation and producers never share a batch.
+     *
+     * @throws InterruptedException Throws if the thread is interrupted while waiting on the buffer.
+     */
+    private void solveInBatches() throws InterruptedException {
+        int producers = generator.getProducers();
+        int poolSize = Math.max(1, buffer.getCapacity() / producers);
+        List<BlockingQueue<SolverBatch>> free = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            BlockingQueue<SolverBatch> pool = new ArrayBlockingQueue<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                pool.add(newBatch());
+            }
+            free.add(pool);
+        }
 
-                // Print how many equations a specific thread processed
-                System.out.printf("Thread %d processed %d equations\n", i, threadStats[i].getEquationsProcessed());
-                // Print out that threads average time to process an equation
-                System.out.printf("Avg Time: %f milliseconds\n", threadStats[i].calcAvgTime(totalTime));
-                System.out.println("----------------------------------");
+        ExecutorService producerThreads = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> running = startProducers(producerThreads, (producer, random) ->
+                    generator.forEachBlock(producer, numCoefficients, (first, length) -> {
+                        for (long start = first; start < first + length; start += batchSize) {
+                            SolverBatch batch = free.get(producer).take();
+                            generator.fill(random, batch, start, (int) Math.min(batchSize, first + length - start));
+                            if (isCheckpointed(batch)) {
+                                free.get(producer).put(batch);
+                                continue;
+                            }
+                            batch.setSubmitNanos(System.nanoTime());
+                            SolverEvents.dispatch(buffer, batch);
+                        }
+                    }));
 
+            // Read solved batches and return them to their producers until every equation has been solved
+            long solved = 0;
+            long remaining = remainingCoefficients();
+            while (solved < remaining) {
+                SolverBatch batch = buffer.blockingGetSolvedBatch();
+                endToEnd.record(System.nanoTime() - batch.getSubmitNanos(), batch.size());
+                solved += batch.size();
+                if (results != null) {
+                    results.accept(batch);
+                }
+                if (is30Equations) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        System.out.println("Root: " + batch.getRootReal(i, 0) + " + " + batch.getRootImag(i, 0) + "i");
+                    }
+                }
+                free.get(generator.producerOf(batch.getFirstIndex())).put(batch);
             }
+            awaitProducers(running);
+        } finally {
+            producerThreads.shutdownNow();
+        }
+    }
 
-            System.out.printf("\nTotal time taken: %d milliseconds\n", totalTime);
+    /**
+     * Single equation loop for more than one producer. The producers put equations into the buffer on their own threads
+     * while the MasterThread takes the roots. Roots arrive in the order they were solved, so unlike the lockstep loop
+     * they are not matched to their equations and no end-to-end latency is recorded.
+     *
+     * @throws InterruptedException Throws if the thread is interrupted while waiting on the buffer.
+     */
+    private void solveWithProducers() throws InterruptedException {
+        ExecutorService producerThreads = Executors.newFixedThreadPool(generator.getProducers());
+        try {
+            List<Future<?>> running = startProducers(producerThreads, (producer, random) ->
+                    generator.forEachBlock(producer, numCoefficients, (first, length) -> {
+                        for (int i = 0; i < length; i++) {
+                            local.blockingPutEquation(generator.next(random));
+                        }
+                    }));
+            for (int i = 0; i < numCoefficients; i++) {
+                Complex root = local.blockingGetRoots();
+                if (root != null && is30Equations) {
+                    System.out.println("Root: " + root);
+                }
+            }
+            awaitProducers(running);
+        } finally {
+            producerThreads.shutdownNow();
         }
     }
 
+    /**
+     * Runs one producer per stream of the generator on its own thread and waits for all of them to finish.
+     *
+     * @param producer What each producer does with its stream.
+     * @throws InterruptedException Throws if the thread is interrupted while waiting for the producers.
+     */
+    private void runProducers(Producer producer) throws InterruptedException {
+        ExecutorService producerThreads = Executors.newFixedThreadPool(generator.getProducers());
+        try {
+            awaitProducers(startProducers(producerThreads, producer));
+        } finally {
+            producerThreads.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts one producer per stream of the generator.
+     *
+     * @param producerThreads The threads to run the producers on.
+     * @param producer        What each producer does with its stream.
+     * @return The running producers.
+     */
+    private List<Future<?>> startProducers(ExecutorService producerThreads, Producer producer) {
+        SplittableRandom[] streams = generator.newStreams();
+        List<Future<?>> running = new ArrayList<>();
+        for (int p = 0; p < streams.length; p++) {
+            int index = p;
+            running.add(producerThreads.submit(() -> {
+                producer.run(index, streams[index]);
+                return null;
+            }));
+        }
+        return running;
+    }
+
+    /**
+     * Waits for the producers to finish, rethrowing the first failure.
+     *
+     * @param running The running producers.
+     * @throws InterruptedException Throws if the thread is interrupted while waiting for the producers.
+     */
+    private static void awaitProducers(List<Future<?>> running) throws InterruptedException {
+        for (Future<?> producer : running) {
+            try {
+                producer.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Producer failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Producer is the work of one producer thread.
+     */
+    private interface Producer {
+        void run(int producer, SplittableRandom random) throws InterruptedException;
+    }
+
     /**
      * Method to create a MasterThread instance based on the specified choice of number of equations.
      *
@@ -134,16 +704,63 @@ public class MasterThread {
     }
 
     /**
-     * The ThreadStats class holds statistics for each slave thread.
+     * Method to create a MasterThread instance based on the specified choice of number of equations and options.
+     *
+     * @param choice  The choice indicating the number of coefficients (30 or 3000).
+     * @param options The command-line options selecting how the equations are solved.
+     * @return A MasterThread instance with the specified parameters.
+     */
+    public static MasterThread getMasterThread(int choice, SolverOptions options) {
+        boolean is30Coefficients = choice == 1;
+        int numCoefficients = is30Coefficients ? 30 : 3000;
+        return new MasterThread(options.createBuffer(), options.getThreads(), numCoefficients, is30Coefficients, options);
+    }
+
+    /**
+     * The ThreadStats class holds statistics for each slave thread: how many equations it processed, how long batches
+     * waited in the buffer before it took them, and how long it took to solve each equation. Counters are lock-free
+     * so updating them does not slow the slave thread down, and they can be read while the thread is running. The
+     * thread also publishes what it is doing, for {@link SolverMonitor}.
      */
     public static class ThreadStats {
-        private int equationsProcessed;
+        private final AtomicReference<SlaveThread.State> state = new AtomicReference<>(SlaveThread.State.NEW);
+        private final LongAdder equationsProcessed = new LongAdder();
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram solveTime = new LatencyHistogram();
+
+        /**
+         * Sets what the thread is doing. The write is ordered but not fenced, so it is cheap enough for the hot loop
+         * and becomes visible to readers shortly after.
+         *
+         * @param state The new state.
+         */
+        public void setState(SlaveThread.State state) {
+            this.state.lazySet(state);
+        }
+
+        /**
+         * Gets what the thread is doing.
+         *
+         * @return The state of the thread.
+         */
+        public SlaveThread.State getState() {
+            return state.get();
+        }
 
         /**
          * Increments the number of equations processed by the thread.
          */
-        public synchronized void incrementEquationsProcessed() {
-            equationsProcessed++;
+        public void incrementEquationsProcessed() {
+            equationsProcessed.increment();
+        }
+
+        /**
+         * Adds a whole batch of equations to the number processed by the thread.
+         *
+         * @param count The number of equations in the batch.
+         */
+        public void addEquationsProcessed(long count) {
+            equationsProcessed.add(count);
         }
 
         /**
@@ -151,21 +768,28 @@ public class MasterThread {
          *
          * @return The number of equations processed.
          */
-        public synchronized int getEquationsProcessed() {
-            return equationsProcessed;
+        public long getEquationsProcessed() {
+            return equationsProcessed.sum();
         }
 
         /**
-         * Calculates the average time taken per equation processed by the slave thread.
+         * Gets the time equations waited in the buffer before the thread took them. Only batches carry the time they
+         * were submitted, so this stays empty when single equations are moved.
          *
-         * @param totalTime The total time taken by all threads to process the equations.
-         * @return The average time per equation in milliseconds.
+         * @return The queue wait histogram in nanoseconds.
          */
-        public synchronized double calcAvgTime(long totalTime) {
-            if (equationsProcessed == 0) {
-                return 0.0;
-            }
-            return (double) totalTime / equationsProcessed;
+        public LatencyHistogram getQueueWait() {
+            return queueWait;
+        }
+
+        /**
+         * Gets the time the thread took to solve each equation. For a batch, every equation records the batch's
+         * average.
+         *
+         * @return The solve time histogram in nanoseconds.
+         */
+        public LatencyHistogram getSolveTime() {
+            return solveTime;
         }
     }
 }
@@ -0,0 +1,157 @@
+import java.io.PrintStream;
+import java.util.function.LongSupplier;
+
+/**
+ * MetricsReporter collects the statistics of a run and prints them. While the run is going it samples how many items
+ * are waiting in the buffer, and it can print a snapshot of the last interval: throughput, latency percentiles and
+ * buffer occupancy. At the end it prints the same figures for the whole run.
+ */
+public class MetricsReporter {
+    private static final long SAMPLE_MILLIS = 10;   // How often the buffer occupancy is sampled
+
+    private final MasterThread.ThreadStats[] threadStats;
+    private final LongSupplier solvedCount; // Number of equations solved so far
+    private final LatencyHistogram endToEnd;
+    private final BatchBuffer buffer;  // Null when the engine has no buffer
+    private final long intervalMillis;  // How often to print a snapshot, or 0 for never
+    private final PrintStream out;
+    private Thread sampler;
+
+    // Written by the sampler thread only, read after it has been joined
+    private long samples;
+    private long pendingEquationsTotal;
+    private int pendingEquationsMax;
+    private long pendingResultsTotal;
+    private int pendingResultsMax;
+
+    /**
+     * Constructs a MetricsReporter.
+     *
+     * @param threadStats    The statistics of each worker thread.
+     * @param solvedCount    Reads the number of equations solved so far.
+     * @param endToEnd       The end-to-end latency recorded by the producer.
+     * @param buffer         The buffer whose occupancy is sampled, or null if there is none.
+     * @param intervalMillis How often to print a snapshot while running, or 0 to only print the final report.
+     * @param out            Where to print.
+     */
+    public MetricsReporter(MasterThread.ThreadStats[] threadStats, LongSupplier solvedCount, LatencyHistogram endToEnd,
+                           BatchBuffer buffer, long intervalMillis, PrintStream out) {
+        this.threadStats = threadStats;
+        this.solvedCount = solvedCount;
+        this.endToEnd = endToEnd;
+        this.buffer = buffer;
+        this.intervalMillis = intervalMillis;
+        this.out = out;
+    }
+
+    /**
+     * Starts sampling, and printing snapshots if an interval was given.
+     */
+    public void start() {
+        sampler = new Thread(this::sample, "metrics-reporter");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public void stop() {
+        if (sampler == null) {
+            return;
+        }
+        sampler.interrupt();
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the statistics of the whole run.
+     *
+     * @param elapsedNanos The length of the run.
+     */
+    public void printReport(long elapsedNanos) {
+        long solved = solvedCount.getAsLong();
+        out.printf("Throughput: %.0f equations/second%n", solved / (elapsedNanos / 1e9));
+        out.println("Queue wait:  " + merge(true));
+        out.println("Solve time:  " + merge(false));
+        out.println("End-to-end:  " + endToEnd);
+        if (buffer != null && samples > 0) {
+            out.printf("Buffer occupancy: equations avg %.1f max %d, results avg %.1f max %d (capacity %d)%n",
+                    (double) pendingEquationsTotal / samples, pendingEquationsMax,
+                    (double) pendingResultsTotal / samples, pendingResultsMax, buffer.getCapacity());
+        }
+        if (buffer != null) {
+            for (RingStatistics ring : buffer.getRingStatistics()) {
+                out.println("Ring " + ring);
+            }
+        }
+    }
+
+    /**
+     * Sampler loop. Samples the buffer occupancy and prints a snapshot every interval.
+     */
+    private void sample() {
+        long lastReport = System.nanoTime();
+        long lastSolved = 0;
+        LatencyHistogram lastQueueWait = new LatencyHistogram();
+        LatencyHistogram lastSolveTime = new LatencyHistogram();
+        LatencyHistogram lastEndToEnd = new LatencyHistogram();
+        int intervalSamples = 0;
+        long intervalPending = 0;
+        try {
+            while (true) {
+                Thread.sleep(SAMPLE_MILLIS);
+                if (buffer != null) {
+                    int pendingEquations = buffer.getPendingEquations();
+                    int pendingResults = buffer.getPendingResults();
+                    samples++;
+                    pendingEquationsTotal += pendingEquations;
+                    pendingEquationsMax = Math.max(pendingEquationsMax, pendingEquations);
+                    pendingResultsTotal += pendingResults;
+                    pendingResultsMax = Math.max(pendingResultsMax, pendingResults);
+                    intervalSamples++;
+                    intervalPending += pendingEquations;
+                }
+
+                long now = System.nanoTime();
+                if (intervalMillis > 0 && now - lastReport >= intervalMillis * 1_000_000) {
+                    long solved = solvedCount.getAsLong();
+                    LatencyHistogram queueWait = merge(true);
+                    LatencyHistogram solveTime = merge(false);
+                    LatencyHistogram endToEndNow = endToEnd.copy();
+                    out.printf("[interval] %.0f equations/second, queue wait p99 %.2fus, solve p99 %.2fus,"
+                                    + " end-to-end p99 %.2fus, pending equations avg %.1f%n",
+                            (solved - lastSolved) / ((now - lastReport) / 1e9),
+                            queueWait.since(lastQueueWait).getValueAtPercentile(99) / 1e3,
+                            solveTime.since(lastSolveTime).getValueAtPercentile(99) / 1e3,
+                            endToEndNow.since(lastEndToEnd).getValueAtPercentile(99) / 1e3,
+                            intervalSamples == 0 ? 0.0 : (double) intervalPending / intervalSamples);
+                    lastReport = now;
+                    lastSolved = solved;
+                    lastQueueWait = queueWait;
+                    lastSolveTime = solveTime;
+                    lastEndToEnd = endToEndNow;
+                    intervalSamples = 0;
+                    intervalPending = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped by stop()
+        }
+    }
+
+    /**
+     * Merges the queue wait or solve time histograms of every worker thread.
+     */
+    private LatencyHistogram merge(boolean queueWait) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (MasterThread.ThreadStats stats : threadStats) {
+            merged.add(queueWait ? stats.getQueueWait() : stats.getSolveTime());
+        }
+        return merged;
+    }
+}
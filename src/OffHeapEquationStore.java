@@ -0,0 +1,256 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Objects;
+
+/**
+ * OffHeapEquationStore keeps the coefficients and roots of a job outside the Java heap, as seven columns of doubles:
+ * a, b, c, then the real and imaginary parts of both roots. It takes 56 bytes per equation however large the job, has
+ * no per-equation objects for the garbage collector to trace, and is indexed by long, so a job of a billion equations
+ * fits in one store. Workers write coefficients and solve by index range; different threads may use disjoint ranges at
+ * the same time.
+ * <p>
+ * Each column is a row of direct buffers of up to a gigabyte, because one buffer is indexed by int. The memory counts
+ * against -XX:MaxDirectMemorySize, which defaults to the maximum heap size. {@link #close()} frees every buffer right
+ * away through the cleaner that sun.misc.Unsafe exposes, so the memory is back when the job ends instead of whenever
+ * the garbage collector gets to the buffers; only on a JVM without that method is it left to the collector. The store
+ * must not be used after it has been closed, or while another thread is closing it.
+ */
+public class OffHeapEquationStore implements AutoCloseable {
+    static final int COLUMNS = 7;   // a, b, c, real1, imag1, real2, imag2
+    private static final int BLOCK = 4096;  // Equations copied to the heap at a time to be solved
+    private static final int SEGMENT = 1 << 27;     // Doubles in one direct buffer, a gigabyte
+    private static final ThreadLocal<double[][]> SCRATCH =     // Heap copy of a block, reused by each worker thread
+            ThreadLocal.withInitial(() -> new double[COLUMNS][BLOCK]);
+    private static final Object UNSAFE;     // The sun.misc.Unsafe instance, or null if it cannot be reached
+    private static final Method INVOKE_CLEANER;     // Unsafe.invokeCleaner(ByteBuffer), or null
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Without jdk.unsupported the buffers are returned by the garbage collector
+            unsafe = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = unsafe != null ? invokeCleaner : null;
+    }
+
+    private final long capacity;    // Number of equations the store holds
+    private final int segment;      // Doubles in one buffer of a column, a power of two
+    private final int shift;        // log2 of segment
+    private ByteBuffer[][] memory;      // The direct buffers behind the segments, freed by close
+    private DoubleBuffer[][] columns;   // The segments of each column, or null once closed
+
+    /**
+     * Allocates a store for the given number of equations. The contents are undefined until they are written.
+     *
+     * @param capacity The number of equations.
+     * @throws OutOfMemoryError If the memory cannot be allocated.
+     */
+    public OffHeapEquationStore(long capacity) {
+        this(capacity, SEGMENT);
+    }
+
+    /**
+     * Allocates a store whose columns are cut into buffers of the given size, so tests can cross buffers cheaply.
+     *
+     * @param capacity The number of equations.
+     * @param segment  The number of doubles in one buffer, a power of two.
+     */
+    OffHeapEquationStore(long capacity, int segment) {
+        if (capacity <= 0 || capacity > Long.MAX_VALUE / (COLUMNS * Double.BYTES)) {
+            throw new IllegalArgumentException("Store capacity must be positive and addressable: " + capacity);
+        }
+        if (segment <= 0 || Integer.bitCount(segment) != 1 || segment > SEGMENT) {
+            throw new IllegalArgumentException("Segment must be a power of two up to " + SEGMENT + ": " + segment);
+        }
+        this.capacity = capacity;
+        this.segment = segment;
+        this.shift = Integer.numberOfTrailingZeros(segment);
+        long segments = (capacity + segment - 1) >>> shift;
+        if (segments > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Store capacity must be positive and addressable: " + capacity);
+        }
+        this.memory = new ByteBuffer[COLUMNS][(int) segments];
+        DoubleBuffer[][] allocated = new DoubleBuffer[COLUMNS][(int) segments];
+        try {
+            for (int column = 0; column < COLUMNS; column++) {
+                for (int s = 0; s < segments; s++) {
+                    int doubles = (int) Math.min(segment, capacity - ((long) s << shift));
+                    memory[column][s] = ByteBuffer.allocateDirect(doubles * Double.BYTES);
+                    allocated[column][s] = memory[column][s].order(ByteOrder.nativeOrder()).asDoubleBuffer();
+                }
+            }
+        } catch (OutOfMemoryError e) {
+            // Give back the columns that were allocated before this one failed
+            free();
+            throw e;
+        }
+        this.columns = allocated;
+    }
+
+    /**
+     * Gets the number of equations the store holds.
+     *
+     * @return The capacity.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the amount of memory the store allocated outside the heap.
+     *
+     * @return The size in bytes.
+     */
+    public long getFootprintBytes() {
+        return capacity * COLUMNS * Double.BYTES;
+    }
+
+    /**
+     * Writes the coefficients of one equation.
+     *
+     * @param i The index of the equation.
+     * @param a The coefficient of x^2.
+     * @param b The coefficient of x.
+     * @param c The constant term.
+     */
+    public void setCoefficients(long i, double a, double b, double c) {
+        Objects.checkIndex(i, capacity);
+        DoubleBuffer[][] open = checkOpen();
+        int s = (int) (i >>> shift);
+        int index = (int) i & (segment - 1);
+        open[0][s].put(index, a);
+        open[1][s].put(index, b);
+        open[2][s].put(index, c);
+    }
+
+    /**
+     * Solves a range of equations and writes their roots into the store. The range is copied to the heap in blocks and
+     * solved with {@link QuadraticEquation#solve}, so the roots are exactly the ones the heap engines calculate. Each
+     * thread copies into the same heap block on every call, so solving allocates nothing.
+     *
+     * @param from   The index of the first equation.
+     * @param length The number of equations.
+     */
+    public void solve(long from, long length) {
+        Objects.checkFromIndexSize(from, length, capacity);
+        DoubleBuffer[][] open = checkOpen();
+        double[][] block = SCRATCH.get();
+        for (long start = from; start < from + length; start += BLOCK) {
+            int size = (int) Math.min(BLOCK, from + length - start);
+            for (int column = 0; column < 3; column++) {
+                copy(open[column], start, block[column], size, true);
+            }
+            QuadraticEquation.solve(block[0], block[1], block[2], 0, size, block[3], block[4], block[5], block[6]);
+            for (int column = 3; column < COLUMNS; column++) {
+                copy(open[column], start, block[column], size, false);
+            }
+        }
+    }
+
+    public double getA(long i) {
+        return get(0, i);
+    }
+
+    public double getB(long i) {
+        return get(1, i);
+    }
+
+    public double getC(long i) {
+        return get(2, i);
+    }
+
+    public double getReal1(long i) {
+        return get(3, i);
+    }
+
+    public double getImag1(long i) {
+        return get(4, i);
+    }
+
+    public double getReal2(long i) {
+        return get(5, i);
+    }
+
+    public double getImag2(long i) {
+        return get(6, i);
+    }
+
+    /**
+     * Frees the memory of every buffer. Closing a store that is already closed does nothing.
+     */
+    @Override
+    public void close() {
+        columns = null;
+        free();
+    }
+
+    /**
+     * Reads one cell, checking the index and that the store is still open.
+     */
+    private double get(int column, long i) {
+        Objects.checkIndex(i, capacity);
+        return checkOpen()[column][(int) (i >>> shift)].get((int) i & (segment - 1));
+    }
+
+    /**
+     * Copies part of a column between the store and a heap array, one buffer at a time. The copies use absolute
+     * indexes, so threads copying disjoint ranges of the same buffer do not disturb each other.
+     */
+    private void copy(DoubleBuffer[] column, long start, double[] array, int size, boolean toHeap) {
+        int done = 0;
+        while (done < size) {
+            long i = start + done;
+            int index = (int) i & (segment - 1);
+            int length = Math.min(size - done, segment - index);
+            DoubleBuffer buffer = column[(int) (i >>> shift)];
+            if (toHeap) {
+                buffer.get(index, array, done, length);
+            } else {
+                buffer.put(index, array, done, length);
+            }
+            done += length;
+        }
+    }
+
+    /**
+     * Runs the cleaner of every direct buffer that was allocated, or only drops them when there is no cleaner to run.
+     */
+    private void free() {
+        ByteBuffer[][] allocated = memory;
+        memory = null;
+        if (allocated == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        for (ByteBuffer[] column : allocated) {
+            for (ByteBuffer buffer : column) {
+                if (buffer != null) {
+                    try {
+                        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                    } catch (IllegalAccessException | InvocationTargetException e) {
+                        throw new IllegalStateException("Could not free an off-heap column", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private DoubleBuffer[][] checkOpen() {
+        DoubleBuffer[][] open = columns;
+        if (open == null) {
+            throw new IllegalStateException("OffHeapEquationStore is closed");
+        }
+        return open;
+    }
+}
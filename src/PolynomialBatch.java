@@ -0,0 +1,138 @@
+import java.util.Objects;
+
+/**
+ * PolynomialBatch is a batch of polynomials of one degree. Like an EquationBatch it is a {@link SolverBatch}, so it
+ * moves through the same buffers and is solved by the same SlaveThreads as a batch of quadratic equations. The
+ * coefficients and roots of all its polynomials are stored in flat primitive arrays in the layout of
+ * {@link PolynomialSolver}, and like any batch it is reused.
+ */
+public class PolynomialBatch implements SolverBatch {
+    private final int degree;
+    private final double[] coefficients;    // degree + 1 per polynomial, highest power first
+    private final double[] real;    // Real parts of the roots, degree per polynomial
+    private final double[] imag;    // Imaginary parts of the roots, degree per polynomial
+    private final int capacity;
+    private int size;
+    private long firstIndex;    // Index of the first polynomial of this batch within the whole job
+    private long submitNanos;   // System.nanoTime() when the batch was handed to the slave threads
+
+    /**
+     * Constructs an empty batch that can hold up to the given number of polynomials.
+     * @param degree   The degree of every polynomial in the batch.
+     * @param capacity The maximum number of polynomials in the batch.
+     */
+    public PolynomialBatch(int degree, int capacity) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("Degree must be at least 1: " + degree);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity must be positive: " + capacity);
+        }
+        this.degree = degree;
+        this.capacity = capacity;
+        this.coefficients = new double[(degree + 1) * capacity];
+        this.real = new double[degree * capacity];
+        this.imag = new double[degree * capacity];
+    }
+
+    @Override
+    public void reset(long firstIndex) {
+        this.firstIndex = firstIndex;
+        this.size = 0;
+    }
+
+    /**
+     * Gets the index in the coefficient array where the next polynomial goes, and counts it as added. The caller
+     * writes its degree + 1 coefficients there, highest power first.
+     * @return The index of the leading coefficient of the new polynomial.
+     */
+    int slot() {
+        if (size == capacity) {
+            throw new IllegalStateException("Batch is full");
+        }
+        return (degree + 1) * size++;
+    }
+
+    /**
+     * Appends a polynomial.
+     * @param source The array holding the coefficients, highest power first.
+     * @param offset The index of the leading coefficient.
+     */
+    public void add(double[] source, int offset) {
+        System.arraycopy(source, offset, coefficients, slot(), degree + 1);
+    }
+
+    @Override
+    public void solve() {
+        PolynomialSolver.solve(degree, coefficients, 0, size, real, imag);
+    }
+
+    /**
+     * Solves every polynomial in the batch. The root cache only holds quadratic equations, so it is not used.
+     * @param cache Ignored.
+     */
+    @Override
+    public void solve(RootCache cache) {
+        solve();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * Gets the coefficient array, which {@link #slot()} indexes into.
+     * @return The coefficients of all polynomials.
+     */
+    double[] getCoefficients() {
+        return coefficients;
+    }
+
+    /**
+     * Gets one coefficient of a polynomial.
+     * @param i     The index of the polynomial in the batch.
+     * @param power The power of x the coefficient belongs to.
+     * @return The coefficient.
+     */
+    public double getCoefficient(int i, int power) {
+        return coefficients[(degree + 1) * i + degree - power];
+    }
+
+    @Override
+    public double getRootReal(int i, int root) {
+        Objects.checkIndex(root, degree);
+        return real[degree * i + root];
+    }
+
+    @Override
+    public double getRootImag(int i, int root) {
+        Objects.checkIndex(root, degree);
+        return imag[degree * i + root];
+    }
+
+    @Override
+    public void setSubmitNanos(long submitNanos) {
+        this.submitNanos = submitNanos;
+    }
+
+    @Override
+    public long getSubmitNanos() {
+        return submitNanos;
+    }
+
+    @Override
+    public long getFirstIndex() {
+        return firstIndex;
+    }
+}
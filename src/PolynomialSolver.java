@@ -0,0 +1,412 @@
+/**
+ * PolynomialSolver finds all complex roots of batches of real polynomials stored in flat primitive arrays. Polynomial
+ * i of degree n has its n + 1 coefficients, highest power first, at index i * (n + 1) of the coefficient array, and
+ * its n roots are written to index i * n of the real and imaginary root arrays. Nothing is allocated per polynomial.
+ * <p>
+ * Degrees 1 to 4 have closed forms: the quadratic uses the form without cancellation, the cubic Cardano's formula or,
+ * with three real roots, the trigonometric one, and the quartic Ferrari's resolvent cubic, followed by a few Newton
+ * steps per root, while they still make the polynomial smaller, to clean up the rounding of the closed form. Higher
+ * degrees use the Aberth-Ehrlich simultaneous iteration, which refines all roots of a polynomial together. It runs over
+ * the whole batch one iteration at a time and drops each polynomial from the loop as soon as its roots have converged,
+ * so the inner loop always walks the unconverged polynomials of the batch in order.
+ * <p>
+ * A polynomial whose leading coefficient is zero is not of the given degree, and all of its roots are NaN.
+ */
+public final class PolynomialSolver {
+    static final int MAX_ITERATIONS = 100;  // Aberth iterations before a polynomial is given up on
+    static final double TOLERANCE = 1e-14;  // Relative root correction at which Aberth has converged
+    private static final int POLISH_STEPS = 4;  // Most Newton steps after a closed-form cubic or quartic
+
+    private PolynomialSolver() {
+    }
+
+    /**
+     * Solves a range of polynomials of one degree, with the closed form for degrees up to 4 and Aberth above.
+     *
+     * @param degree       The degree of every polynomial.
+     * @param coefficients The coefficients, degree + 1 per polynomial, highest power first.
+     * @param offset       The index of the first polynomial to solve.
+     * @param length       The number of polynomials to solve.
+     * @param real         Receives the real parts of the roots, degree per polynomial.
+     * @param imag         Receives the imaginary parts of the roots, degree per polynomial.
+     */
+    public static void solve(int degree, double[] coefficients, int offset, int length, double[] real, double[] imag) {
+        switch (degree) {
+            case 1:
+                for (int i = offset; i < offset + length; i++) {
+                    real[i] = -coefficients[2 * i + 1] / coefficients[2 * i];
+                    imag[i] = 0;
+                    markInvalid(coefficients[2 * i], 1, i, real, imag);
+                }
+                break;
+            case 2:
+                for (int i = offset; i < offset + length; i++) {
+                    int c = 3 * i;
+                    quadratic(coefficients[c], coefficients[c + 1], coefficients[c + 2], real, imag, 2 * i);
+                    markInvalid(coefficients[c], 2, i, real, imag);
+                }
+                break;
+            case 3:
+                for (int i = offset; i < offset + length; i++) {
+                    cubic(coefficients, 4 * i, real, imag, 3 * i);
+                    polish(3, coefficients, 4 * i, real, imag, 3 * i);
+                    markInvalid(coefficients[4 * i], 3, i, real, imag);
+                }
+                break;
+            case 4:
+                for (int i = offset; i < offset + length; i++) {
+                    quartic(coefficients, 5 * i, real, imag, 4 * i);
+                    polish(4, coefficients, 5 * i, real, imag, 4 * i);
+                    markInvalid(coefficients[5 * i], 4, i, real, imag);
+                }
+                break;
+            default:
+                if (degree < 1) {
+                    throw new IllegalArgumentException("Degree must be at least 1: " + degree);
+                }
+                solveAberth(degree, coefficients, offset, length, real, imag);
+        }
+    }
+
+    /**
+     * Solves a range of polynomials of any degree with the Aberth-Ehrlich iteration, one iteration over the whole
+     * range at a time.
+     *
+     * @param degree       The degree of every polynomial.
+     * @param coefficients The coefficients, degree + 1 per polynomial, highest power first.
+     * @param offset       The index of the first polynomial to solve.
+     * @param length       The number of polynomials to solve.
+     * @param real         Receives the real parts of the roots, degree per polynomial.
+     * @param imag         Receives the imaginary parts of the roots, degree per polynomial.
+     * @return The number of polynomials that did not converge within {@value #MAX_ITERATIONS} iterations. Their roots
+     *         are the last estimates.
+     */
+    public static int solveAberth(int degree, double[] coefficients, int offset, int length, double[] real,
+                                  double[] imag) {
+        int[] active = new int[length];     // Polynomials still iterating, in order
+        int remaining = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (coefficients[(degree + 1) * i] == 0) {
+                markInvalid(0, degree, i, real, imag);
+            } else {
+                initialGuess(degree, coefficients, (degree + 1) * i, real, imag, degree * i);
+                active[remaining++] = i;
+            }
+        }
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS && remaining > 0; iteration++) {
+            int kept = 0;
+            for (int a = 0; a < remaining; a++) {
+                int i = active[a];
+                if (!aberthStep(degree, coefficients, (degree + 1) * i, real, imag, degree * i)) {
+                    active[kept++] = i;
+                }
+            }
+            remaining = kept;
+        }
+        return remaining;
+    }
+
+    /**
+     * Evaluates a polynomial at a real point with Horner's rule, for checking roots.
+     *
+     * @param degree       The degree of the polynomial.
+     * @param coefficients The coefficients, highest power first.
+     * @param c            The index of the leading coefficient.
+     * @param x            The point.
+     * @return The value of the polynomial.
+     */
+    static double evaluate(int degree, double[] coefficients, int c, double x) {
+        double value = coefficients[c];
+        for (int k = 1; k <= degree; k++) {
+            value = value * x + coefficients[c + k];
+        }
+        return value;
+    }
+
+    /**
+     * Solves ax^2 + bx + c with q = -(b + sign(b) sqrt(d)) / 2, so neither root subtracts nearly equal numbers.
+     */
+    private static void quadratic(double a, double b, double c, double[] real, double[] imag, int r) {
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant >= 0) {
+            double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+            real[r] = q / a;
+            real[r + 1] = q != 0 ? c / q : real[r];
+            imag[r] = 0;
+            imag[r + 1] = 0;
+        } else {
+            real[r] = -b / (2 * a);
+            real[r + 1] = real[r];
+            imag[r] = Math.sqrt(-discriminant) / (2 * Math.abs(a));
+            imag[r + 1] = -imag[r];
+        }
+    }
+
+    /**
+     * Solves a cubic with the formulas of Numerical Recipes: the trigonometric form when all three roots are real,
+     * Cardano's otherwise.
+     */
+    private static void cubic(double[] coefficients, int c, double[] real, double[] imag, int r) {
+        double lead = coefficients[c];
+        monicCubic(coefficients[c + 1] / lead, coefficients[c + 2] / lead, coefficients[c + 3] / lead, real, imag, r);
+    }
+
+    /**
+     * Solves x^3 + ax^2 + bx + d.
+     */
+    private static void monicCubic(double a, double b, double d, double[] real, double[] imag, int r) {
+        double q = (a * a - 3 * b) / 9;
+        double rr = (2 * a * a * a - 9 * a * b + 27 * d) / 54;
+        double q3 = q * q * q;
+        if (rr * rr < q3) {
+            double theta = Math.acos(rr / Math.sqrt(q3));
+            double scale = -2 * Math.sqrt(q);
+            for (int k = 0; k < 3; k++) {
+                real[r + k] = scale * Math.cos((theta + 2 * Math.PI * (k - 1)) / 3) - a / 3;
+                imag[r + k] = 0;
+            }
+        } else {
+            double s = -Math.copySign(Math.cbrt(Math.abs(rr) + Math.sqrt(rr * rr - q3)), rr);
+            double t = s == 0 ? 0 : q / s;
+            real[r] = s + t - a / 3;
+            imag[r] = 0;
+            real[r + 1] = -0.5 * (s + t) - a / 3;
+            imag[r + 1] = Math.sqrt(3) / 2 * (s - t);
+            real[r + 2] = real[r + 1];
+            imag[r + 2] = -imag[r + 1];
+        }
+    }
+
+    /**
+     * Solves a quartic with Ferrari's method. The monic quartic is shifted to y^4 + py^2 + qy + s, which splits into
+     * two real quadratics once a positive root m of the resolvent cubic 8m^3 + 8pm^2 + (2p^2 - 8s)m - q^2 is known.
+     */
+    private static void quartic(double[] coefficients, int c, double[] real, double[] imag, int r) {
+        double lead = coefficients[c];
+        double a = coefficients[c + 1] / lead;
+        double b = coefficients[c + 2] / lead;
+        double cc = coefficients[c + 3] / lead;
+        double d = coefficients[c + 4] / lead;
+        double shift = a / 4;
+        double p = b - 6 * shift * shift;
+        double q = cc - 2 * b * shift + 8 * shift * shift * shift;
+        double s = d - cc * shift + b * shift * shift - 3 * shift * shift * shift * shift;
+
+        if (Math.abs(q) <= 1e-14 * (1 + Math.abs(p) + Math.abs(s))) {
+            // Biquadratic: y^2 = z for each root z of z^2 + pz + s
+            quadratic(1, p, s, real, imag, r);
+            double z1Real = real[r];
+            double z1Imag = imag[r];
+            double z2Real = real[r + 1];
+            double z2Imag = imag[r + 1];
+            complexSqrt(z1Real, z1Imag, real, imag, r);
+            complexSqrt(z2Real, z2Imag, real, imag, r + 2);
+        } else {
+            // The resolvent is evaluated by the cubic solver in the root slots, then replaced by the quartic's roots
+            double m = largestRealRoot(8, 8 * p, 2 * p * p - 8 * s, -q * q, real, imag, r);
+            double root = Math.sqrt(2 * m);
+            quadratic(1, root, p / 2 + m - q / (2 * root), real, imag, r);
+            quadratic(1, -root, p / 2 + m + q / (2 * root), real, imag, r + 2);
+        }
+        for (int k = 0; k < 4; k++) {
+            real[r + k] -= shift;
+        }
+    }
+
+    /**
+     * Finds the largest real root of a cubic, using four root slots as scratch space.
+     */
+    private static double largestRealRoot(double a, double b, double c, double d, double[] real, double[] imag,
+                                          int r) {
+        monicCubic(b / a, c / a, d / a, real, imag, r);
+        double largest = real[r];
+        for (int k = 1; k < 3; k++) {
+            if (imag[r + k] == 0 && real[r + k] > largest) {
+                largest = real[r + k];
+            }
+        }
+        // One Newton step, since the closed form loses digits when q is small
+        double value = ((a * largest + b) * largest + c) * largest + d;
+        double slope = (3 * a * largest + 2 * b) * largest + c;
+        if (slope != 0) {
+            largest -= value / slope;
+        }
+        return Math.max(largest, Double.MIN_NORMAL);
+    }
+
+    /**
+     * Writes the two square roots of a complex number.
+     */
+    private static void complexSqrt(double zReal, double zImag, double[] real, double[] imag, int r) {
+        double modulus = Math.hypot(zReal, zImag);
+        double rootReal = Math.sqrt((modulus + zReal) / 2);
+        double rootImag = Math.copySign(Math.sqrt((modulus - zReal) / 2), zImag);
+        real[r] = rootReal;
+        imag[r] = rootImag;
+        real[r + 1] = -rootReal;
+        imag[r + 1] = -rootImag;
+    }
+
+    /**
+     * Refines every root of one polynomial with Newton's method in complex arithmetic. A step is only taken if it
+     * makes the polynomial smaller, so roots that are already as good as double precision allows stay put.
+     */
+    private static void polish(int degree, double[] coefficients, int c, double[] real, double[] imag, int r) {
+        for (int k = 0; k < degree; k++) {
+            double zReal = real[r + k];
+            double zImag = imag[r + k];
+            for (int step = 0; step < POLISH_STEPS; step++) {
+                // Horner's rule for p and p' at z
+                double pReal = coefficients[c];
+                double pImag = 0;
+                double dReal = 0;
+                double dImag = 0;
+                for (int j = 1; j <= degree; j++) {
+                    double nextDReal = dReal * zReal - dImag * zImag + pReal;
+                    dImag = dReal * zImag + dImag * zReal + pImag;
+                    dReal = nextDReal;
+                    double nextPReal = pReal * zReal - pImag * zImag + coefficients[c + j];
+                    pImag = pReal * zImag + pImag * zReal;
+                    pReal = nextPReal;
+                }
+                double denominator = dReal * dReal + dImag * dImag;
+                if (denominator == 0) {
+                    break;
+                }
+                double nextReal = zReal - (pReal * dReal + pImag * dImag) / denominator;
+                double nextImag = zImag - (pImag * dReal - pReal * dImag) / denominator;
+                if (!(magnitude(degree, coefficients, c, nextReal, nextImag) < Math.hypot(pReal, pImag))) {
+                    break;
+                }
+                zReal = nextReal;
+                zImag = nextImag;
+            }
+            real[r + k] = zReal;
+            imag[r + k] = zImag;
+        }
+    }
+
+    /**
+     * Gets |p(z)|.
+     */
+    private static double magnitude(int degree, double[] coefficients, int c, double zReal, double zImag) {
+        double pReal = coefficients[c];
+        double pImag = 0;
+        for (int j = 1; j <= degree; j++) {
+            double nextReal = pReal * zReal - pImag * zImag + coefficients[c + j];
+            pImag = pReal * zImag + pImag * zReal;
+            pReal = nextReal;
+        }
+        return Math.hypot(pReal, pImag);
+    }
+
+    /**
+     * Spreads the starting points of Aberth evenly on a circle whose radius is the geometric mean of the roots'
+     * magnitudes, |a_n / a_0|^(1/n), turned off the real axis so no two start on a conjugate pair's symmetry line.
+     */
+    private static void initialGuess(int degree, double[] coefficients, int c, double[] real, double[] imag, int r) {
+        double radius = Math.pow(Math.abs(coefficients[c + degree] / coefficients[c]), 1.0 / degree);
+        if (!(radius > 0) || Double.isInfinite(radius)) {
+            radius = 1;
+        }
+        for (int k = 0; k < degree; k++) {
+            double angle = 2 * Math.PI * k / degree + 0.4;
+            real[r + k] = radius * Math.cos(angle);
+            imag[r + k] = radius * Math.sin(angle);
+        }
+    }
+
+    /**
+     * One Aberth-Ehrlich iteration on all roots of one polynomial: each root z moves by N / (1 - N * sum 1 / (z - w))
+     * over the other roots w, where N = p(z) / p'(z). Updated roots are used right away.
+     *
+     * @return True if every root moved by less than the tolerance relative to its size.
+     */
+    private static boolean aberthStep(int degree, double[] coefficients, int c, double[] real, double[] imag, int r) {
+        boolean converged = true;
+        for (int k = 0; k < degree; k++) {
+            double zReal = real[r + k];
+            double zImag = imag[r + k];
+
+            // Horner's rule for p and p' at z
+            double pReal = coefficients[c];
+            double pImag = 0;
+            double dReal = 0;
+            double dImag = 0;
+            for (int j = 1; j <= degree; j++) {
+                double nextDReal = dReal * zReal - dImag * zImag + pReal;
+                dImag = dReal * zImag + dImag * zReal + pImag;
+                dReal = nextDReal;
+                double nextPReal = pReal * zReal - pImag * zImag + coefficients[c + j];
+                pImag = pReal * zImag + pImag * zReal;
+                pReal = nextPReal;
+            }
+            if (pReal == 0 && pImag == 0) {
+                continue;   // Exactly on a root
+            }
+
+            // N = p / p'
+            double denominator = dReal * dReal + dImag * dImag;
+            double nReal;
+            double nImag;
+            if (denominator == 0) {
+                // Critical point, nudge the root
+                nReal = 1e-3 * (1 + Math.abs(zReal));
+                nImag = 1e-3 * (1 + Math.abs(zImag));
+            } else {
+                nReal = (pReal * dReal + pImag * dImag) / denominator;
+                nImag = (pImag * dReal - pReal * dImag) / denominator;
+            }
+
+            // S = sum over the other roots of 1 / (z - w)
+            double sReal = 0;
+            double sImag = 0;
+            for (int j = 0; j < degree; j++) {
+                if (j == k) {
+                    continue;
+                }
+                double diffReal = zReal - real[r + j];
+                double diffImag = zImag - imag[r + j];
+                double squared = diffReal * diffReal + diffImag * diffImag;
+                if (squared != 0) {
+                    sReal += diffReal / squared;
+                    sImag -= diffImag / squared;
+                }
+            }
+
+            // w = N / (1 - N * S)
+            double oneReal = 1 - (nReal * sReal - nImag * sImag);
+            double oneImag = -(nReal * sImag + nImag * sReal);
+            double oneSquared = oneReal * oneReal + oneImag * oneImag;
+            double wReal;
+            double wImag;
+            if (oneSquared == 0) {
+                wReal = nReal;
+                wImag = nImag;
+            } else {
+                wReal = (nReal * oneReal + nImag * oneImag) / oneSquared;
+                wImag = (nImag * oneReal - nReal * oneImag) / oneSquared;
+            }
+
+            real[r + k] = zReal - wReal;
+            imag[r + k] = zImag - wImag;
+            if (Math.hypot(wReal, wImag) > TOLERANCE * Math.max(Math.hypot(zReal, zImag), Double.MIN_NORMAL)) {
+                converged = false;
+            }
+        }
+        return converged;
+    }
+
+    /**
+     * Replaces the roots of a polynomial with NaN if its leading coefficient is zero.
+     */
+    private static void markInvalid(double leading, int degree, int i, double[] real, double[] imag) {
+        if (leading == 0) {
+            for (int k = degree * i; k < degree * (i + 1); k++) {
+                real[k] = Double.NaN;
+                imag[k] = Double.NaN;
+            }
+        }
+    }
+}
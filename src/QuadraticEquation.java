@@ -1,10 +1,71 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * The QuadraticEquation class represents a quadratic equation of the form ax^2 + bx + c = 0.
  * This class provides methods to calculate the roots of the quadratic equation.
+ * <p>
+ * The roots are calculated in tiers of precision. Every equation is first solved in plain double arithmetic, with a
+ * bound on the rounding error of the discriminant b^2 - 4ac, and the roots are taken from the form
+ * q = -(b + sign(b) sqrt(d)) / 2, x = q / a and x = c / q, which never subtracts nearly equal numbers. Only when the
+ * bound says the roots may be off by more than a few units in the last place is the discriminant calculated again,
+ * first exactly up to one rounding with {@link Math#fma}, and if the roots are still too close together, in
+ * double-double arithmetic. An equation with a equal to zero is linear and has a single root. The number of equations
+ * solved in each {@link Tier} is counted over the whole run.
+ * <p>
+ * The batch kernel can hand its fast tier to a {@link BatchKernel} that uses SIMD instructions. The one built on
+ * jdk.incubator.vector lives in the vector source folder, because the incubator module has to be added to compile and
+ * to run it, and it is looked up at runtime, so this class still compiles and runs without it.
  */
 public class QuadraticEquation {
+    private static final double UNIT_ROUNDOFF = 0x1p-53;    // Relative error of one rounding
+    static final double FAST_ULPS = 16;     // Rounding error the plain double roots may have, in units of u
+    static final double MIN_SCALE = 0x1p-960;   // Below this b^2 + 4|ac| the error terms of fma can underflow
+    static final double MAX_SCALE = 0x1p960;    // Above this the double-double steps can overflow
+    private static final LongAdder[] TIER_COUNTS = {new LongAdder(), new LongAdder(), new LongAdder(),
+            new LongAdder()};   // Equations solved in each tier, by ordinal
+    private static final ThreadLocal<double[]> SCRATCH =   // Roots of an escalated equation, reused by each thread
+            ThreadLocal.withInitial(() -> new double[4]);
+    private static volatile BatchKernel kernel;     // Solves the fast tier of batches, or null for the scalar loop
+
     private final double a, b, c;
 
+    /**
+     * Tier is the arithmetic an equation was solved in.
+     */
+    public enum Tier {
+        /** Plain double arithmetic, whose error bound was small enough. */
+        FAST,
+        /** A discriminant exact up to one rounding, from Kahan's fma algorithm. */
+        FMA,
+        /** Double-double arithmetic, for roots so close together that the fma discriminant was not enough. */
+        DOUBLE_DOUBLE,
+        /** No arithmetic on a discriminant, because a is zero and the equation is linear. */
+        LINEAR
+    }
+
+    /**
+     * BatchKernel solves the fast tier of a batch with other instructions than the scalar loop, such as SIMD lanes.
+     * Equations whose plain double discriminant is not accurate enough, and linear ones, are handed back to
+     * {@link #solveScalar}, so a kernel writes exactly the roots the scalar loop would and counts its equations in the
+     * fast tier with {@link #countFast}.
+     */
+    interface BatchKernel {
+
+        /**
+         * Solves a range of equations, with the arguments of {@link QuadraticEquation#solve(double[], double[],
+         * double[], int, int, double[], double[], double[], double[])}.
+         */
+        void solve(double[] a, double[] b, double[] c, int offset, int length,
+                   double[] real1, double[] imag1, double[] real2, double[] imag2);
+
+        /**
+         * Gets the name of the kernel for reports, such as vector-256.
+         * @return The name.
+         */
+        String getName();
+    }
+
     /**
      * Constructs a quadratic equation with the specified coefficients.
      * @param a The coefficient of x^2.
@@ -17,30 +78,445 @@ public class QuadraticEquation {
         this.c = c;
     }
 
+    /**
+     * Getter for the coefficient of x^2.
+     * @return The coefficient a.
+     */
+    public double getA() {
+        return a;
+    }
+
+    /**
+     * Getter for the coefficient of x.
+     * @return The coefficient b.
+     */
+    public double getB() {
+        return b;
+    }
+
+    /**
+     * Getter for the constant term.
+     * @return The coefficient c.
+     */
+    public double getC() {
+        return c;
+    }
+
     /**
      * Calculates and returns the roots of the quadratic equation.
+     * Uses the same tiers as the batch kernel {@link #solve}, so it returns exactly the first root the kernel writes.
      * @return A Complex object representing the roots of the quadratic equation.
      */
     public Complex getRoots() {
-        // Calculate the determinant
-        double determinant = b * b - 4 * a * c;
+        double d = a == 0 ? Double.NaN : fastDiscriminant(a, b, c);
+        double real;
+        double imag;
+        if (d == d) {
+            TIER_COUNTS[Tier.FAST.ordinal()].increment();
+            real = firstRootReal(a, b, c, d);
+            imag = firstRootImag(a, d);
+        } else {
+            double[] roots = getRootsPrecise();
+            real = roots[0];
+            imag = roots[1];
+        }
+        // One allocation site, so the common case stays allocation-free once getRoots is inlined
+        return new Complex(real, imag);
+    }
 
-        // Check whether roots will be two real distinct roots, two repeated real root, or two distinct complex roots
-        if (determinant > 0) {
-            // Two real distinct roots
-            return new Complex((-b + Math.sqrt(determinant)) / (2 * a), 0);
+    /**
+     * Calculates the roots of an equation that needs a higher tier or is linear, kept out of getRoots so that getRoots
+     * stays small enough to inline.
+     */
+    private double[] getRootsPrecise() {
+        double[] roots = new double[4];
+        TIER_COUNTS[solveOne(a, b, c, Tier.FAST, roots).ordinal()].increment();
+        return roots;
+    }
 
-        } else if (determinant == 0) {
-            // Two repeated real roots
-            return new Complex(-b / (2 * a), 0);
+    /**
+     * Solves a batch of quadratic equations stored as parallel coefficient arrays and writes both roots of each
+     * equation into the caller-supplied output arrays. Equation i is read from index offset + i of the coefficient
+     * arrays and its roots are written to the same index of the output arrays. The first root is (-b + sqrt(d)) / 2a
+     * and the second (-b - sqrt(d)) / 2a; for complex roots the second root is the conjugate of the first. A linear
+     * equation, with a equal to zero, has its root -c / b as the first root and NaN as the second.
+     * @param a      The coefficients of x^2.
+     * @param b      The coefficients of x.
+     * @param c      The constant terms.
+     * @param offset The index of the first equation to solve.
+     * @param length The number of equations to solve.
+     * @param real1  Receives the real part of the first root.
+     * @param imag1  Receives the imaginary part of the first root.
+     * @param real2  Receives the real part of the second root.
+     * @param imag2  Receives the imaginary part of the second root.
+     */
+    public static void solve(double[] a, double[] b, double[] c, int offset, int length,
+                             double[] real1, double[] imag1, double[] real2, double[] imag2) {
+        solve(a, b, c, offset, length, real1, imag1, real2, imag2, Tier.FAST);
+    }
 
+    /**
+     * Solves a batch of quadratic equations like {@link #solve(double[], double[], double[], int, int, double[],
+     * double[], double[], double[])}, but starts every equation in the given tier instead of plain double arithmetic,
+     * for measuring what the adaptive tiers save over always using the higher precision.
+     * @param a      The coefficients of x^2.
+     * @param b      The coefficients of x.
+     * @param c      The constant terms.
+     * @param offset The index of the first equation to solve.
+     * @param length The number of equations to solve.
+     * @param real1  Receives the real part of the first root.
+     * @param imag1  Receives the imaginary part of the first root.
+     * @param real2  Receives the real part of the second root.
+     * @param imag2  Receives the imaginary part of the second root.
+     * @param floor  The lowest tier to use: FAST, FMA or DOUBLE_DOUBLE.
+     */
+    public static void solve(double[] a, double[] b, double[] c, int offset, int length,
+                             double[] real1, double[] imag1, double[] real2, double[] imag2, Tier floor) {
+        BatchKernel batchKernel = kernel;
+        if (batchKernel != null && floor == Tier.FAST) {
+            batchKernel.solve(a, b, c, offset, length, real1, imag1, real2, imag2);
         } else {
-            // Two complex roots
-            double realPart = -b / (2 * a);
-            double imagPart = Math.sqrt(-determinant) / (2 * a);
-            return new Complex(realPart, imagPart);
+            solveScalar(a, b, c, offset, length, real1, imag1, real2, imag2, floor);
         }
+    }
 
+    /**
+     * Solves a batch of quadratic equations one at a time, starting every equation in the given tier. This is the
+     * kernel {@link #solve} uses without a {@link BatchKernel}, and the one a BatchKernel hands equations back to.
+     * @param a      The coefficients of x^2.
+     * @param b      The coefficients of x.
+     * @param c      The constant terms.
+     * @param offset The index of the first equation to solve.
+     * @param length The number of equations to solve.
+     * @param real1  Receives the real part of the first root.
+     * @param imag1  Receives the imaginary part of the first root.
+     * @param real2  Receives the real part of the second root.
+     * @param imag2  Receives the imaginary part of the second root.
+     * @param floor  The lowest tier to use: FAST, FMA or DOUBLE_DOUBLE.
+     */
+    static void solveScalar(double[] a, double[] b, double[] c, int offset, int length,
+                            double[] real1, double[] imag1, double[] real2, double[] imag2, Tier floor) {
+        double[] roots = null;    // Scratch for escalated and linear equations, looked up on first use
+        int fast = 0;
+        int fma = 0;
+        int doubleDouble = 0;
+        int linear = 0;
+        int end = offset + length;
+        boolean tryFast = floor == Tier.FAST;
+        for (int i = offset; i < end; i++) {
+            double ai = a[i];
+            double bi = b[i];
+            double ci = c[i];
+            double d = tryFast && ai != 0 ? fastDiscriminant(ai, bi, ci) : Double.NaN;
+            if (d > 0) {
+                double signedRoot = Math.copySign(Math.sqrt(d), bi);
+                double q = -0.5 * (bi + signedRoot);
+                // With b positive, q / a is (-b - sqrt(d)) / 2a, the second root
+                double big = q / ai;
+                double small = ci / q;
+                real1[i] = signedRoot > 0 ? small : big;
+                imag1[i] = 0;
+                real2[i] = signedRoot > 0 ? big : small;
+                imag2[i] = 0;
+                fast++;
+                continue;
+            } else if (d <= 0) {
+                // Two repeated real roots, or two complex roots that are conjugates of each other
+                real1[i] = -bi / (2 * ai);
+                imag1[i] = firstRootImag(ai, d);
+                real2[i] = real1[i];
+                imag2[i] = d == 0 ? 0 : -imag1[i];
+                fast++;
+                continue;
+            }
+            if (roots == null) {
+                roots = SCRATCH.get();
+            }
+            Tier tier = solveOne(ai, bi, ci, floor, roots);
+            real1[i] = roots[0];
+            imag1[i] = roots[1];
+            real2[i] = roots[2];
+            imag2[i] = roots[3];
+            if (tier == Tier.FAST) {
+                fast++;
+            } else if (tier == Tier.FMA) {
+                fma++;
+            } else if (tier == Tier.DOUBLE_DOUBLE) {
+                doubleDouble++;
+            } else {
+                linear++;
+            }
+        }
+        // Counted once per call, so the counters stay off the inner loop
+        add(Tier.FAST, fast);
+        add(Tier.FMA, fma);
+        add(Tier.DOUBLE_DOUBLE, doubleDouble);
+        add(Tier.LINEAR, linear);
     }
 
+    /**
+     * Counts equations a {@link BatchKernel} solved in the fast tier.
+     * @param count The number of equations.
+     */
+    static void countFast(int count) {
+        add(Tier.FAST, count);
+    }
+
+    /**
+     * Creates the SIMD kernel built on jdk.incubator.vector, if this JVM has it. That needs the classes of the vector
+     * source folder, which are only compiled by the vector build, and a JVM started with
+     * --add-modules jdk.incubator.vector. Like the virtual thread executor, the class is looked up at runtime so that
+     * nothing else depends on the incubator module.
+     * @param bits The width of the vectors: 128, 256 or 512, or 0 for the widest this CPU supports.
+     * @return The kernel, or null if the vector classes or the incubator module are missing.
+     * @throws IllegalArgumentException If the width is not supported.
+     */
+    static BatchKernel loadVectorKernel(int bits) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (BatchKernel) Class.forName("VectorQuadraticKernel").getDeclaredConstructor(int.class)
+                    .newInstance(bits);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw new IllegalStateException("Could not create the vector kernel", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the vector kernel", e);
+        }
+    }
+
+    /**
+     * Sets the kernel that solves the fast tier of every batch from now on.
+     * @param batchKernel The kernel, or null for the scalar loop.
+     */
+    static void useKernel(BatchKernel batchKernel) {
+        kernel = batchKernel;
+    }
+
+    /**
+     * Gets the name of the kernel that solves the fast tier of batches.
+     * @return The name of the BatchKernel, or scalar.
+     */
+    public static String getKernelName() {
+        BatchKernel batchKernel = kernel;
+        return batchKernel == null ? "scalar" : batchKernel.getName();
+    }
+
+    /**
+     * Gets the number of equations solved in a tier since the program started, over all threads. Roots taken from a
+     * {@link RootCache} are not counted.
+     * @param tier The tier.
+     * @return The number of equations.
+     */
+    public static long getTierCount(Tier tier) {
+        return TIER_COUNTS[tier.ordinal()].sum();
+    }
+
+    /**
+     * Formats the number of equations solved in each tier, and the share of each.
+     * @return The tier counts, on one line.
+     */
+    public static String getTierSummary() {
+        long total = 0;
+        for (Tier tier : Tier.values()) {
+            total += getTierCount(tier);
+        }
+        StringBuilder summary = new StringBuilder("Precision tiers:");
+        for (Tier tier : Tier.values()) {
+            long count = getTierCount(tier);
+            summary.append(String.format(" %s %d (%.3f%%)", tier.name().toLowerCase().replace('_', '-'), count,
+                    total == 0 ? 0.0 : count * 100.0 / total));
+        }
+        return summary.toString();
+    }
+
+    private static void add(Tier tier, int count) {
+        if (count > 0) {
+            TIER_COUNTS[tier.ordinal()].add(count);
+        }
+    }
+
+    /**
+     * Solves one equation, starting in the given tier and going up while the error bound of a tier is too large.
+     * Writes real1, imag1, real2 and imag2 to the first four elements of roots.
+     * @return The tier the roots were calculated in.
+     */
+    private static Tier solveOne(double a, double b, double c, Tier floor, double[] roots) {
+        if (a == 0) {
+            // With b zero as well there is no root at all
+            roots[0] = b == 0 ? Double.NaN : -c / b;
+            roots[1] = b == 0 ? Double.NaN : 0;
+            roots[2] = Double.NaN;
+            roots[3] = Double.NaN;
+            return Tier.LINEAR;
+        }
+        if (floor == Tier.FAST) {
+            double d = fastDiscriminant(a, b, c);
+            if (d == d) {
+                roots(a, b, c, d, roots);
+                return Tier.FAST;
+            }
+        }
+        return solvePrecise(a, b, c, floor, roots);
+    }
+
+    /**
+     * Calculates the discriminant in plain double arithmetic.
+     * @return The discriminant, or NaN if its error bound is too large and the equation needs a higher tier.
+     */
+    private static double fastDiscriminant(double a, double b, double c) {
+        // The computed discriminant is within 2u(b^2 + 4|ac|) of the exact one
+        double bb = b * b;
+        double ac4 = 4 * a * c;
+        double d = bb - ac4;
+        double scale = bb + Math.abs(ac4);
+        // Accept if that is at most FAST_ULPS roundings of |d|; sqrt halves the relative error, and for real roots the
+        // cancellation-free form adds |b| to sqrt(d), so the roots are off by no more than that either
+        if (2 * FAST_ULPS * Math.abs(d) >= scale && scale >= MIN_SCALE && scale <= MAX_SCALE) {
+            return d;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Solves one equation whose plain double discriminant was not accurate enough, or that starts in a higher tier.
+     * Coefficients whose products would overflow or underflow are scaled by a power of two first, which does not
+     * change the roots and is exact.
+     */
+    private static Tier solvePrecise(double a, double b, double c, Tier floor, double[] roots) {
+        double scale = b * b + Math.abs(4 * a * c);
+        if (!(scale >= MIN_SCALE && scale <= MAX_SCALE)) {
+            int exponent = Math.getExponent(Math.max(Math.abs(a), Math.max(Math.abs(b), Math.abs(c))));
+            a = Math.scalb(a, -exponent);
+            b = Math.scalb(b, -exponent);
+            c = Math.scalb(c, -exponent);
+            scale = b * b + Math.abs(4 * a * c);
+            if (!Double.isFinite(scale)) {
+                // Infinite or NaN coefficients, which no precision helps with
+                roots(a, b, c, b * b - 4 * a * c, roots);
+                return Tier.FAST;
+            }
+        }
+
+        // Kahan: b^2 = p + dp and 4ac = q + dq exactly, so d = (p - q) + (dp - dq) is off by one rounding of the sum
+        // and of dp - dq, which is tiny next to u * scale
+        double a4 = 4 * a;
+        double p = b * b;
+        double dp = Math.fma(b, b, -p);
+        double q = a4 * c;
+        double dq = Math.fma(a4, c, -q);
+        if (floor != Tier.DOUBLE_DOUBLE) {
+            double d = (p - q) + (dp - dq);
+            if (Math.abs(d) >= 2 * UNIT_ROUNDOFF * scale || (p == q && dp == dq)) {
+                roots(a, b, c, d, roots);
+                return Tier.FMA;
+            }
+        }
+
+        // Double-double discriminant: (p - q) + (dp - dq) with the rounding errors of both sums kept
+        double high = p - q;
+        double low = twoSumError(p, -q, high);
+        double tail = dp - dq;
+        low += twoSumError(dp, -dq, tail) + tail;
+        double d = high + low;
+        double dLow = twoSumError(high, low, d);
+        if (d == 0) {
+            roots[0] = -b / (2 * a);
+            roots[1] = 0;
+            roots[2] = roots[0];
+            roots[3] = 0;
+            return Tier.DOUBLE_DOUBLE;
+        }
+
+        // sqrt(|d|) as root + rootLow, with one Newton step on the rounded square root
+        double absD = Math.abs(d);
+        double absDLow = d < 0 ? -dLow : dLow;
+        double root = Math.sqrt(absD);
+        double rootLow = (Math.fma(-root, root, absD) + absDLow) / (2 * root);
+        if (d > 0) {
+            // q = -(b + sign(b) sqrt(d)) / 2 in double-double, then x = q / a and x = c / q rounded once each
+            double signedRoot = Math.copySign(root, b);
+            double sum = b + signedRoot;
+            double sumLow = twoSumError(b, signedRoot, sum) + Math.copySign(rootLow, b);
+            double qHigh = -0.5 * sum;
+            double qLow = -0.5 * sumLow;
+            double big = qHigh / a;
+            big += (Math.fma(-big, a, qHigh) + qLow) / a;
+            double small = c / qHigh;
+            small += (Math.fma(-small, qHigh, c) - small * qLow) / qHigh;
+            roots[0] = signedRoot > 0 ? small : big;
+            roots[1] = 0;
+            roots[2] = signedRoot > 0 ? big : small;
+            roots[3] = 0;
+        } else {
+            double a2 = 2 * a;
+            double imag = root / a2;
+            imag += (Math.fma(-imag, a2, root) + rootLow) / a2;
+            roots[0] = -b / a2;
+            roots[1] = imag;
+            roots[2] = roots[0];
+            roots[3] = -imag;
+        }
+        return Tier.DOUBLE_DOUBLE;
+    }
+
+    /**
+     * Gets the rounding error of sum = x + y, so that x + y equals sum plus the error exactly.
+     */
+    private static double twoSumError(double x, double y, double sum) {
+        double yVirtual = sum - x;
+        return (x - (sum - yVirtual)) + (y - yVirtual);
+    }
+
+    /**
+     * Writes both roots from a discriminant that is accurate enough, with the cancellation-free form for real roots.
+     * Real distinct roots put (-b + sqrt(d)) / 2a first, repeated and complex roots share the real part -b / 2a.
+     */
+    private static void roots(double a, double b, double c, double d, double[] roots) {
+        roots[0] = firstRootReal(a, b, c, d);
+        roots[1] = firstRootImag(a, d);
+        roots[2] = secondRootReal(a, b, c, d, roots[0]);
+        // Complex roots are conjugates of each other; a NaN discriminant gives NaN roots
+        roots[3] = d > 0 || d == 0 ? 0 : -roots[1];
+    }
+
+    /**
+     * Calculates the real part of the second root, which for repeated and complex roots is the first root's.
+     */
+    private static double secondRootReal(double a, double b, double c, double d, double firstReal) {
+        if (d > 0) {
+            double signedRoot = Math.copySign(Math.sqrt(d), b);
+            double q = -0.5 * (b + signedRoot);
+            // With b positive, q / a is (-b - sqrt(d)) / 2a, the second root
+            return signedRoot > 0 ? q / a : c / q;
+        }
+        return firstReal;
+    }
+
+    /**
+     * Calculates the real part of the first root, shared by getRoots and the batch kernel so they stay bit-identical.
+     */
+    private static double firstRootReal(double a, double b, double c, double d) {
+        if (d > 0) {
+            double signedRoot = Math.copySign(Math.sqrt(d), b);
+            double q = -0.5 * (b + signedRoot);
+            return signedRoot > 0 ? c / q : q / a;
+        }
+        return -b / (2 * a);
+    }
+
+    /**
+     * Calculates the imaginary part of the first root, which is zero unless the discriminant is negative.
+     */
+    private static double firstRootImag(double a, double d) {
+        if (d > 0 || d == 0) {
+            return 0;
+        }
+        return Math.sqrt(-d) / (2 * a);
+    }
 }
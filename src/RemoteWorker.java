@@ -0,0 +1,186 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RemoteWorker is a worker process for a MasterThread that runs on a DistributedBuffer. It connects to the master and
+ * runs the usual SlaveThreads in batch mode on a local Buffer: batches read from the socket go into the buffer, and a
+ * sender thread writes every solved batch back. The worker offers the master twice as many credits as it has
+ * threads, so every thread has a batch waiting while another one travels. It exits when the master disconnects.
+ */
+public class RemoteWorker {
+    private final String host;  // Host of the master
+    private final int port;     // Port of the master
+    private final int numThreads;   // Number of slave threads
+
+    /**
+     * Constructs a RemoteWorker.
+     *
+     * @param host       The host the master listens on.
+     * @param port       The port the master listens on.
+     * @param numThreads The number of slave threads to solve with.
+     */
+    public RemoteWorker(String host, int port, int numThreads) {
+        this.host = host;
+        this.port = port;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Connects to the master and solves the batches it sends until it disconnects, then prints the statistics of each
+     * slave thread.
+     *
+     * @throws IOException          If the master cannot be reached.
+     * @throws InterruptedException If the thread is interrupted while waiting on the buffer.
+     */
+    public void start() throws IOException, InterruptedException {
+        int credits = 2 * numThreads;
+        Buffer buffer = new Buffer(credits);
+        BlockingQueue<EquationBatch> free = new ArrayBlockingQueue<>(credits);   // Solved batches ready for reuse
+        MasterThread.ThreadStats[] threadStats = new MasterThread.ThreadStats[numThreads];
+        AtomicInteger solvedCount = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            threadStats[i] = new MasterThread.ThreadStats();
+            executor.execute(new SlaveThread(buffer, solvedCount, latch, i, threadStats, true));
+        }
+        SolverMonitor monitor = SolverMonitor.register("RemoteWorker", buffer, threadStats, solvedCount::get);
+
+        long startTime = System.currentTimeMillis();
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            channel.socket().setTcpNoDelay(true);
+            System.out.println("Connected to " + channel.getRemoteAddress() + " with " + credits + " credits");
+            ByteBuffer hello = ByteBuffer.allocate(16);
+            WireProtocol.writeHello(hello, credits);
+            hello.flip();
+            writeFully(channel, hello);
+
+            Thread sender = new Thread(() -> send(channel, buffer, free), "remote-worker-sender");
+            sender.start();
+            try {
+                receive(channel, buffer, free);
+            } finally {
+                sender.interrupt();
+                sender.join();
+            }
+        } finally {
+            // Let the slave threads finish what they hold and exit; at most one batch per credit is in the buffer,
+            // so the poison pills and the solved batches always fit
+            for (int i = 0; i < numThreads; i++) {
+                buffer.blockingPutBatch(SlaveThread.POISON_BATCH);
+            }
+            latch.await();
+            executor.shutdown();
+            monitor.close();
+        }
+
+        System.out.println("Master disconnected. Total solved: " + solvedCount.get());
+        for (int i = 0; i < numThreads; i++) {
+            System.out.printf("Thread %d processed %d equations\n", i, threadStats[i].getEquationsProcessed());
+            System.out.println("Solve time: " + threadStats[i].getSolveTime());
+        }
+        System.out.printf("\nTotal time connected: %d milliseconds\n", System.currentTimeMillis() - startTime);
+        System.out.println(QuadraticEquation.getTierSummary());
+    }
+
+    /**
+     * Reads BATCH frames into free batches and puts them into the buffer until the master disconnects.
+     */
+    private void receive(SocketChannel channel, Buffer buffer, BlockingQueue<EquationBatch> free)
+            throws IOException, InterruptedException {
+        ByteBuffer header = ByteBuffer.allocate(WireProtocol.LENGTH_BYTES + WireProtocol.HEADER_BYTES);
+        ByteBuffer body = ByteBuffer.allocate(1 << 16);
+        while (true) {
+            header.clear();
+            if (!readFully(channel, header)) {
+                return;
+            }
+            header.flip();
+            int length = header.getInt();
+            byte type = header.get();
+            long id = header.getLong();
+            int size = header.getInt();
+            if (type != WireProtocol.BATCH) {
+                throw new IOException("Unexpected frame type " + type);
+            }
+            int bodyLength = length - WireProtocol.HEADER_BYTES;
+            if (body.capacity() < bodyLength) {
+                body = ByteBuffer.allocate(bodyLength);
+            }
+            body.clear().limit(bodyLength);
+            if (!readFully(channel, body)) {
+                throw new EOFException("Master disconnected in the middle of a batch");
+            }
+            body.flip();
+
+            // The master never sends more batches than there are credits, so a free batch only runs out at the start
+            EquationBatch batch = free.poll();
+            if (batch == null || batch.capacity() < size) {
+                batch = new EquationBatch(Math.max(size, 1));
+            }
+            WireProtocol.readBatch(body, id, size, batch);
+            batch.setSubmitNanos(System.nanoTime());
+            SolverEvents.dispatch(buffer, batch);
+        }
+    }
+
+    /**
+     * Sender loop. Writes every solved batch back to the master as a RESULT frame.
+     */
+    private void send(SocketChannel channel, Buffer buffer, BlockingQueue<EquationBatch> free) {
+        ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        try {
+            while (true) {
+                // Only the batches the receiver read from the master go through this buffer
+                EquationBatch batch = (EquationBatch) buffer.blockingGetSolvedBatch();
+                int size = WireProtocol.resultFrameSize(batch.size());
+                if (out.capacity() < size) {
+                    out = ByteBuffer.allocate(size);
+                }
+                out.clear();
+                WireProtocol.writeResult(out, batch);
+                out.flip();
+                writeFully(channel, out);
+                free.offer(batch);
+            }
+        } catch (InterruptedException e) {
+            // The master disconnected
+        } catch (IOException e) {
+            if (channel.isOpen()) {
+                System.err.println("Could not send result: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer is full.
+     *
+     * @return False if the master disconnected before anything was read.
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Master disconnected in the middle of a frame");
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * ResultSink is a stage that receives solved batches, for example to write the roots to a file. A sink copies what it
+ * needs out of the batch before accept returns, so the caller may refill the batch straight away. Implementations
+ * must allow accept to be called from several threads.
+ * If the sink cannot keep up, accept may block until it has room again. Write errors are thrown as
+ * UncheckedIOException, so a sink can be passed wherever a Consumer of its batches is expected.
+ *
+ * @param <B> The batches the sink takes: EquationBatch if it needs quadratic equations, SolverBatch if any will do.
+ */
+public interface ResultSink<B extends SolverBatch> extends Consumer<B>, Closeable {
+}
@@ -0,0 +1,172 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * RingQueue is a bounded, lock-free, multi-producer multi-consumer queue. Every slot carries a sequence number that
+ * tells producers and consumers whose turn it is, and the head and tail cursors are claimed with compare-and-set.
+ * The cursors are padded so that producers and consumers do not invalidate each other's cache lines.
+ * The capacity is rounded up to the next power of two.
+ *
+ * @param <T> The type of the elements in the queue.
+ */
+public final class RingQueue<T> extends RingQueueCursors {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(RingQueueHead.class, "head", long.class);
+            TAIL = lookup.findVarHandle(RingQueueTail.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Constructs an empty queue.
+     * @param capacity     The minimum number of elements the queue can hold.
+     * @param waitStrategy What a thread does while the queue is full or empty.
+     */
+    public RingQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Adds an element if there is space.
+     * @param item The element to add.
+     * @return True if the element was added, false if the queue is full.
+     */
+    public boolean offer(T item) {
+        while (true) {
+            long position = tail;
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // The slot is free for this position, try to claim it
+                if (TAIL.compareAndSet(this, position, position + 1)) {
+                    items[index] = item;
+                    // Publish the element to consumers
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The slot still holds an element from the previous lap, so the queue is full
+                return false;
+            }
+            // Another producer claimed this position first, retry with the new tail
+        }
+    }
+
+    /**
+     * Removes an element if there is one.
+     * @return The removed element, or null if the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        while (true) {
+            long position = head;
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                // The slot holds the element for this position, try to claim it
+                if (HEAD.compareAndSet(this, position, position + 1)) {
+                    T item = (T) items[index];
+                    items[index] = null;
+                    // Hand the slot to the producer of the next lap
+                    sequences.lazySet(index, position + mask + 1);
+                    return item;
+                }
+            } else if (difference < 0) {
+                // Nothing has been published to this slot yet, so the queue is empty
+                return null;
+            }
+            // Another consumer claimed this position first, retry with the new head
+        }
+    }
+
+    /**
+     * Adds an element, waiting according to the wait strategy while the queue is full.
+     * @param item The element to add.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void put(T item) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(item)) {
+            waitStrategy.await(attempt++);
+        }
+    }
+
+    /**
+     * Removes an element, waiting according to the wait strategy while the queue is empty.
+     * @return The removed element.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public T take() throws InterruptedException {
+        int attempt = 0;
+        T item;
+        while ((item = poll()) == null) {
+            waitStrategy.await(attempt++);
+        }
+        return item;
+    }
+
+    /**
+     * Gets the number of elements the queue can hold.
+     * @return The capacity after rounding up to a power of two.
+     */
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Gets an estimate of the number of elements in the queue. The value may be stale while other threads are active.
+     * @return The approximate number of elements.
+     */
+    public int size() {
+        long size = tail - head;
+        return (int) Math.max(0, Math.min(size, items.length));
+    }
+}
+
+// The classes below lay out the head and tail cursors with 56 bytes of padding on each side, so each cursor sits on
+// its own cache line. Fields of a superclass are laid out before the fields of its subclasses.
+
+abstract class RingQueuePadding0 {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingQueueHead extends RingQueuePadding0 {
+    volatile long head;     // Position of the next element to remove
+}
+
+abstract class RingQueuePadding1 extends RingQueueHead {
+    long p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingQueueTail extends RingQueuePadding1 {
+    volatile long tail;     // Position of the next element to add
+}
+
+abstract class RingQueueCursors extends RingQueueTail {
+    long p21, p22, p23, p24, p25, p26, p27;
+}
@@ -0,0 +1,66 @@
+import javax.management.ConstructorParameters;
+
+/**
+ * RingStatistics is a snapshot of the traffic of one ring of a SolverBuffer: how many cells are occupied, how many
+ * items were put into and taken from the ring, and how long threads waited because the ring was full or empty. Long
+ * put waits mean the consumers of the ring are too slow, long get waits mean they are starved.
+ * The counts and wait times are totals since the buffer was created; a monitoring client gets rates by taking the
+ * difference of two snapshots over the time between them.
+ */
+public final class RingStatistics {
+    private final String name;
+    private final int depth;
+    private final long puts;
+    private final long gets;
+    private final long putWaitNanos;
+    private final long getWaitNanos;
+
+    /**
+     * Constructs a snapshot.
+     * @param name         The name of the ring.
+     * @param depth        The number of occupied cells.
+     * @param puts         The number of items put into the ring.
+     * @param gets         The number of items taken from the ring.
+     * @param putWaitNanos The time threads waited for a full ring to have space.
+     * @param getWaitNanos The time threads waited for an empty ring to have an item.
+     */
+    @ConstructorParameters({"name", "depth", "puts", "gets", "putWaitNanos", "getWaitNanos"})
+    public RingStatistics(String name, int depth, long puts, long gets, long putWaitNanos, long getWaitNanos) {
+        this.name = name;
+        this.depth = depth;
+        this.puts = puts;
+        this.gets = gets;
+        this.putWaitNanos = putWaitNanos;
+        this.getWaitNanos = getWaitNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public long getGets() {
+        return gets;
+    }
+
+    public long getPutWaitNanos() {
+        return putWaitNanos;
+    }
+
+    public long getGetWaitNanos() {
+        return getWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: depth %d, puts %d, gets %d, put wait %dms, get wait %dms", name, depth, puts, gets,
+                putWaitNanos / 1_000_000, getWaitNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RootCache remembers the roots of equations that were already solved. Multiplying a, b and c by the same factor does
+ * not change the roots, so entries are keyed on the normalized coefficients b/a and c/a, and 2x^2 + 4x + 2 = 0 hits the
+ * entry of x^2 + 2x + 1 = 0.
+ * <p>
+ * By default keys must match exactly. With quantization the lowest bits of the mantissas of b/a and c/a are rounded
+ * away first, so equations whose normalized coefficients differ by less than about 2^(bits - 52) relative share an
+ * entry, and a hit returns the roots of whichever of them was solved first.
+ * <p>
+ * The cache holds a fixed number of entries in primitive arrays, so it creates no objects per entry. It is split into
+ * stripes, each with its own lock, and every key maps to a set of {@value #WAYS} slots in one stripe. When a set is
+ * full the entry used least often is evicted. Use counts are small saturating counters that are halved on every
+ * eviction in the set, so entries that were popular long ago make way for new ones, as in TinyLFU.
+ */
+public class RootCache {
+    static final int WAYS = 8;  // Slots per set
+    static final int MAX_CAPACITY = 1 << 28;    // Largest capacity, so the root array stays within an int index
+    private static final int MAX_FREQUENCY = 15;    // Use counters saturate here
+    private static final ThreadLocal<double[][]> SCRATCH =     // Arrays of one for getRoots, reused by each thread
+            ThreadLocal.withInitial(() -> new double[7][1]);
+
+    private final int quantizeBits;     // Mantissa bits rounded away from each key, 0 for exact keys
+    private final int setMask;          // Number of sets minus one
+    private final int stripeShift;      // Shifts a set index to its stripe index
+    private final ReentrantLock[] locks;    // One lock per stripe of sets
+    private final long[] keys;          // Two longs per slot: the bits of b/a and c/a
+    private final double[] roots;       // Four doubles per slot: real1, imag1, real2, imag2 for a positive a
+    private final byte[] frequency;     // Use counter per slot, 0 for an empty slot
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity     The maximum number of entries, up to {@value #MAX_CAPACITY}. It is rounded up to a power of
+     *                     two of at least {@value #WAYS}.
+     * @param quantizeBits The number of low mantissa bits, from 0 to 52, rounded away from the normalized
+     *                     coefficients before they are compared. 0 only matches identical normalized coefficients.
+     */
+    public RootCache(int capacity, int quantizeBits) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Cache capacity must be between 1 and " + MAX_CAPACITY + ": "
+                    + capacity);
+        }
+        if (quantizeBits < 0 || quantizeBits > 52) {
+            throw new IllegalArgumentException("Quantization must be between 0 and 52 bits: " + quantizeBits);
+        }
+        int sets = Math.max(1, Integer.highestOneBit(Math.max(WAYS, capacity) - 1) * 2 / WAYS);
+        int stripes = Math.min(sets, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) * 2);
+        this.quantizeBits = quantizeBits;
+        this.setMask = sets - 1;
+        this.stripeShift = Integer.numberOfTrailingZeros(sets / stripes);
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.keys = new long[2 * sets * WAYS];
+        this.roots = new double[4 * sets * WAYS];
+        this.frequency = new byte[sets * WAYS];
+    }
+
+    /**
+     * Solves a range of equations like {@link QuadraticEquation#solve}, taking the roots from the cache where possible
+     * and adding the roots of every other equation to it. Equations with a equal to zero are not cached.
+     *
+     * @param a      The coefficients of x^2.
+     * @param b      The coefficients of x.
+     * @param c      The constant terms.
+     * @param offset The index of the first equation to solve.
+     * @param length The number of equations to solve.
+     * @param real1  Receives the real part of the first root.
+     * @param imag1  Receives the imaginary part of the first root.
+     * @param real2  Receives the real part of the second root.
+     * @param imag2  Receives the imaginary part of the second root.
+     */
+    public void solve(double[] a, double[] b, double[] c, int offset, int length,
+                      double[] real1, double[] imag1, double[] real2, double[] imag2) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            double p = b[i] / a[i] + 0.0;   // Adding zero turns -0.0 into 0.0 so both share a key
+            double q = c[i] / a[i] + 0.0;
+            if (!Double.isFinite(p) || !Double.isFinite(q)) {
+                QuadraticEquation.solve(a, b, c, i, 1, real1, imag1, real2, imag2);
+                continue;
+            }
+            long keyP = quantize(p);
+            long keyQ = quantize(q);
+            int set = hash(keyP, keyQ) & setMask;
+            ReentrantLock lock = locks[set >>> stripeShift];
+            boolean negative = a[i] < 0;
+
+            lock.lock();
+            try {
+                int slot = find(set, keyP, keyQ);
+                if (slot >= 0) {
+                    if (frequency[slot] < MAX_FREQUENCY) {
+                        frequency[slot]++;
+                    }
+                    read(slot, negative, i, real1, imag1, real2, imag2);
+                    hits.increment();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Solve outside the lock, so a miss is exactly the uncached result
+            misses.increment();
+            QuadraticEquation.solve(a, b, c, i, 1, real1, imag1, real2, imag2);
+
+            lock.lock();
+            try {
+                if (find(set, keyP, keyQ) < 0) {
+                    write(victim(set), keyP, keyQ, negative, real1[i], imag1[i], real2[i], imag2[i]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Calculates the first root of a single equation, like {@link QuadraticEquation#getRoots()}, through the cache.
+     * The equation goes through arrays of one that each thread reuses, so the returned root is the only object created.
+     *
+     * @param equation The equation to solve.
+     * @return The first root.
+     */
+    public Complex getRoots(QuadraticEquation equation) {
+        double[][] scratch = SCRATCH.get();
+        scratch[0][0] = equation.getA();
+        scratch[1][0] = equation.getB();
+        scratch[2][0] = equation.getC();
+        solve(scratch[0], scratch[1], scratch[2], 0, 1, scratch[3], scratch[4], scratch[5], scratch[6]);
+        return new Complex(scratch[3][0], scratch[4][0]);
+    }
+
+    /**
+     * Gets the number of equations whose roots came from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of equations that had to be solved.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of entries that were dropped to make room for new ones.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the maximum number of entries.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return frequency.length;
+    }
+
+    /**
+     * Describes the counters and the hit rate.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return String.format("hits=%d misses=%d evictions=%d hit rate=%.1f%%", hitCount, total - hitCount,
+                getEvictions(), total == 0 ? 0.0 : 100.0 * hitCount / total);
+    }
+
+    /**
+     * Rounds away the configured number of low mantissa bits. Rounding may carry into the exponent, which still
+     * gives the nearest representable key.
+     */
+    private long quantize(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (quantizeBits == 0) {
+            return bits;
+        }
+        return (bits + (1L << (quantizeBits - 1))) & -(1L << quantizeBits);
+    }
+
+    private static int hash(long keyP, long keyQ) {
+        long h = keyP * 0x9E3779B97F4A7C15L + keyQ;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Finds the slot of a key in its set.
+     *
+     * @return The slot, or -1 if the key is not cached.
+     */
+    private int find(int set, long keyP, long keyQ) {
+        int first = set * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (frequency[slot] != 0 && keys[2 * slot] == keyP && keys[2 * slot + 1] == keyQ) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Picks the slot for a new entry: an empty one if the set has one, otherwise the least used one. Evicting halves
+     * every use counter of the set.
+     */
+    private int victim(int set) {
+        int first = set * WAYS;
+        int victim = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (frequency[slot] == 0) {
+                return slot;
+            }
+            if (frequency[slot] < frequency[victim]) {
+                victim = slot;
+            }
+        }
+        for (int slot = first; slot < first + WAYS; slot++) {
+            frequency[slot] = (byte) Math.max(1, frequency[slot] >> 1);
+        }
+        evictions.increment();
+        return victim;
+    }
+
+    /**
+     * Stores the roots of an equation. Entries hold the roots in the order a positive a gives, so for a negative a the
+     * two roots are swapped: dividing by a negative 2a swaps which root comes first and flips the imaginary part.
+     */
+    private void write(int slot, long keyP, long keyQ, boolean negative,
+                       double real1, double imag1, double real2, double imag2) {
+        keys[2 * slot] = keyP;
+        keys[2 * slot + 1] = keyQ;
+        int base = 4 * slot;
+        roots[base] = negative ? real2 : real1;
+        roots[base + 1] = negative ? imag2 : imag1;
+        roots[base + 2] = negative ? real1 : real2;
+        roots[base + 3] = negative ? imag1 : imag2;
+        frequency[slot] = 1;
+    }
+
+    private void read(int slot, boolean negative, int i,
+                      double[] real1, double[] imag1, double[] real2, double[] imag2) {
+        int first = 4 * slot + (negative ? 2 : 0);
+        int second = 4 * slot + (negative ? 0 : 2);
+        real1[i] = roots[first];
+        imag1[i] = roots[first + 1];
+        real2[i] = roots[second];
+        imag2[i] = roots[second + 1];
+    }
+}
@@ -2,75 +2,194 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SlaveThread implements Runnable {
-    private final Buffer buffer;    // Buffer for SlaveThread to retrieve equations and to place corresponding roots into
+    /**
+     * Put into the buffer once per SlaveThread to make it leave its loop in single equation mode. Equations before it
+     * in the buffer are solved first.
+     */
+    static final QuadraticEquation POISON_EQUATION = new QuadraticEquation(0, 0, 0);
+    /**
+     * Put into the buffer once per SlaveThread to make it leave its loop in batch mode.
+     */
+    static final EquationBatch POISON_BATCH = new EquationBatch(1);
+
+    /**
+     * State is what a SlaveThread is doing, published through its ThreadStats so a monitor can tell starved workers
+     * from workers that are blocked on a full results ring.
+     */
+    public enum State {
+        /** Not started yet. */
+        NEW,
+        /** Waiting for an equation or a batch to arrive in the buffer. */
+        WAITING_FOR_WORK,
+        /** Solving an equation or a batch. */
+        SOLVING,
+        /** Putting roots or a solved batch into the buffer, which waits while the results ring is full. */
+        DELIVERING,
+        /** Left its loop after a poison pill or an interrupt. */
+        EXITED
+    }
+
+    private final SolverBuffer buffer;    // Buffer for SlaveThread to retrieve equations and to place corresponding roots into
     private final AtomicInteger solvedCount;    // To keep track of total number of equations solved for
     private final int id;   // Identifier to distinguish between different threads
-    private final CountDownLatch latch;     // Used to synchronize the completion of SlaveThread instances
+    private final CountDownLatch latch;     // Counted down once when this SlaveThread exits
     private final MasterThread.ThreadStats[] threadStats;   // Array of ThreadStat objects to track information about each SlaveThread
+    private final boolean batchMode;    // Whether to move SolverBatch objects instead of single equations
+    private final RootCache cache;      // Cache of roots shared by all SlaveThreads, or null to solve every equation
 
     /**
      * Constructor for SlaveThread.
      *
      * @param buffer        The buffer from which the SlaveThread retrieves QuadraticEquation objects and roots get place.
      * @param solvedCount   The AtomicInteger to keep track of the total number of equations solved.
-     * @param latch         The CountDownLatch to synchronize the completion of SlaveThreads.
+     * @param latch         The CountDownLatch counted down once when the SlaveThread exits.
      * @param id            The identifier of the SlaveThread.
      * @param threadStats   The array of ThreadStats objects to track information for each SlaveThread.
      */
-    public SlaveThread(Buffer buffer, AtomicInteger solvedCount, CountDownLatch latch, int id,
+    public SlaveThread(SolverBuffer buffer, AtomicInteger solvedCount, CountDownLatch latch, int id,
                        MasterThread.ThreadStats[] threadStats) {
+        this(buffer, solvedCount, latch, id, threadStats, false);
+    }
+
+    /**
+     * Constructor for SlaveThread that can run in batch mode.
+     *
+     * @param buffer        The buffer from which the SlaveThread retrieves equations and roots get place.
+     * @param solvedCount   The AtomicInteger to keep track of the total number of equations solved.
+     * @param latch         The CountDownLatch counted down once when the SlaveThread exits.
+     * @param id            The identifier of the SlaveThread.
+     * @param threadStats   The array of ThreadStats objects to track information for each SlaveThread.
+     * @param batchMode     If true, the SlaveThread solves whole SolverBatch objects instead of single equations.
+     */
+    public SlaveThread(SolverBuffer buffer, AtomicInteger solvedCount, CountDownLatch latch, int id,
+                       MasterThread.ThreadStats[] threadStats, boolean batchMode) {
+        this(buffer, solvedCount, latch, id, threadStats, batchMode, null);
+    }
+
+    /**
+     * Constructor for SlaveThread that looks roots up in a cache before solving.
+     *
+     * @param buffer        The buffer from which the SlaveThread retrieves equations and roots get place.
+     * @param solvedCount   The AtomicInteger to keep track of the total number of equations solved.
+     * @param latch         The CountDownLatch counted down once when the SlaveThread exits.
+     * @param id            The identifier of the SlaveThread.
+     * @param threadStats   The array of ThreadStats objects to track information for each SlaveThread.
+     * @param batchMode     If true, the SlaveThread solves whole SolverBatch objects instead of single equations.
+     * @param cache         The cache shared by all SlaveThreads, or null to solve every equation.
+     */
+    public SlaveThread(SolverBuffer buffer, AtomicInteger solvedCount, CountDownLatch latch, int id,
+                       MasterThread.ThreadStats[] threadStats, boolean batchMode, RootCache cache) {
         this.buffer = buffer;
         this.solvedCount = solvedCount;
         this.id = id;
         this.latch = latch;
         this.threadStats = threadStats;
+        this.batchMode = batchMode;
+        this.cache = cache;
     }
 
     /**
      * The run method executes the processing logic for the SlaveThread. This method is called when the thread is started.
      * The SlaveThread retrieves quadratic equations from a shared buffer, solves them, and stores the resulting
-     * roots back into the buffer. Thread-specific statistics are updated, and the CountDownLatch is used for
-     * synchronization to signal the completion of equation processing. This method continues running until the equation
-     * buffer is empty. The method handles InterruptedException by interrupting the current thread
-     * if an interruption occurs during execution.
+     * roots back into the buffer. Thread-specific statistics are updated. This method continues running until it takes
+     * a poison pill ({@link #POISON_EQUATION} or {@link #POISON_BATCH}) from the buffer, and then counts the
+     * CountDownLatch down once, so waiting on a latch of one count per SlaveThread waits until all of them have exited.
+     * The method handles InterruptedException by interrupting the current thread if an interruption occurs during
+     * execution.
      */
     @Override
     public void run() {
         try {
-            // Continue processing equations until the equation buffer is empty
-            while (true) {
+            if (batchMode) {
+                runBatches();
+            } else {
+                runEquations();
+            }
+        } catch (InterruptedException e) {
+            // Interrupt current thread if InterruptedException is thrown
+            Thread.currentThread().interrupt();
+        } finally {
+            threadStats[id].setState(State.EXITED);
+            latch.countDown();
+        }
+    }
 
-                // Retrieve a quadratic equation from the buffer
-                QuadraticEquation equation = buffer.blockingGetEquation();
-                if (equation == null) {
-                    // If buffer empty exit loop
-                    break;
-                }
+    /**
+     * Single equation processing loop.
+     */
+    private void runEquations() throws InterruptedException {
+        // Continue processing equations until a poison pill arrives
+        while (true) {
 
-                // Solve the equation and retrieve the roots
-                Complex roots = equation.getRoots();
+            // Retrieve a quadratic equation from the buffer
+            threadStats[id].setState(State.WAITING_FOR_WORK);
+            QuadraticEquation equation = buffer.blockingGetEquation();
+            if (equation == null || equation == POISON_EQUATION) {
+                // Asked to stop, exit loop
+                break;
+            }
 
-                // Add roots to buffer
-                buffer.blockingPutRoots(roots);
+            // Solve the equation and retrieve the roots
+            threadStats[id].setState(State.SOLVING);
+            long solveStart = System.nanoTime();
+            Complex roots = cache == null ? equation.getRoots() : cache.getRoots(equation);
+            threadStats[id].getSolveTime().record(System.nanoTime() - solveStart);
 
-                // Increment number of solvedCount and retrieve the updated value
-                solvedCount.incrementAndGet();
+            // Add roots to buffer
+            threadStats[id].setState(State.DELIVERING);
+            buffer.blockingPutRoots(roots);
 
-                // Update stats for current thread
-                threadStats[id].incrementEquationsProcessed();
+            // Increment number of solvedCount and retrieve the updated value
+            solvedCount.incrementAndGet();
 
-                // Decrease the count of the latch to indicate processing completed for current equation
-                latch.countDown();
+            // Update stats for current thread
+            threadStats[id].incrementEquationsProcessed();
+        }
+    }
 
+    /**
+     * Batch mode processing loop. Retrieves whole batches of equations from the buffer, solves them with the
+     * allocation-free kernel and hands the same batch back as solved.
+     */
+    private void runBatches() throws InterruptedException {
+        while (true) {
+            threadStats[id].setState(State.WAITING_FOR_WORK);
+            SolverBatch batch = buffer.blockingGetBatch();
+            if (batch == null || batch == POISON_BATCH) {
+                break;
             }
 
+            // Time spent in the buffer, then the average solve time of the batch, for every equation in it
+            threadStats[id].setState(State.SOLVING);
+            SolverEvents.Solve solveEvent = new SolverEvents.Solve();
+            solveEvent.begin();
+            long solveStart = System.nanoTime();
+            threadStats[id].getQueueWait().record(solveStart - batch.getSubmitNanos(), batch.size());
+            batch.solve(cache);
+            if (batch.size() > 0) {
+                threadStats[id].getSolveTime().record((System.nanoTime() - solveStart) / batch.size(),
+                        batch.size());
+            }
+            if (solveEvent.shouldCommit()) {
+                solveEvent.set(id, batch);
+                solveEvent.queueWait = solveStart - batch.getSubmitNanos();
+                solveEvent.commit();
+            }
 
-        } catch (InterruptedException e) {
-            // Interrupt current thread if InterruptedException is thrown
-            Thread.currentThread().interrupt();
+            // Count before handing the batch back so the master never sees a solved batch that is not counted yet
+            solvedCount.addAndGet(batch.size());
+            threadStats[id].addEquationsProcessed(batch.size());
+
+            threadStats[id].setState(State.DELIVERING);
+            SolverEvents.Delivery deliveryEvent = new SolverEvents.Delivery();
+            deliveryEvent.begin();
+            buffer.blockingPutSolvedBatch(batch);
+            if (deliveryEvent.shouldCommit()) {
+                deliveryEvent.set(id, batch);
+                deliveryEvent.commit();
+            }
         }
     }
 
-
 }
 
@@ -0,0 +1,72 @@
+/**
+ * SolvedEquation is the result a {@link SolverProcessor} publishes for one equation: both roots, tagged with the
+ * sequence number of the equation, which counts the equations the processor received from zero.
+ */
+public class SolvedEquation {
+    private final long sequence;
+    private final double real1;
+    private final double imag1;
+    private final double real2;
+    private final double imag2;
+
+    /**
+     * Constructs a result.
+     * @param sequence The sequence number of the equation.
+     * @param real1    The real part of the first root.
+     * @param imag1    The imaginary part of the first root.
+     * @param real2    The real part of the second root.
+     * @param imag2    The imaginary part of the second root.
+     */
+    public SolvedEquation(long sequence, double real1, double imag1, double real2, double imag2) {
+        this.sequence = sequence;
+        this.real1 = real1;
+        this.imag1 = imag1;
+        this.real2 = real2;
+        this.imag2 = imag2;
+    }
+
+    /**
+     * Gets the sequence number of the equation, its position in the stream of equations the processor received.
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the first root, the same root that {@link QuadraticEquation#getRoots()} returns.
+     * @return The first root.
+     */
+    public Complex getRoot1() {
+        return new Complex(real1, imag1);
+    }
+
+    /**
+     * Gets the second root. For complex roots it is the conjugate of the first.
+     * @return The second root.
+     */
+    public Complex getRoot2() {
+        return new Complex(real2, imag2);
+    }
+
+    public double getReal1() {
+        return real1;
+    }
+
+    public double getImag1() {
+        return imag1;
+    }
+
+    public double getReal2() {
+        return real2;
+    }
+
+    public double getImag2() {
+        return imag2;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + ": " + getRoot1() + ", " + getRoot2();
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * SolverBatch is a reusable block of polynomials and their roots that moves through a {@link SolverBuffer} and is
+ * solved by a SlaveThread. The buffers, the slave threads and the {@link EquationSolver} only need what this interface
+ * offers, so they carry batches of quadratic equations and batches of polynomials of any degree alike. Stages that
+ * need the coefficients of quadratic equations, such as output files and remote workers, take an
+ * {@link EquationBatch}.
+ */
+public interface SolverBatch {
+
+    /**
+     * Empties the batch so it can be refilled.
+     * @param firstIndex The job-wide index of the first polynomial that will be added.
+     */
+    void reset(long firstIndex);
+
+    /**
+     * Solves every polynomial in the batch, storing the roots in the batch.
+     */
+    void solve();
+
+    /**
+     * Solves every polynomial in the batch through a cache, which returns the roots of equations it has seen before.
+     * The cache only holds quadratic equations, so batches of other degrees solve every polynomial.
+     * @param cache The cache to use, or null to solve every polynomial.
+     */
+    void solve(RootCache cache);
+
+    /**
+     * Gets the number of polynomials in the batch.
+     * @return The number of polynomials.
+     */
+    int size();
+
+    /**
+     * Gets the maximum number of polynomials the batch can hold.
+     * @return The capacity.
+     */
+    int capacity();
+
+    /**
+     * Gets the degree of the polynomials in the batch, which is also the number of roots each of them has.
+     * @return The degree, 2 for quadratic equations.
+     */
+    int getDegree();
+
+    /**
+     * Gets the real part of one root of a polynomial.
+     * @param i    The index of the polynomial in the batch.
+     * @param root The index of the root, from 0 to degree - 1.
+     * @return The real part.
+     */
+    double getRootReal(int i, int root);
+
+    /**
+     * Gets the imaginary part of one root of a polynomial.
+     * @param i    The index of the polynomial in the batch.
+     * @param root The index of the root, from 0 to degree - 1.
+     * @return The imaginary part.
+     */
+    double getRootImag(int i, int root);
+
+    /**
+     * Records the time the batch is handed to the slave threads, so queue wait and end-to-end latency can be measured.
+     * @param submitNanos The current System.nanoTime().
+     */
+    void setSubmitNanos(long submitNanos);
+
+    /**
+     * Gets the time the batch was handed to the slave threads.
+     * @return The System.nanoTime() recorded by {@link #setSubmitNanos}.
+     */
+    long getSubmitNanos();
+
+    /**
+     * Gets the job-wide index of the first polynomial in the batch.
+     * @return The index of the first polynomial.
+     */
+    long getFirstIndex();
+}
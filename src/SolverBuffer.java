@@ -0,0 +1,51 @@
+/**
+ * SolverBuffer is the common interface of the buffers that carry quadratic equations from the MasterThread to the
+ * SlaveThreads of the same process and carry the roots back. On top of the {@link BatchBuffer} side that submits and
+ * collects batches, it has the side the SlaveThreads use to take batches and hand them back solved, and a ring of
+ * single equations and one of their roots. Every method blocks until it can complete, so callers can treat all
+ * implementations the same way.
+ */
+public interface SolverBuffer extends BatchBuffer {
+
+    /**
+     * Adds a quadratic equation to the buffer, waiting while the buffer is full.
+     * @param equation The quadratic equation to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void blockingPutEquation(QuadraticEquation equation) throws InterruptedException;
+
+    /**
+     * Retrieves a quadratic equation from the buffer, waiting while the buffer is empty.
+     * @return The retrieved quadratic equation.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    QuadraticEquation blockingGetEquation() throws InterruptedException;
+
+    /**
+     * Adds roots to the buffer, waiting while the buffer is full.
+     * @param roots The roots to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void blockingPutRoots(Complex roots) throws InterruptedException;
+
+    /**
+     * Retrieves roots from the buffer, waiting while the buffer is empty.
+     * @return The retrieved roots.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Complex blockingGetRoots() throws InterruptedException;
+
+    /**
+     * Retrieves a batch of unsolved equations from the buffer, waiting while the buffer is empty.
+     * @return The retrieved batch.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    SolverBatch blockingGetBatch() throws InterruptedException;
+
+    /**
+     * Adds a solved batch to the buffer, waiting while the buffer is full.
+     * @param batch The solved batch to add to the buffer.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void blockingPutSolvedBatch(SolverBatch batch) throws InterruptedException;
+}
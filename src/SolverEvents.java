@@ -0,0 +1,91 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * SolverEvents holds the JDK Flight Recorder events of the batch pipeline, one per stage a batch passes through:
+ * a producer dispatching it into the buffer, a SlaveThread solving it, and the SlaveThread delivering it back.
+ * The duration of a dispatch or a delivery is the time the thread was blocked on a full ring, so a recording shows
+ * which stage the time of a slow run went to. The events are only committed while a recording enables them, for
+ * example after {@code jcmd <pid> JFR.start}; otherwise they cost a check per batch.
+ */
+public final class SolverEvents {
+
+    private SolverEvents() {
+    }
+
+    /**
+     * Puts a batch into the buffer and records a {@link Dispatch} event for it.
+     * @param buffer The buffer.
+     * @param batch  The batch to put.
+     * @throws InterruptedException If the thread is interrupted while waiting for space.
+     */
+    static void dispatch(BatchBuffer buffer, SolverBatch batch) throws InterruptedException {
+        Dispatch event = new Dispatch();
+        event.begin();
+        buffer.blockingPutBatch(batch);
+        if (event.shouldCommit()) {
+            event.set(-1, batch);
+            event.commit();
+        }
+    }
+
+    /**
+     * BatchEvent holds the fields every event of the pipeline has.
+     */
+    @Category("Quadratic Solver")
+    @StackTrace(false)
+    abstract static class BatchEvent extends Event {
+        @Label("Worker")
+        @Description("Id of the SlaveThread, or -1 for a producer")
+        int worker;
+
+        @Label("First Index")
+        @Description("Index of the first equation of the batch in its job")
+        long firstIndex;
+
+        @Label("Equations")
+        int size;
+
+        void set(int worker, SolverBatch batch) {
+            this.worker = worker;
+            this.firstIndex = batch.getFirstIndex();
+            this.size = batch.size();
+        }
+    }
+
+    /**
+     * Dispatch is a producer putting a batch into the buffer.
+     */
+    @Name("quadratic.BatchDispatch")
+    @Label("Batch Dispatch")
+    @Description("A batch put into the buffer; the duration is the time blocked on a full batch ring")
+    static final class Dispatch extends BatchEvent {
+    }
+
+    /**
+     * Solve is a SlaveThread solving a batch.
+     */
+    @Name("quadratic.BatchSolve")
+    @Label("Batch Solve")
+    @Description("A batch solved by a SlaveThread")
+    static final class Solve extends BatchEvent {
+        @Label("Queue Wait")
+        @Description("Time from submission until the SlaveThread took the batch")
+        @Timespan
+        long queueWait;
+    }
+
+    /**
+     * Delivery is a SlaveThread putting a solved batch back into the buffer.
+     */
+    @Name("quadratic.ResultDelivery")
+    @Label("Result Delivery")
+    @Description("A solved batch put into the buffer; the duration is the time blocked on a full results ring")
+    static final class Delivery extends BatchEvent {
+    }
+}
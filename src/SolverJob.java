@@ -0,0 +1,166 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SolverJob is one job submitted to a {@link SolverService}: a set of equations that is solved together and completes
+ * when the last of its batches has been solved. The job holds the roots of its equations, in input order, and its own
+ * statistics, so jobs that share the service's threads can still be told apart.
+ */
+public class SolverJob {
+    private final long id;      // Number of the job within its service
+    private final int size;     // Number of equations in the job
+    private final double[] real1;
+    private final double[] imag1;
+    private final double[] real2;
+    private final double[] imag2;
+    private final AtomicInteger remainingBatches;   // Batches not solved yet
+    private final CompletableFuture<SolverJob> done = new CompletableFuture<>();
+    private final LatencyHistogram latency = new LatencyHistogram();   // Submit-to-solved latency of every equation
+    private final long submitNanos;     // System.nanoTime() when the job was submitted
+    private volatile long completeNanos;    // System.nanoTime() when the last batch was solved
+
+    /**
+     * Constructs a job. Only the SolverService creates jobs.
+     *
+     * @param id      The number of the job.
+     * @param size    The number of equations.
+     * @param batches The number of batches the equations are split into.
+     */
+    SolverJob(long id, int size, int batches) {
+        this.id = id;
+        this.size = size;
+        this.real1 = new double[size];
+        this.imag1 = new double[size];
+        this.real2 = new double[size];
+        this.imag2 = new double[size];
+        this.remainingBatches = new AtomicInteger(batches);
+        this.submitNanos = System.nanoTime();
+        if (batches == 0) {
+            completeNanos = submitNanos;
+            done.complete(this);
+        }
+    }
+
+    /**
+     * Copies the roots of a solved batch into the job. The batch's first index is the index of its first equation
+     * within the job. Completes the job when this was its last batch.
+     *
+     * @param batch The solved batch.
+     */
+    void complete(EquationBatch batch) {
+        int first = (int) batch.getFirstIndex();
+        for (int i = 0; i < batch.size(); i++) {
+            real1[first + i] = batch.getReal1(i);
+            imag1[first + i] = batch.getImag1(i);
+            real2[first + i] = batch.getReal2(i);
+            imag2[first + i] = batch.getImag2(i);
+        }
+        latency.record(System.nanoTime() - batch.getSubmitNanos(), batch.size());
+        if (remainingBatches.decrementAndGet() == 0) {
+            completeNanos = System.nanoTime();
+            done.complete(this);
+        }
+    }
+
+    /**
+     * Fails the job, for example because the service was closed before all of its batches were solved.
+     *
+     * @param cause Why the job failed.
+     */
+    void fail(Throwable cause) {
+        done.completeExceptionally(cause);
+    }
+
+    /**
+     * Gets a future that completes with this job once every equation has been solved.
+     *
+     * @return The future.
+     */
+    public CompletableFuture<SolverJob> getFuture() {
+        return done;
+    }
+
+    /**
+     * Waits until every equation of the job has been solved.
+     *
+     * @return This job.
+     * @throws InterruptedException  If the thread is interrupted while waiting.
+     * @throws IllegalStateException If the job failed.
+     */
+    public SolverJob await() throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Job " + id + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Checks whether every equation of the job has been solved.
+     *
+     * @return True if the job is complete.
+     */
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * Gets the number of the job within its service.
+     *
+     * @return The job id.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the number of equations in the job.
+     *
+     * @return The number of equations.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the time from submitting the job until its last batch was solved.
+     *
+     * @return The time in nanoseconds, or the time so far if the job is still running.
+     */
+    public long getElapsedNanos() {
+        return (done.isDone() ? completeNanos : System.nanoTime()) - submitNanos;
+    }
+
+    /**
+     * Gets the time from submitting each equation's batch until it was solved.
+     *
+     * @return The latency histogram in nanoseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public double getReal1(int i) {
+        return real1[i];
+    }
+
+    public double getImag1(int i) {
+        return imag1[i];
+    }
+
+    public double getReal2(int i) {
+        return real2[i];
+    }
+
+    public double getImag2(int i) {
+        return imag2[i];
+    }
+
+    @Override
+    public String toString() {
+        long elapsed = getElapsedNanos();
+        return String.format("Job %d: %d equations in %.3f ms (%.0f equations/s), latency %s", id, size,
+                elapsed / 1e6, elapsed > 0 ? size * 1e9 / elapsed : 0.0, latency);
+    }
+}
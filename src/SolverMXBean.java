@@ -0,0 +1,51 @@
+/**
+ * SolverMXBean is the management interface of a running solver. It is registered with the platform MBean server by
+ * {@link SolverMonitor} under {@value SolverMonitor#OBJECT_NAME} and a name of its own, so it can be watched with
+ * jconsole or any other JMX client while equations are being solved. Every value is read live and may be stale by the
+ * time it is shown.
+ */
+public interface SolverMXBean {
+
+    /**
+     * Gets the number of cells in each ring of the buffer.
+     * @return The capacity of the buffer.
+     */
+    int getCapacity();
+
+    /**
+     * Gets how many equations and batches are waiting for a worker.
+     * @return The number of occupied cells in the equation and batch rings.
+     */
+    int getPendingEquations();
+
+    /**
+     * Gets how many roots and solved batches are waiting to be collected.
+     * @return The number of occupied cells in the roots and solved batch rings.
+     */
+    int getPendingResults();
+
+    /**
+     * Gets the number of equations solved so far.
+     * @return The number of solved equations.
+     */
+    long getSolvedCount();
+
+    /**
+     * Gets a snapshot of each ring of the buffer. The counts are totals, so reading them does not change what another
+     * client reads; a client gets rates from the difference between two of its own snapshots.
+     * @return One snapshot per ring, or none if the buffer does not count its traffic.
+     */
+    RingStatistics[] getRings();
+
+    /**
+     * Gets what each worker thread is doing right now.
+     * @return The {@link SlaveThread.State} of each worker, by id.
+     */
+    String[] getWorkerStates();
+
+    /**
+     * Gets the number of equations each worker thread has solved.
+     * @return The count of each worker, by id.
+     */
+    long[] getWorkerEquations();
+}
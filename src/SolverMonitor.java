@@ -0,0 +1,133 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SolverMonitor publishes the live state of one run as a {@link SolverMXBean}: the depth and traffic of every ring of
+ * the buffer, the time threads waited on them, the state of each worker and the number of equations solved. Every
+ * registered monitor gets a name of its own, such as {@code QuadraticSolver:type=Solver,name=MasterThread-1}, so
+ * several solvers in one JVM are all visible, and closing a monitor removes only its own MBean.
+ */
+public class SolverMonitor implements SolverMXBean, AutoCloseable {
+    static final String OBJECT_NAME = "QuadraticSolver:type=Solver";    // Prefix of the name of every monitor
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);   // Sequence that makes the names unique
+
+    private final BatchBuffer buffer;
+    private final MasterThread.ThreadStats[] threadStats;
+    private final LongSupplier solvedCount;
+    private ObjectName name;    // The name the monitor is registered under, or null, guarded by this
+
+    /**
+     * Constructs a SolverMonitor without registering it.
+     *
+     * @param buffer      The buffer of the run.
+     * @param threadStats The statistics of each worker thread that runs in this process.
+     * @param solvedCount Reads the number of equations solved so far.
+     */
+    public SolverMonitor(BatchBuffer buffer, MasterThread.ThreadStats[] threadStats, LongSupplier solvedCount) {
+        this.buffer = buffer;
+        this.threadStats = threadStats;
+        this.solvedCount = solvedCount;
+    }
+
+    /**
+     * Constructs a SolverMonitor and registers it with the platform MBean server under a name of its own, made of the
+     * kind of solver and a number no other monitor of this JVM has.
+     *
+     * @param kind        What is being monitored, such as MasterThread, used in the name.
+     * @param buffer      The buffer of the run.
+     * @param threadStats The statistics of each worker thread that runs in this process.
+     * @param solvedCount Reads the number of equations solved so far.
+     * @return The registered monitor, to be closed when the run ends.
+     */
+    public static SolverMonitor register(String kind, BatchBuffer buffer, MasterThread.ThreadStats[] threadStats,
+                                         LongSupplier solvedCount) {
+        SolverMonitor monitor = new SolverMonitor(buffer, threadStats, solvedCount);
+        String name = OBJECT_NAME + ",name=" + kind + "-" + NEXT_ID.getAndIncrement();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, objectName);
+            synchronized (monitor) {
+                monitor.name = objectName;
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + name, e);
+        }
+        return monitor;
+    }
+
+    /**
+     * Gets the name the monitor is registered under.
+     *
+     * @return The name, or null if the monitor is not registered.
+     */
+    public synchronized ObjectName getObjectName() {
+        return name;
+    }
+
+    /**
+     * Unregisters the monitor. Closing a monitor that is not registered does nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (name == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // Unregistered from outside
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister " + name, e);
+        }
+        name = null;
+    }
+
+    @Override
+    public int getCapacity() {
+        return buffer.getCapacity();
+    }
+
+    @Override
+    public int getPendingEquations() {
+        return buffer.getPendingEquations();
+    }
+
+    @Override
+    public int getPendingResults() {
+        return buffer.getPendingResults();
+    }
+
+    @Override
+    public long getSolvedCount() {
+        return solvedCount.getAsLong();
+    }
+
+    @Override
+    public RingStatistics[] getRings() {
+        return buffer.getRingStatistics();
+    }
+
+    @Override
+    public String[] getWorkerStates() {
+        String[] states = new String[threadStats.length];
+        for (int i = 0; i < threadStats.length; i++) {
+            states[i] = threadStats[i].getState().name();
+        }
+        return states;
+    }
+
+    @Override
+    public long[] getWorkerEquations() {
+        long[] equations = new long[threadStats.length];
+        for (int i = 0; i < threadStats.length; i++) {
+            equations[i] = threadStats[i].getEquationsProcessed();
+        }
+        return equations;
+    }
+}
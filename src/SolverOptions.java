@@ -0,0 +1,443 @@
+import java.util.Random;
+
+/**
+ * SolverOptions holds the command-line options that select how the equations are solved. Options are given as
+ * --name=value pairs, for example --batch-size=256. Any option that is not given keeps its default value.
+ */
+public class SolverOptions {
+    private int batchSize = 0;  // Equations per batch, 0 moves single QuadraticEquation objects
+    private String bufferKind = "monitor";  // Which SolverBuffer implementation to use
+    private WaitStrategy waitStrategy = WaitStrategy.PARK;  // How threads wait on a lock-free buffer
+    private int capacity = 10;  // Number of cells in each ring of the buffer
+    private String engine = "threads";  // Which engine solves the equations, MasterThread or ForkJoinSolver
+    private String executor = "platform";   // Whether slave threads run on a fixed pool or on virtual threads
+    private int threads = 10;   // Number of worker threads
+    private long count = 0;     // Number of random equations to solve without asking, 0 shows the menu
+    private String storage = "heap";    // Where ForkJoinSolver keeps coefficients and roots
+    private long seed = new Random().nextLong();    // Seed for the random coefficients
+    private int producers = 1;  // Threads generating random coefficients
+    private CoefficientGenerator.Distribution[] distributions = {CoefficientGenerator.Distribution.DEFAULT,
+            CoefficientGenerator.Distribution.DEFAULT, CoefficientGenerator.Distribution.DEFAULT};  // For a, b and c
+    private String input = null;    // Coefficient file to solve instead of random coefficients
+    private int readers = Runtime.getRuntime().availableProcessors();   // Threads reading the coefficient file
+    private String output = null;   // File the roots are written to, or null to not write them
+    private FileResultSink.Format outputFormat = FileResultSink.Format.TEXT;    // Format of the output file
+    private int window = 0;     // Submissions kept in flight through an EquationSolver, 0 keeps the lockstep loop
+    private int cacheSize = 0;  // Entries in the root cache, 0 solves every equation
+    private int cacheQuantize = 0;  // Mantissa bits rounded away from root cache keys, 0 for exact keys
+    private int listen = -1;    // Port a DistributedBuffer listens on for remote workers, -1 solves locally
+    private int workers = 1;    // Remote workers to wait for before solving
+    private String connect = null;  // host:port of a master to work for, or null to be the master
+    private int reportInterval = 0;     // Milliseconds between metrics snapshots, 0 only prints the final report
+    private int jobs = 0;   // Jobs solved one after the other by one SolverService, 0 solves a single job
+    private int degree = 2; // Degree of the random polynomials, 2 for quadratic equations
+    private String checkpoint = null;   // Journal of solved batches to resume from and append to, or null
+    private int checkpointEvery = 1 << 16;  // Equations collected before the journal is written and forced to disk
+    private String kernel = "auto";     // Kernel of the fast tier of batches: auto, scalar, vector or vector-BITS
+
+    /**
+     * Parses the command-line arguments into a SolverOptions instance.
+     * @param args The command-line arguments.
+     * @return The parsed options.
+     * @throws IllegalArgumentException If an argument is unknown or has an invalid value.
+     */
+    public static SolverOptions parse(String[] args) {
+        SolverOptions options = new SolverOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "batch-size":
+                    options.batchSize = parseInt(name, value, 0);
+                    break;
+                case "buffer":
+                    if (!value.equals("monitor") && !value.equals("lock-free")) {
+                        throw new IllegalArgumentException("--buffer expects monitor or lock-free but got: " + value);
+                    }
+                    options.bufferKind = value;
+                    break;
+                case "wait":
+                    options.waitStrategy = WaitStrategy.fromName(value);
+                    break;
+                case "engine":
+                    if (!value.equals("threads") && !value.equals("forkjoin")) {
+                        throw new IllegalArgumentException("--engine expects threads or forkjoin but got: " + value);
+                    }
+                    options.engine = value;
+                    break;
+                case "executor":
+                    if (!value.equals("platform") && !value.equals("virtual")) {
+                        throw new IllegalArgumentException("--executor expects platform or virtual but got: " + value);
+                    }
+                    options.executor = value;
+                    break;
+                case "threads":
+                    options.threads = parseInt(name, value, 1);
+                    break;
+                case "count":
+                    try {
+                        options.count = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--count expects a number but got: " + value);
+                    }
+                    if (options.count < 1) {
+                        throw new IllegalArgumentException("--count must be at least 1 but got: " + value);
+                    }
+                    break;
+                case "storage":
+                    if (!value.equals("heap") && !value.equals("off-heap")) {
+                        throw new IllegalArgumentException("--storage expects heap or off-heap but got: " + value);
+                    }
+                    options.storage = value;
+                    break;
+                case "seed":
+                    try {
+                        options.seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--seed expects a number but got: " + value);
+                    }
+                    break;
+                case "producers":
+                    options.producers = parseInt(name, value, 1);
+                    break;
+                case "coefficients":
+                    String[] specs = value.split(",");
+                    if (specs.length != 1 && specs.length != 3) {
+                        throw new IllegalArgumentException("--coefficients expects one distribution or three, for a, b"
+                                + " and c, but got: " + value);
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        options.distributions[i] = CoefficientGenerator.Distribution.parse(specs[specs.length == 1 ? 0 : i]);
+                    }
+                    break;
+                case "input":
+                    options.input = value;
+                    break;
+                case "readers":
+                    options.readers = parseInt(name, value, 1);
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                case "output-format":
+                    if (!value.equals("text") && !value.equals("binary")) {
+                        throw new IllegalArgumentException("--output-format expects text or binary but got: " + value);
+                    }
+                    options.outputFormat = value.equals("text") ? FileResultSink.Format.TEXT : FileResultSink.Format.BINARY;
+                    break;
+                case "window":
+                    options.window = parseInt(name, value, 0);
+                    break;
+                case "capacity":
+                    options.capacity = parseInt(name, value, 1);
+                    break;
+                case "cache":
+                    options.cacheSize = parseInt(name, value, 0);
+                    if (options.cacheSize > RootCache.MAX_CAPACITY) {
+                        throw new IllegalArgumentException("--cache must be at most " + RootCache.MAX_CAPACITY
+                                + " but got: " + value);
+                    }
+                    break;
+                case "cache-quantize":
+                    options.cacheQuantize = parseInt(name, value, 0);
+                    if (options.cacheQuantize > 52) {
+                        throw new IllegalArgumentException("--cache-quantize must be at most 52 but got: " + value);
+                    }
+                    break;
+                case "listen":
+                    options.listen = parseInt(name, value, 0);
+                    break;
+                case "workers":
+                    options.workers = parseInt(name, value, 1);
+                    break;
+                case "connect":
+                    int colon = value.lastIndexOf(':');
+                    if (colon <= 0) {
+                        throw new IllegalArgumentException("--connect expects host:port but got: " + value);
+                    }
+                    parseInt(name, value.substring(colon + 1), 1);
+                    options.connect = value;
+                    break;
+                case "report-interval":
+                    options.reportInterval = parseInt(name, value, 0);
+                    break;
+                case "jobs":
+                    options.jobs = parseInt(name, value, 0);
+                    break;
+                case "degree":
+                    options.degree = parseInt(name, value, 1);
+                    break;
+                case "checkpoint":
+                    options.checkpoint = value;
+                    break;
+                case "checkpoint-every":
+                    options.checkpointEvery = parseInt(name, value, 1);
+                    break;
+                case "kernel":
+                    if (!value.matches("auto|scalar|vector|vector-(128|256|512)")) {
+                        throw new IllegalArgumentException("--kernel expects auto, scalar, vector, vector-128,"
+                                + " vector-256 or vector-512 but got: " + value);
+                    }
+                    options.kernel = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Parses an integer option value and checks it against a lower bound.
+     * @param name  The name of the option, used in the error message.
+     * @param value The value to parse.
+     * @param min   The smallest allowed value.
+     * @return The parsed value.
+     */
+    private static int parseInt(String name, String value, int min) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number but got: " + value);
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException("--" + name + " must be at least " + min + " but got: " + parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Gets the number of equations moved per batch.
+     * @return The batch size, or 0 if equations are moved one at a time.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets the engine that solves the equations.
+     * @return Either "threads" for MasterThread and SlaveThread, or "forkjoin" for ForkJoinSolver.
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the kind of threads the slave threads run on.
+     * @return Either "platform" for a fixed thread pool, or "virtual" for one virtual thread per slave thread.
+     */
+    public String getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets the seed for the random coefficients. Runs with the same seed solve the same equations.
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the coefficient file to solve.
+     * @return The path of the file, or null to solve random coefficients.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Gets the number of threads that read the coefficient file.
+     * @return The number of reader threads.
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * Gets the file the roots are written to.
+     * @return The path of the file, or null if the roots are not written.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Gets the format of the output file.
+     * @return The output format.
+     */
+    public FileResultSink.Format getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Creates the generator selected by the --seed, --producers and --coefficients options.
+     * @return A new generator.
+     */
+    public CoefficientGenerator createGenerator() {
+        return new CoefficientGenerator(seed, producers, distributions[0], distributions[1], distributions[2]);
+    }
+
+    /**
+     * Gets the number of random equations to solve without showing the menu.
+     * @return The number of equations, or 0 if the user chooses from the menu.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets where ForkJoinSolver keeps the coefficients and roots of the job.
+     * @return Either "heap" for double arrays, or "off-heap" for an OffHeapEquationStore.
+     */
+    public String getStorage() {
+        return storage;
+    }
+
+    /**
+     * Gets the number of submissions the MasterThread keeps in flight.
+     * @return The window size, or 0 if the MasterThread waits for each root before sending the next equation.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Creates the root cache selected by the --cache and --cache-quantize options.
+     * @return A new, empty cache, or null if no cache was asked for.
+     */
+    public RootCache createCache() {
+        return cacheSize > 0 ? new RootCache(cacheSize, cacheQuantize) : null;
+    }
+
+    /**
+     * Creates the kernel selected by the --kernel option, which solves the fast tier of every batch. auto uses the
+     * vector kernel of the widest vectors when this JVM can run it and the scalar loop otherwise.
+     * @return The kernel, or null for the scalar loop.
+     * @throws IllegalArgumentException If a vector kernel was asked for but this JVM cannot run it.
+     */
+    QuadraticEquation.BatchKernel createKernel() {
+        if (kernel.equals("scalar")) {
+            return null;
+        }
+        int bits = kernel.startsWith("vector-") ? Integer.parseInt(kernel.substring("vector-".length())) : 0;
+        QuadraticEquation.BatchKernel created = QuadraticEquation.loadVectorKernel(bits);
+        if (created == null && !kernel.equals("auto")) {
+            throw new IllegalArgumentException("--kernel=" + kernel + " needs the vector build and a JVM started with"
+                    + " --add-modules jdk.incubator.vector");
+        }
+        return created;
+    }
+
+    /**
+     * Gets how often a snapshot of the metrics is printed while equations are being solved.
+     * @return The interval in milliseconds, or 0 if only the final report is printed.
+     */
+    public int getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * Gets the number of jobs solved one after the other by the same SolverService and its warm slave threads.
+     * @return The number of jobs, or 0 if a single job is solved by a MasterThread.
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Gets the degree of the random polynomials the MasterThread solves.
+     * @return The degree, 2 for quadratic equations.
+     */
+    public int getDegree() {
+        return degree;
+    }
+
+    /**
+     * Gets the journal that solved batches are checkpointed to.
+     * @return The path of the journal, or null if nothing is checkpointed.
+     */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Gets how many solved equations are collected before they are written to the journal and forced to disk.
+     * @return The number of equations.
+     */
+    public int getCheckpointEvery() {
+        return checkpointEvery;
+    }
+
+    /**
+     * Describes everything that decides which equations a job solves and how they are cut into batches, so that a
+     * checkpoint journal is only resumed by the same job.
+     * @param count The number of random equations, ignored when a file is solved.
+     * @return The description.
+     */
+    public String describeJob(long count) {
+        if (input != null) {
+            // The regions of the readers decide where batches start
+            return "input=" + input + ",readers=" + readers + ",batch-size=" + batchSize;
+        }
+        return "seed=" + seed + ",producers=" + producers + ",coefficients=" + distributions[0] + ","
+                + distributions[1] + "," + distributions[2] + ",count=" + count + ",batch-size=" + batchSize
+                + ",degree=" + degree;
+    }
+
+    /**
+     * Gets the number of remote workers the master waits for before it starts solving.
+     * @return The number of workers.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Gets the master this process works for.
+     * @return The master as host:port, or null if this process is the master.
+     */
+    public String getConnect() {
+        return connect;
+    }
+
+    /**
+     * Creates the buffer selected by the --buffer, --wait, --capacity and --listen options.
+     * @return A new, empty buffer: a DistributedBuffer for --listen, otherwise the buffer of
+     *         {@link #createLocalBuffer}.
+     */
+    public BatchBuffer createBuffer() {
+        if (listen >= 0) {
+            return new DistributedBuffer(listen, capacity);
+        }
+        return createLocalBuffer();
+    }
+
+    /**
+     * Creates the buffer selected by the --buffer, --wait and --capacity options, for slave threads of this process.
+     * @return A new, empty buffer.
+     * @throws IllegalArgumentException If --listen asks for remote workers, which this buffer cannot reach.
+     */
+    public SolverBuffer createLocalBuffer() {
+        if (listen >= 0) {
+            throw new IllegalArgumentException("--listen only works with a single job, without --jobs");
+        }
+        if (bufferKind.equals("lock-free")) {
+            return new LockFreeBuffer(capacity, waitStrategy);
+        }
+        return new Buffer(capacity);
+    }
+}
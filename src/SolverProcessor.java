@@ -0,0 +1,422 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SolverProcessor solves a reactive stream of equations on the warm slave threads of a {@link SolverService}. It
+ * subscribes to a publisher of QuadraticEquation objects and publishes a {@link SolvedEquation} for each of them to one
+ * subscriber, either in the order the equations arrived or, unordered, as soon as their batch is solved. Every result
+ * carries the sequence number of its equation, so unordered results can still be matched up.
+ * <p>
+ * Equations are collected into a fixed number of reusable batches. The processor only requests as many equations from
+ * upstream as fit into the batch being filled, and a batch is only refilled once the subscriber has requested and
+ * received all of its results, so demand flows from the subscriber back to the source and nothing is buffered without
+ * bound. A batch is submitted when it is full, or earlier when no other batch is being solved, so a slow source is not
+ * held back waiting for a batch to fill up.
+ * <p>
+ * Results are delivered on an executor, by default the common ForkJoinPool, one at a time. The upstream thread only
+ * fills batches and never waits for results, and it never blocks as long as the service's window has room for the
+ * processor's batches.
+ */
+public class SolverProcessor implements Flow.Processor<QuadraticEquation, SolvedEquation> {
+    private final SolverService service;    // Solves the batches
+    private final int batchSize;    // Equations per batch
+    private final boolean ordered;  // Whether results are published in the order the equations arrived
+    private final Executor executor;    // Delivers the results
+    private final ReentrantLock lock = new ReentrantLock();     // Guards the fields below, never held while calling out
+    private final ArrayDeque<Slot> free = new ArrayDeque<>();   // Batches that are not in use
+    private final ArrayDeque<Slot> ready = new ArrayDeque<>();  // Submitted batches in order, or solved ones if unordered
+    private final AtomicInteger wip = new AtomicInteger();  // Deliveries asked for, so only one runs at a time
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super SolvedEquation> downstream;
+    private boolean subscribed; // Whether onSubscribe of the subscriber has returned, so it may be signalled
+    private Slot current;   // Batch being filled, or null while every batch is in use
+    private long outstanding;   // Equations requested from upstream and not received, always the room left in current
+    private long demand;    // Results requested by the subscriber and not delivered
+    private long nextSequence;  // Sequence number of the next equation
+    private int inFlight;   // Batches submitted and not solved yet
+    private boolean upstreamDone;   // Whether upstream has completed
+    private Throwable error;    // First failure, delivered to the subscriber instead of the remaining results
+    private boolean terminated; // Whether the subscriber has been completed or failed, or has cancelled
+
+    /**
+     * Constructs a SolverProcessor that delivers its results on the common ForkJoinPool.
+     *
+     * @param service   The service whose slave threads solve the equations.
+     * @param batchSize The number of equations per batch.
+     * @param batches   The number of batches, which bounds the equations held by the processor to batches * batchSize.
+     * @param ordered   True to publish results in the order the equations arrived, false to publish them as they are
+     *                  solved.
+     */
+    public SolverProcessor(SolverService service, int batchSize, int batches, boolean ordered) {
+        this(service, batchSize, batches, ordered, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a SolverProcessor.
+     *
+     * @param service   The service whose slave threads solve the equations.
+     * @param batchSize The number of equations per batch.
+     * @param batches   The number of batches, which bounds the equations held by the processor to batches * batchSize.
+     * @param ordered   True to publish results in the order the equations arrived, false to publish them as they are
+     *                  solved.
+     * @param executor  The executor that delivers the results to the subscriber.
+     */
+    public SolverProcessor(SolverService service, int batchSize, int batches, boolean ordered, Executor executor) {
+        if (batchSize <= 0 || batches <= 0) {
+            throw new IllegalArgumentException("Batch size and batches must be positive: " + batchSize + ", "
+                    + batches);
+        }
+        this.service = service;
+        this.batchSize = batchSize;
+        this.ordered = ordered;
+        this.executor = executor;
+        for (int i = 0; i < batches; i++) {
+            free.add(new Slot(new EquationBatch(batchSize)));
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        long more;
+        lock.lock();
+        try {
+            if (upstream != null || terminated) {
+                more = -1;
+            } else {
+                upstream = subscription;
+                more = takeCurrent();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (more < 0) {
+            // Only one upstream is allowed, and none after the subscriber has cancelled
+            subscription.cancel();
+        } else if (more > 0) {
+            subscription.request(more);
+        }
+    }
+
+    @Override
+    public void onNext(QuadraticEquation equation) {
+        Slot submit = null;
+        long more = 0;
+        boolean overflow = false;
+        lock.lock();
+        try {
+            if (terminated) {
+                return;
+            }
+            if (current == null) {
+                overflow = true;
+                if (error == null) {
+                    error = new IllegalStateException("Upstream sent more equations than were requested");
+                }
+            } else {
+                current.batch.add(equation.getA(), equation.getB(), equation.getC());
+                nextSequence++;
+                outstanding--;
+                // Submit full batches, or straight away while nothing else is being solved
+                if (outstanding == 0 || (inFlight == 0 && !free.isEmpty())) {
+                    submit = detachCurrent();
+                    more = takeCurrent();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (submit != null) {
+            submit(submit);
+        } else if (overflow) {
+            schedule();
+        }
+        if (more > 0) {
+            upstream.request(more);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        lock.lock();
+        try {
+            if (error == null) {
+                error = throwable;
+            }
+        } finally {
+            lock.unlock();
+        }
+        schedule();
+    }
+
+    @Override
+    public void onComplete() {
+        Slot submit = null;
+        lock.lock();
+        try {
+            upstreamDone = true;
+            if (current != null && current.batch.size() > 0) {
+                submit = detachCurrent();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (submit != null) {
+            submit(submit);
+        }
+        schedule();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SolvedEquation> subscriber) {
+        boolean accepted;
+        lock.lock();
+        try {
+            accepted = downstream == null;
+            if (accepted) {
+                downstream = subscriber;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("SolverProcessor publishes to one subscriber only"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                lock.lock();
+                try {
+                    if (n <= 0) {
+                        if (error == null) {
+                            error = new IllegalArgumentException("Requested " + n + " results, must be positive");
+                        }
+                    } else {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                schedule();
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription cancelled;
+                lock.lock();
+                try {
+                    terminated = true;
+                    cancelled = upstream;
+                } finally {
+                    lock.unlock();
+                }
+                if (cancelled != null) {
+                    cancelled.cancel();
+                }
+            }
+        });
+        // Results, completion and errors may only follow once onSubscribe has returned
+        lock.lock();
+        try {
+            subscribed = true;
+        } finally {
+            lock.unlock();
+        }
+        schedule();
+    }
+
+    /**
+     * Takes a free batch to fill when there is none, and tops the upstream demand up to its room.
+     *
+     * @return The number of equations to request from upstream.
+     */
+    private long takeCurrent() {
+        if (current != null || free.isEmpty() || upstreamDone) {
+            return 0;
+        }
+        current = free.poll();
+        current.batch.reset(nextSequence);
+        long more = batchSize - outstanding;
+        outstanding = batchSize;
+        return more;
+    }
+
+    /**
+     * Takes the batch being filled to be submitted. Equations still requested for it go into the next batch, so this
+     * is only called when the batch is full or a free batch is waiting.
+     *
+     * @return The batch.
+     */
+    private Slot detachCurrent() {
+        Slot slot = current;
+        current = null;
+        inFlight++;
+        if (ordered) {
+            ready.add(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Hands a detached batch to the service. Called without holding the lock, since the window may be full.
+     */
+    private void submit(Slot slot) {
+        CompletableFuture<EquationBatch> solved;
+        try {
+            solved = service.submitBatch(slot.batch);
+        } catch (InterruptedException | RuntimeException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            lock.lock();
+            try {
+                if (error == null) {
+                    error = e;
+                }
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+            return;
+        }
+        solved.whenComplete((batch, failure) -> {
+            // Runs on the service's collector thread, so only record the result and leave delivery to the executor
+            lock.lock();
+            try {
+                inFlight--;
+                if (failure != null) {
+                    if (error == null) {
+                        error = failure;
+                    }
+                } else {
+                    slot.solved = true;
+                    if (!ordered) {
+                        ready.add(slot);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        });
+    }
+
+    /**
+     * Asks for a delivery on the executor, unless one is already running, in which case it goes round again.
+     */
+    private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        while (true) {
+            deliver();
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delivers solved results while the subscriber has demand. When there is nothing to deliver, it submits a partly
+     * filled batch if nothing else is being solved, or completes the subscriber once everything has been delivered.
+     */
+    private void deliver() {
+        while (true) {
+            SolvedEquation next = null;
+            Slot submit = null;
+            Throwable failed = null;
+            boolean completed = false;
+            long more = 0;
+            lock.lock();
+            try {
+                if (terminated || !subscribed) {
+                    return;
+                }
+                Slot head = ready.peekFirst();
+                if (error != null) {
+                    terminated = true;
+                    failed = error;
+                } else if (head != null && head.solved && demand > 0) {
+                    next = head.next();
+                    demand--;
+                    if (head.delivered == head.batch.size()) {
+                        ready.pollFirst();
+                        head.solved = false;
+                        head.delivered = 0;
+                        free.add(head);
+                        more = takeCurrent();
+                    }
+                } else if (current != null && current.batch.size() > 0 && inFlight == 0 && !free.isEmpty()) {
+                    submit = detachCurrent();
+                    more = takeCurrent();
+                } else if (upstreamDone && inFlight == 0 && ready.isEmpty()
+                        && (current == null || current.batch.size() == 0)) {
+                    terminated = true;
+                    completed = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (more > 0) {
+                upstream.request(more);
+            }
+            if (failed != null) {
+                if (upstream != null) {
+                    upstream.cancel();
+                }
+                downstream.onError(failed);
+                return;
+            }
+            if (completed) {
+                downstream.onComplete();
+                return;
+            }
+            if (submit != null) {
+                submit(submit);
+            } else if (next != null) {
+                downstream.onNext(next);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Slot is one reusable batch and how far its results have been delivered.
+     */
+    private static class Slot {
+        private final EquationBatch batch;
+        private boolean solved;     // Whether the service has filled in the roots
+        private int delivered;      // Results already published
+
+        Slot(EquationBatch batch) {
+            this.batch = batch;
+        }
+
+        SolvedEquation next() {
+            int i = delivered++;
+            return new SolvedEquation(batch.getFirstIndex() + i, batch.getReal1(i), batch.getImag1(i),
+                    batch.getReal2(i), batch.getImag2(i));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SolverService keeps its SlaveThreads running across many jobs, so a job only pays for moving its batches through the
+ * buffer and not for starting threads or warming up the JIT again. Jobs are submitted as coefficient arrays and may be
+ * submitted from several threads at once; their batches share the buffer and the in-flight window, and each job is
+ * tracked on its own {@link SolverJob}, which completes when its last batch has been solved.
+ * <p>
+ * The service reuses a fixed pool of EquationBatch objects, one per place in the window, so submitting a job creates
+ * no objects per batch apart from the job itself. {@link #shutdown()} stops taking new jobs, waits until the running
+ * ones are solved, and then puts one poison pill per SlaveThread into the buffer so every thread leaves its loop.
+ * Streams of equations can also be solved on the service through a {@link SolverProcessor}.
+ */
+public class SolverService implements AutoCloseable {
+    static final int DEFAULT_BATCH_SIZE = 256;  // Equations per batch when --batch-size is not given
+
+    private final SolverBuffer buffer;  // Buffer shared with the SlaveThreads
+    private final int numThreads;   // Number of slave threads
+    private final int batchSize;    // Equations per batch
+    private final ExecutorService executor;     // Runs the slave threads for the lifetime of the service
+    private final CountDownLatch stopped;   // Counted down once by every slave thread as it exits
+    private final AtomicInteger solvedCount = new AtomicInteger();  // Equations solved by the slave threads
+    private final MasterThread.ThreadStats[] threadStats;   // Statistics of each slave thread, over all jobs
+    private final LatencyHistogram endToEnd = new LatencyHistogram();   // Submit-to-result latency over all jobs
+    private final EquationSolver solver;    // Tracks the batches in flight
+    private final BlockingQueue<EquationBatch> free;    // Batches that are not in flight
+    private final Set<SolverJob> running = ConcurrentHashMap.newKeySet();  // Jobs accepted but not complete
+    private final SolverMonitor monitor;    // Publishes the buffer and the slave threads over JMX until shutdown
+    private long nextJobId;     // Id of the next job, guarded by this
+    private boolean shutdown;   // Whether new jobs are rejected, guarded by this
+    private int submittingBatches;  // submitBatch calls past the shutdown check that have not returned, guarded by this
+
+    /**
+     * Constructs a SolverService and starts its slave threads.
+     *
+     * @param buffer         The buffer the slave threads take batches from. It must not be a DistributedBuffer.
+     * @param numThreads     The number of slave threads.
+     * @param batchSize      The number of equations per batch.
+     * @param window         The number of batches in flight at once, over all jobs.
+     * @param virtualThreads Whether the slave threads run on virtual threads instead of a fixed pool.
+     * @param cache          The cache shared by the slave threads, or null to solve every equation.
+     */
+    public SolverService(SolverBuffer buffer, int numThreads, int batchSize, int window, boolean virtualThreads,
+                         RootCache cache) {
+        if (buffer instanceof DistributedBuffer) {
+            throw new IllegalArgumentException("SolverService runs its own slave threads, it cannot use --listen");
+        }
+        if (batchSize <= 0 || window <= 0) {
+            throw new IllegalArgumentException("Batch size and window must be positive: " + batchSize + ", " + window);
+        }
+        this.buffer = buffer;
+        this.numThreads = numThreads;
+        this.batchSize = batchSize;
+        this.free = new ArrayBlockingQueue<>(window);
+        for (int i = 0; i < window; i++) {
+            free.add(new EquationBatch(batchSize));
+        }
+        this.solver = new EquationSolver(buffer, window, endToEnd);
+        this.stopped = new CountDownLatch(numThreads);
+        this.threadStats = new MasterThread.ThreadStats[numThreads];
+        this.executor = virtualThreads ? MasterThread.newVirtualThreadExecutor()
+                : Executors.newFixedThreadPool(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            threadStats[i] = new MasterThread.ThreadStats();
+            executor.execute(new SlaveThread(buffer, solvedCount, stopped, i, threadStats, true, cache));
+        }
+        try {
+            this.monitor = SolverMonitor.register("SolverService", buffer, threadStats, solvedCount::get);
+        } catch (RuntimeException e) {
+            // Nothing has been submitted, so the slave threads are only waiting for work and can be interrupted
+            executor.shutdownNow();
+            solver.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Constructs a SolverService from the command-line options.
+     *
+     * @param buffer     The buffer the slave threads take batches from.
+     * @param numThreads The number of slave threads.
+     * @param options    The options, such as the batch size, the window and the executor.
+     */
+    public SolverService(SolverBuffer buffer, int numThreads, SolverOptions options) {
+        this(buffer, numThreads, options.getBatchSize() > 0 ? options.getBatchSize() : DEFAULT_BATCH_SIZE,
+                options.getWindow() > 0 ? options.getWindow() : 2 * numThreads,
+                options.getExecutor().equals("virtual"), options.createCache());
+    }
+
+    /**
+     * Submits a job. The coefficients are copied into batches before this returns, so the arrays may be reused right
+     * away. If the window is full, this waits until batches of earlier jobs have been solved.
+     *
+     * @param a The coefficients of x^2.
+     * @param b The coefficients of x.
+     * @param c The constant terms.
+     * @return The job, which completes when every equation has been solved.
+     * @throws InterruptedException       If the thread is interrupted while waiting for room in the window. The job
+     *                                    fails.
+     * @throws RejectedExecutionException If the service has been shut down.
+     */
+    public SolverJob submit(double[] a, double[] b, double[] c) throws InterruptedException {
+        if (b.length != a.length || c.length != a.length) {
+            throw new IllegalArgumentException("Coefficient arrays differ in length: " + a.length + ", " + b.length
+                    + ", " + c.length);
+        }
+        int size = a.length;
+        SolverJob job;
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("SolverService is shut down");
+            }
+            job = new SolverJob(nextJobId++, size, (size + batchSize - 1) / batchSize);
+            running.add(job);
+        }
+        job.getFuture().whenComplete((done, failure) -> running.remove(job));
+
+        try {
+            for (int first = 0; first < size; first += batchSize) {
+                EquationBatch batch = free.take();
+                batch.reset(first);
+                for (int i = first; i < Math.min(first + batchSize, size); i++) {
+                    batch.add(a[i], b[i], c[i]);
+                }
+                solver.submitBatch(batch).whenComplete((solved, failure) -> {
+                    // Runs on the collector before the batch leaves the window, so there is always a free batch
+                    if (failure != null) {
+                        job.fail(failure);
+                    } else {
+                        job.complete(solved);
+                    }
+                    free.add(batch);
+                });
+            }
+        } catch (InterruptedException e) {
+            job.fail(e);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Submits one batch that the caller fills and reuses itself, such as a batch of a {@link SolverProcessor}. The
+     * batch shares the window with the batches of jobs, and this waits if the window is full. A shutdown that starts
+     * meanwhile waits until the batch has been handed over, so it is solved like the batches of running jobs.
+     *
+     * @param batch The batch to solve. Its first index is up to the caller.
+     * @return A future that completes with the same batch once its roots have been filled in.
+     * @throws InterruptedException       If the thread is interrupted while waiting for room in the window.
+     * @throws RejectedExecutionException If the service has been shut down.
+     */
+    public CompletableFuture<EquationBatch> submitBatch(EquationBatch batch) throws InterruptedException {
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("SolverService is shut down");
+            }
+            submittingBatches++;
+        }
+        try {
+            return solver.submitBatch(batch);
+        } finally {
+            synchronized (this) {
+                if (--submittingBatches == 0) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops taking new jobs, waits until every running job has been solved, and then stops the slave threads with one
+     * poison pill each. Calling this again waits for the first call to finish.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void shutdown() throws InterruptedException {
+        boolean first;
+        synchronized (this) {
+            first = !shutdown;
+            shutdown = true;
+            // Batches that passed the check must reach the window before it is drained
+            while (first && submittingBatches > 0) {
+                wait();
+            }
+        }
+        if (!first) {
+            // Wait outside the lock, so that batches still being submitted can finish and let the first call go on
+            stopped.await();
+            return;
+        }
+
+        // Drain: no job can be added any more, so once these and the batches submitted on their own are done nothing is
+        // in flight
+        for (SolverJob job : running) {
+            try {
+                job.getFuture().get();
+            } catch (ExecutionException e) {
+                // A failed job has nothing left in flight either
+            }
+        }
+        solver.drain();
+        solver.close();
+
+        for (int i = 0; i < numThreads; i++) {
+            buffer.blockingPutBatch(SlaveThread.POISON_BATCH);
+        }
+        stopped.await();    // Wait for all slave threads to exit
+        monitor.close();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Shuts the service down, see {@link #shutdown()}.
+     */
+    @Override
+    public void close() {
+        try {
+            shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of jobs that have been submitted.
+     *
+     * @return The number of jobs.
+     */
+    public synchronized long getJobsSubmitted() {
+        return nextJobId;
+    }
+
+    /**
+     * Gets the number of equations the slave threads have solved, over all jobs.
+     *
+     * @return The number of solved equations.
+     */
+    public int getSolvedCount() {
+        return solvedCount.get();
+    }
+
+    /**
+     * Gets the statistics of each slave thread, over all jobs.
+     *
+     * @return One ThreadStats per slave thread.
+     */
+    public MasterThread.ThreadStats[] getThreadStats() {
+        return threadStats;
+    }
+
+    /**
+     * Gets the submit-to-result latency of every equation, over all jobs.
+     *
+     * @return The latency histogram in nanoseconds.
+     */
+    public LatencyHistogram getLatency() {
+        return endToEnd;
+    }
+}
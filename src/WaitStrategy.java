@@ -0,0 +1,91 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WaitStrategy decides what a thread does while it waits on a full or empty LockFreeBuffer ring. Each strategy is
+ * called repeatedly with the number of failed attempts so far, and every strategy checks for interruption so that
+ * waiting SlaveThreads still stop when the executor is shut down.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Spins on the CPU. Lowest latency, but each waiting thread keeps a core busy, so it should only be used when
+     * there are at least as many cores as threads.
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * Spins briefly and then yields the CPU to other threads.
+     */
+    YIELD {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * Spins, then yields, then parks for a growing period of up to a millisecond. Uses the least CPU while idle.
+     */
+    PARK {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                int shift = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+                LockSupport.parkNanos(1_000L << shift);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Waits once before the caller retries its operation.
+     * @param attempt The number of times the caller has already failed.
+     */
+    abstract void idle(int attempt);
+
+    /**
+     * Waits once and then checks whether the thread was interrupted.
+     * @param attempt The number of times the caller has already failed.
+     * @throws InterruptedException If the thread was interrupted.
+     */
+    void await(int attempt) throws InterruptedException {
+        idle(attempt);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Looks up a wait strategy by its command-line name (spin, yield or park).
+     * @param name The name of the strategy.
+     * @return The matching strategy.
+     * @throws IllegalArgumentException If no strategy has that name.
+     */
+    public static WaitStrategy fromName(String name) {
+        switch (name) {
+            case "spin":
+                return BUSY_SPIN;
+            case "yield":
+                return YIELD;
+            case "park":
+                return PARK;
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        }
+    }
+}
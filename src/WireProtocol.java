@@ -0,0 +1,92 @@
+import java.nio.ByteBuffer;
+
+/**
+ * WireProtocol is the binary protocol between a DistributedBuffer and its RemoteWorkers. Every frame starts with the
+ * length of the rest of the frame as an int, then a type byte. All numbers are big-endian.
+ * <ul>
+ *     <li>HELLO, worker to master: the number of batches the worker accepts at once (its credits).</li>
+ *     <li>BATCH, master to worker: a batch id as a long, the number of equations as an int, then a, b and c of every
+ *     equation as doubles. Sending a batch uses up one credit.</li>
+ *     <li>RESULT, worker to master: the batch id, the number of equations, then real1, imag1, real2 and imag2 of every
+ *     equation. Every result gives the master one credit back.</li>
+ * </ul>
+ */
+final class WireProtocol {
+    static final byte HELLO = 1;
+    static final byte BATCH = 2;
+    static final byte RESULT = 3;
+    static final int LENGTH_BYTES = Integer.BYTES;  // Length prefix of every frame
+    static final int HEADER_BYTES = 1 + Long.BYTES + Integer.BYTES;     // Type, batch id and size of a batch frame
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Gets the size of a BATCH frame, including its length prefix.
+     */
+    static int batchFrameSize(int equations) {
+        return LENGTH_BYTES + HEADER_BYTES + 3 * Double.BYTES * equations;
+    }
+
+    /**
+     * Gets the size of a RESULT frame, including its length prefix.
+     */
+    static int resultFrameSize(int equations) {
+        return LENGTH_BYTES + HEADER_BYTES + 4 * Double.BYTES * equations;
+    }
+
+    static void writeHello(ByteBuffer out, int credits) {
+        out.putInt(1 + Integer.BYTES);
+        out.put(HELLO);
+        out.putInt(credits);
+    }
+
+    static void writeBatch(ByteBuffer out, long id, EquationBatch batch) {
+        out.putInt(batchFrameSize(batch.size()) - LENGTH_BYTES);
+        out.put(BATCH);
+        out.putLong(id);
+        out.putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            out.putDouble(batch.getA(i));
+            out.putDouble(batch.getB(i));
+            out.putDouble(batch.getC(i));
+        }
+    }
+
+    static void writeResult(ByteBuffer out, EquationBatch batch) {
+        out.putInt(resultFrameSize(batch.size()) - LENGTH_BYTES);
+        out.put(RESULT);
+        out.putLong(batch.getFirstIndex());
+        out.putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            out.putDouble(batch.getReal1(i));
+            out.putDouble(batch.getImag1(i));
+            out.putDouble(batch.getReal2(i));
+            out.putDouble(batch.getImag2(i));
+        }
+    }
+
+    /**
+     * Reads the equations of a BATCH frame, positioned after its batch id and size, into a batch. The worker keeps the
+     * batch id as the batch's first index, so it can send the id back with the result.
+     */
+    static void readBatch(ByteBuffer in, long id, int size, EquationBatch batch) {
+        batch.reset(id);
+        for (int i = 0; i < size; i++) {
+            batch.add(in.getDouble(), in.getDouble(), in.getDouble());
+        }
+    }
+
+    /**
+     * Reads the roots of a RESULT frame, positioned after its batch id, into the batch that was sent.
+     */
+    static void readResult(ByteBuffer in, EquationBatch batch) {
+        int size = in.getInt();
+        if (size != batch.size()) {
+            throw new IllegalStateException("Result has " + size + " equations but the batch has " + batch.size());
+        }
+        for (int i = 0; i < size; i++) {
+            batch.setRoots(i, in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that CheckpointJournal gives a resumed run the merged ranges and the roots of every complete record, drops a
+ * torn or corrupted tail, and refuses journals of another job.
+ */
+class CheckpointJournalTest {
+    private static final long FINGERPRINT = CheckpointJournal.fingerprint("--seed=1 --batch-size=4");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesTheMergedRangesAndReplaysTheirRoots() throws IOException {
+        Path path = directory.resolve("journal");
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            journal.accept(batch(4));
+            journal.accept(batch(12));
+            journal.accept(batch(0));
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            assertEquals(12, journal.getResumedEquations());
+            assertTrue(journal.isCompleted(0, 8), "touching ranges merge");
+            assertTrue(journal.isCompleted(12, 4));
+            assertFalse(journal.isCompleted(8, 4));
+            assertFalse(journal.isCompleted(6, 8));
+
+            List<Long> replayed = new ArrayList<>();
+            journal.replay(4, batch -> {
+                replayed.add(batch.getFirstIndex());
+                EquationBatch expected = batch(batch.getFirstIndex());
+                for (int i = 0; i < batch.size(); i++) {
+                    assertEquals(expected.getReal1(i), batch.getReal1(i));
+                    assertEquals(expected.getImag1(i), batch.getImag1(i));
+                    assertEquals(expected.getReal2(i), batch.getReal2(i));
+                    assertEquals(expected.getImag2(i), batch.getImag2(i));
+                }
+            });
+            assertEquals(List.of(4L, 12L, 0L), replayed);
+        }
+    }
+
+    @Test
+    void dropsATornLastRecordAndAppendsAfterTheLastCompleteOne() throws IOException {
+        Path path = directory.resolve("journal");
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            journal.accept(batch(0));
+            journal.accept(batch(4));
+        }
+        long complete = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 5);
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            assertEquals(4, journal.getResumedEquations());
+            assertFalse(journal.isCompleted(4, 4));
+            journal.accept(batch(4));
+        }
+        assertEquals(complete, Files.size(path));
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            assertEquals(8, journal.getResumedEquations());
+        }
+    }
+
+    @Test
+    void stopsReadingAtARecordThatDoesNotMatchItsChecksum() throws IOException {
+        Path path = directory.resolve("journal");
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            journal.accept(batch(0));
+            journal.accept(batch(4));
+            journal.accept(batch(8));
+        }
+        long recordBytes = (Files.size(path) - 24) / 3;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Flip a byte of the roots of the second record
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long position = 24 + recordBytes + 20;
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0)).rewind();
+            channel.write(one, position);
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            assertEquals(4, journal.getResumedEquations());
+            assertTrue(journal.isCompleted(0, 4));
+            assertFalse(journal.isCompleted(8, 4), "records after a corrupted one are dropped");
+        }
+        assertEquals(24 + recordBytes, Files.size(path));
+    }
+
+    @Test
+    void refusesTheJournalOfAnotherJob() throws IOException {
+        Path path = directory.resolve("journal");
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, true)) {
+            journal.accept(batch(0));
+        }
+        long size = Files.size(path);
+
+        assertThrows(IOException.class, () -> new CheckpointJournal(path, FINGERPRINT + 1, 4, 1, true));
+        assertThrows(IOException.class, () -> new CheckpointJournal(path, FINGERPRINT, 4, 1, false));
+        assertEquals(size, Files.size(path), "a refused journal is left alone");
+
+        Path other = directory.resolve("other");
+        Files.writeString(other, "a,b,c\n1,2,3\n1,2,3\n1,2,3\n");
+        assertThrows(IOException.class, () -> new CheckpointJournal(other, FINGERPRINT, 4, 1, true));
+    }
+
+    @Test
+    void keepsOnlyTheRangesOfPolynomials() throws IOException {
+        PolynomialBatch polynomials = new PolynomialBatch(3, 2);
+        polynomials.reset(0);
+        polynomials.add(new double[] {1, 0, 0, -1, 1, 0, 0, -8}, 0);
+        polynomials.add(new double[] {1, 0, 0, -1, 1, 0, 0, -8}, 4);
+        polynomials.solve();
+
+        try (CheckpointJournal journal = new CheckpointJournal(directory.resolve("roots"), FINGERPRINT, 4, 1, true)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.accept(polynomials));
+        }
+        Path path = directory.resolve("ranges");
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, false)) {
+            journal.accept(polynomials);
+        }
+        try (CheckpointJournal journal = new CheckpointJournal(path, FINGERPRINT, 4, 1, false)) {
+            assertTrue(journal.isCompleted(0, 2));
+            assertThrows(IllegalStateException.class, () -> journal.replay(4, batch -> { }));
+        }
+    }
+
+    /**
+     * Creates a solved batch of four equations with complex roots that differ from batch to batch.
+     */
+    private static EquationBatch batch(long firstIndex) {
+        EquationBatch batch = new EquationBatch(4);
+        batch.reset(firstIndex);
+        for (int i = 0; i < 4; i++) {
+            batch.add(1, firstIndex + i, 1000);
+        }
+        batch.solve();
+        return batch;
+    }
+}
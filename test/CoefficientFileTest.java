@@ -0,0 +1,176 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that CoefficientFile splits a CSV or binary file into regions so that every equation is read exactly once,
+ * whatever the number of readers, including files with fewer bytes than readers, that it parses CSV numbers exactly,
+ * and that it rejects malformed lines and binary files that are not whole equations.
+ */
+class CoefficientFileTest {
+    @TempDir
+    Path directory;
+
+    private Buffer buffer;
+    private SlavePool slaves;
+    private EquationSolver solver;
+
+    @BeforeEach
+    void startSlaves() {
+        buffer = new Buffer(16);
+        slaves = new SlavePool(buffer, 2);
+        solver = new EquationSolver(buffer, 64);
+    }
+
+    @AfterEach
+    void stopSlaves() throws Exception {
+        solver.close();
+        slaves.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 7, 8, 64})
+    void readsEveryCsvLineOnceWithAnyNumberOfReaders(int readers) throws Exception {
+        StringBuilder csv = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // Lines of different lengths, so region splits land inside lines
+            csv.append(1 + i % 7).append(',').append(-i).append(",0.").append(i * 37).append('\n');
+            expected.add(describe(1 + i % 7, -i, Double.parseDouble("0." + (i * 37))));
+        }
+        Path file = write("equations.csv", csv.toString());
+
+        assertEquals(sorted(expected), sorted(read(file, readers, 16)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void indexesCsvEquationsByTheirPositionInTheFile(int readers) throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            // Blank lines are not equations, so they do not take an index
+            csv.append(i % 10 == 0 ? "\n" : "").append("1,").append(i).append(",0\n");
+        }
+        Path file = write("indexed.csv", csv.toString());
+        List<Long> mismatches = Collections.synchronizedList(new ArrayList<>());
+        long read = new CoefficientFile(file).solve(solver, readers, 16, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.getB(i) != batch.getFirstIndex() + i) {
+                    mismatches.add(batch.getFirstIndex() + i);
+                }
+            }
+        });
+        assertEquals(500, read);
+        assertEquals(List.of(), mismatches);
+    }
+
+    @Test
+    void readsACsvFileWithFewerBytesThanReaders() throws Exception {
+        Path file = write("tiny.csv", "1,2,3\n");
+        assertEquals(List.of(describe(1, 2, 3)), read(file, 8, 16));
+
+        Path noNewline = write("tiny-no-newline.csv", "1,2,3");
+        assertEquals(List.of(describe(1, 2, 3)), read(noNewline, 8, 16));
+    }
+
+    @Test
+    void readsAnEmptyCsvFile() throws Exception {
+        Path file = write("empty.csv", "");
+        assertEquals(List.of(), read(file, 2, 16));
+        assertEquals(List.of(), read(file, 1, 16));
+    }
+
+    @Test
+    void skipsBlankLinesAndLineBreaksWithCarriageReturns() throws Exception {
+        Path file = write("blank.csv", "\n1, 2, 3\r\n\n  \n4,5,6\n\n");
+        assertEquals(sorted(List.of(describe(1, 2, 3), describe(4, 5, 6))), sorted(read(file, 3, 16)));
+    }
+
+    @Test
+    void rejectsMalformedLines() throws Exception {
+        Path twoFields = write("two-fields.csv", "1,2,3\n1,2\n");
+        assertThrows(IOException.class, () -> read(twoFields, 1, 16));
+        Path notANumber = write("not-a-number.csv", "1,2,x\n");
+        assertThrows(IOException.class, () -> read(notANumber, 1, 16));
+    }
+
+    @Test
+    void parsesNumbersLikeDoubleParseDouble() throws Exception {
+        String[] numbers = {"0", "-0", "1", "0.1", "-2.5e-3", "123456789012345678901234", "1e22", "1e23",
+                "4.9e-324", "1.7976931348623157e308", "+7", ".5", "5.", "3.141592653589793", "1E-400"};
+        StringBuilder csv = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (String number : numbers) {
+            csv.append("1,").append(number).append(",0\n");
+            expected.add(describe(1, Double.parseDouble(number), 0));
+        }
+        Path file = write("numbers.csv", csv.toString());
+        assertEquals(sorted(expected), sorted(read(file, 1, 64)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void readsEveryBinaryEquationOnce(int readers) throws Exception {
+        Path file = directory.resolve("equations.bin");
+        ByteBuffer bytes = ByteBuffer.allocate(5 * 3 * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            bytes.putDouble(1).putDouble(i).putDouble(-i);
+            expected.add(describe(1, i, -i));
+        }
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(bytes);
+        }
+        assertEquals(sorted(expected), sorted(read(file, readers, 2)));
+    }
+
+    @Test
+    void rejectsABinaryFileThatIsNotWholeEquations() throws Exception {
+        Path file = directory.resolve("torn.bin");
+        Files.write(file, new byte[25]);
+        assertThrows(IOException.class, () -> read(file, 1, 16));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.US_ASCII);
+    }
+
+    private List<String> read(Path file, int readers, int batchSize) throws Exception {
+        List<String> equations = Collections.synchronizedList(new ArrayList<>());
+        long read = new CoefficientFile(file).solve(solver, readers, batchSize, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                equations.add(describe(batch.getA(i), batch.getB(i), batch.getC(i)));
+            }
+        });
+        assertEquals(equations.size(), read);
+        return equations;
+    }
+
+    private static String describe(double a, double b, double c) {
+        return a + "," + b + "," + c;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> copy = new ArrayList<>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+}
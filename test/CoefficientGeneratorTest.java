@@ -0,0 +1,56 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that CoefficientGenerator draws every coefficient from its distribution, repeatably for the same seed, and
+ * rejects distributions it cannot draw from.
+ */
+class CoefficientGeneratorTest {
+
+    @Test
+    void drawsIntegersBetweenBothBoundsIncluded() {
+        CoefficientGenerator.Distribution integer = CoefficientGenerator.Distribution.parse("integer:-3:2");
+        SplittableRandom stream = new SplittableRandom(1);
+        boolean[] seen = new boolean[6];
+        for (int i = 0; i < 1000; i++) {
+            double value = integer.sample(stream);
+            assertEquals(Math.rint(value), value);
+            assertTrue(value >= -3 && value <= 2, "out of bounds: " + value);
+            seen[(int) value + 3] = true;
+        }
+        assertArrayEquals(new boolean[] {true, true, true, true, true, true}, seen);
+    }
+
+    @Test
+    void drawsTheSameCoefficientsForTheSameSeed() {
+        CoefficientGenerator.Distribution normal = CoefficientGenerator.Distribution.parse("normal:0:2");
+        CoefficientGenerator.Distribution uniform = CoefficientGenerator.Distribution.parse("uniform:1:4");
+        double[][] runs = new double[2][];
+        for (int run = 0; run < 2; run++) {
+            CoefficientGenerator generator = new CoefficientGenerator(7, 1, uniform, normal, uniform);
+            double[] a = new double[100];
+            double[] b = new double[100];
+            double[] c = new double[100];
+            generator.fill(generator.newStreams()[0], a, b, c, 0, 100);
+            for (double value : a) {
+                assertTrue(value >= 1 && value < 4, "out of bounds: " + value);
+            }
+            runs[run] = b;
+        }
+        assertArrayEquals(runs[0], runs[1]);
+    }
+
+    @Test
+    void rejectsDistributionsItCannotDrawFrom() {
+        for (String spec : new String[] {"integer:-2.5:3", "integer:0:1e300", "uniform:2:1", "normal:0:-1",
+                "poisson:1:2", "uniform:1", "uniform:a:b"}) {
+            assertThrows(IllegalArgumentException.class, () -> CoefficientGenerator.Distribution.parse(spec), spec);
+        }
+        assertEquals("integer:-3.0:2.0", CoefficientGenerator.Distribution.parse("integer:-3:2").toString());
+    }
+}
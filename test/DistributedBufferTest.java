@@ -0,0 +1,248 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the credit protocol of DistributedBuffer against workers that speak the wire protocol by hand: a worker is
+ * only sent batches after its hello and while it has credits, and the batches of a worker that disconnects are sent
+ * to another one.
+ */
+class DistributedBufferTest {
+    private DistributedBuffer buffer;
+
+    @BeforeEach
+    void listen() {
+        buffer = new DistributedBuffer(0, 16);
+    }
+
+    @AfterEach
+    void close() {
+        buffer.close();
+    }
+
+    @Test
+    void sendsNothingToAWorkerBeforeItsHello() throws Exception {
+        try (FakeWorker silent = new FakeWorker(buffer.getPort());
+             FakeWorker ready = new FakeWorker(buffer.getPort())) {
+            ready.hello(1);
+            buffer.awaitWorkers(1);
+            buffer.blockingPutBatch(batch(0, 3));
+            buffer.blockingPutBatch(batch(3, 3));
+
+            EquationBatch first = ready.receive();
+            assertThrows(SocketTimeoutException.class, ready::receive, "sent more batches than credits");
+            assertThrows(SocketTimeoutException.class, silent::receive, "sent a batch before the hello");
+            ready.answer(first);
+            ready.answer(ready.receive());
+            assertEquals(2, solvedFirstIndexes(2).size());
+            assertEquals(1, buffer.getConnectedWorkers());
+        }
+    }
+
+    @Test
+    void reassignsTheBatchesOfAWorkerThatDisconnects() throws Exception {
+        FakeWorker lost = new FakeWorker(buffer.getPort());
+        lost.hello(2);
+        buffer.awaitWorkers(1);
+        buffer.blockingPutBatch(batch(0, 4));
+        buffer.blockingPutBatch(batch(4, 4));
+        lost.receive();
+        lost.receive();
+        lost.close();
+
+        try (FakeWorker survivor = new FakeWorker(buffer.getPort())) {
+            survivor.hello(4);
+            survivor.answer(survivor.receive());
+            survivor.answer(survivor.receive());
+            assertEquals(Set.of(0L, 4L), solvedFirstIndexes(2));
+            assertEquals(2, buffer.getReassignedBatches());
+            assertEquals(8, buffer.getSolvedEquations());
+            assertEquals(1, buffer.getConnectedWorkers());
+        }
+    }
+
+    @Test
+    void countsOnlyWorkersThatSaidHello() throws Exception {
+        // Both leave in the middle of the test, so neither is held as a resource
+        FakeWorker silent = new FakeWorker(buffer.getPort());
+        FakeWorker worker = new FakeWorker(buffer.getPort());
+        try {
+            worker.hello(1);
+            buffer.awaitWorkers(1);
+            worker.close();
+            awaitConnectedWorkers(0);
+        } finally {
+            worker.close();
+            silent.close();
+        }
+        try (FakeWorker next = new FakeWorker(buffer.getPort())) {
+            next.hello(1);
+            buffer.awaitWorkers(1);
+            assertEquals(1, buffer.getConnectedWorkers());
+        }
+    }
+
+    @Test
+    void dropsAWorkerThatSendsAFrameLongerThanAnyResult() throws Exception {
+        FakeWorker hostile = new FakeWorker(buffer.getPort());
+        hostile.hello(1);
+        buffer.awaitWorkers(1);
+        buffer.blockingPutBatch(batch(0, 3));
+        hostile.receive();
+        ByteBuffer length = ByteBuffer.allocate(WireProtocol.LENGTH_BYTES).putInt(1 << 30);
+        hostile.write(length);
+        awaitConnectedWorkers(0);
+        hostile.close();
+
+        try (FakeWorker worker = new FakeWorker(buffer.getPort())) {
+            worker.hello(1);
+            worker.answer(worker.receive());
+            assertEquals(Set.of(0L), solvedFirstIndexes(1));
+            assertEquals(1, buffer.getReassignedBatches());
+        }
+    }
+
+    @Test
+    void keepsServingAfterPeersResetWhileConnecting() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            Socket reset = new Socket("localhost", buffer.getPort());
+            reset.setSoLinger(true, 0);
+            reset.close();
+        }
+        try (FakeWorker worker = new FakeWorker(buffer.getPort())) {
+            worker.hello(1);
+            buffer.awaitWorkers(1);
+            buffer.blockingPutBatch(batch(0, 3));
+            worker.answer(worker.receive());
+            assertEquals(Set.of(0L), solvedFirstIndexes(1));
+        }
+    }
+
+    @Test
+    void onlyTakesQuadraticEquations() {
+        assertThrows(IllegalArgumentException.class, () -> buffer.blockingPutBatch(new PolynomialBatch(3, 1)));
+    }
+
+    @Test
+    void solvesAJobOfAMasterThreadOnARemoteWorker() throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Thread worker = new Thread(() -> {
+                try {
+                    new RemoteWorker("localhost", buffer.getPort(), 2).start();
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.start();
+            SolverOptions options = SolverOptions.parse(new String[] {"--batch-size=64", "--workers=1"});
+            new MasterThread(buffer, 1, 10_000, false, options).start();
+            worker.join(10_000);
+            assertEquals(10_000, buffer.getSolvedEquations());
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static EquationBatch batch(long firstIndex, int size) {
+        EquationBatch batch = new EquationBatch(size);
+        batch.reset(firstIndex);
+        for (int i = 0; i < size; i++) {
+            batch.add(1, -(firstIndex + i), 0);
+        }
+        return batch;
+    }
+
+    /**
+     * Takes solved batches from the buffer, checking their roots, and returns their first indexes.
+     */
+    private Set<Long> solvedFirstIndexes(int batches) throws InterruptedException {
+        Set<Long> firstIndexes = new HashSet<>();
+        for (int b = 0; b < batches; b++) {
+            EquationBatch solved = buffer.blockingGetSolvedBatch();
+            for (int i = 0; i < solved.size(); i++) {
+                assertEquals(solved.getFirstIndex() + i, solved.getReal1(i) + solved.getReal2(i), 1e-9);
+            }
+            firstIndexes.add(solved.getFirstIndex());
+        }
+        return firstIndexes;
+    }
+
+    private void awaitConnectedWorkers(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (buffer.getConnectedWorkers() != count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, buffer.getConnectedWorkers());
+    }
+
+    /**
+     * FakeWorker is a worker that sends and reads frames when the test tells it to.
+     */
+    private static final class FakeWorker implements AutoCloseable {
+        private final Socket socket;
+        private final DataInputStream in;
+
+        FakeWorker(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(300);
+            in = new DataInputStream(socket.getInputStream());
+        }
+
+        void hello(int credits) throws IOException {
+            ByteBuffer out = ByteBuffer.allocate(16);
+            WireProtocol.writeHello(out, credits);
+            write(out);
+        }
+
+        /**
+         * Reads the next BATCH frame. Its first index is the id the result must be sent back with.
+         */
+        EquationBatch receive() throws IOException {
+            byte[] frame = new byte[in.readInt()];
+            socket.setSoTimeout(10_000);    // The rest of a frame that has started arrives soon
+            try {
+                in.readFully(frame);
+            } finally {
+                socket.setSoTimeout(300);
+            }
+            ByteBuffer body = ByteBuffer.wrap(frame);
+            assertEquals(WireProtocol.BATCH, body.get());
+            long id = body.getLong();
+            int size = body.getInt();
+            EquationBatch batch = new EquationBatch(size);
+            WireProtocol.readBatch(body, id, size, batch);
+            return batch;
+        }
+
+        void answer(EquationBatch batch) throws IOException {
+            batch.solve();
+            ByteBuffer out = ByteBuffer.allocate(WireProtocol.resultFrameSize(batch.size()));
+            WireProtocol.writeResult(out, batch);
+            write(out);
+        }
+
+        private void write(ByteBuffer out) throws IOException {
+            socket.getOutputStream().write(out.array(), 0, out.position());
+            socket.getOutputStream().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
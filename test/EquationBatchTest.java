@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests filling, solving and reusing an EquationBatch.
+ */
+class EquationBatchTest {
+
+    @Test
+    void solvesEveryEquationItHolds() {
+        EquationBatch batch = new EquationBatch(4);
+        batch.reset(100);
+        batch.add(1, -3, 2);
+        batch.add(1, 2, 5);
+        batch.solve();
+        assertEquals(2, batch.size());
+        assertEquals(100, batch.getFirstIndex());
+        assertEquals(2, batch.getReal1(0));
+        assertEquals(1, batch.getReal2(0));
+        assertEquals(-1, batch.getReal1(1));
+        assertEquals(2, batch.getImag1(1));
+        assertEquals(-2, batch.getImag2(1));
+    }
+
+    @Test
+    void rejectsMoreEquationsThanItsCapacity() {
+        EquationBatch batch = new EquationBatch(1);
+        batch.add(1, 1, 1);
+        assertThrows(IllegalStateException.class, () -> batch.add(1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new EquationBatch(0));
+    }
+
+    @Test
+    void resetEmptiesTheBatchForReuse() {
+        EquationBatch batch = new EquationBatch(2);
+        batch.add(1, -3, 2);
+        batch.add(1, -3, 2);
+        batch.reset(7);
+        assertEquals(0, batch.size());
+        batch.add(1, -5, 6);
+        batch.solve();
+        assertEquals(3, batch.getReal1(0));
+        assertEquals(7, batch.getFirstIndex());
+    }
+}
@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that EquationSolver matches every result to its submission and keeps the window of batches in flight.
+ */
+class EquationSolverTest {
+
+    @Test
+    void completesEverySubmissionWithItsOwnRoots() throws Exception {
+        Buffer buffer = new Buffer(16);
+        List<CompletableFuture<Complex>> roots = new ArrayList<>();
+        try (SlavePool slaves = new SlavePool(buffer, 3); EquationSolver solver = new EquationSolver(buffer, 4)) {
+            for (int r = 0; r < 200; r++) {
+                // (x - r)(x + 1) = x^2 + (1 - r)x - r
+                roots.add(solver.submit(new QuadraticEquation(1, 1 - r, -r)));
+            }
+            solver.drain();
+            assertEquals(0, solver.getInFlight());
+            assertEquals(200, slaves.getSolvedCount());
+        }
+        for (int r = 0; r < 200; r++) {
+            assertEquals(Math.max(r, -1), roots.get(r).get().getReal(), 1e-12);
+        }
+    }
+
+    @Test
+    void neverHasMoreBatchesInFlightThanTheWindow() throws Exception {
+        Buffer buffer = new Buffer(16);
+        int window = 2;
+        try (SlavePool slaves = new SlavePool(buffer, 3); EquationSolver solver = new EquationSolver(buffer, window)) {
+            List<CompletableFuture<EquationBatch>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                EquationBatch batch = new EquationBatch(8);
+                batch.reset(i * 8L);
+                for (int j = 0; j < 8; j++) {
+                    batch.add(1, -3, 2);
+                }
+                futures.add(solver.submitBatch(batch));
+                assertTrue(solver.getInFlight() <= window);
+            }
+            for (CompletableFuture<EquationBatch> future : futures) {
+                assertEquals(2, future.get().getReal1(7));
+            }
+            assertEquals(50 * 8, slaves.getSolvedCount());
+        }
+    }
+
+    @Test
+    void failsBatchesStillInFlightWhenClosed() throws Exception {
+        // Without slave threads nothing is solved
+        Buffer buffer = new Buffer(4);
+        EquationSolver solver = new EquationSolver(buffer, 2);
+        EquationBatch batch = new EquationBatch(1);
+        batch.add(1, -3, 2);
+        CompletableFuture<EquationBatch> future = solver.submitBatch(batch);
+        assertThrows(IllegalStateException.class, () -> solver.submitBatch(batch));
+        solver.close();
+        ExecutionException failure = assertThrows(ExecutionException.class, future::get);
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+    }
+}
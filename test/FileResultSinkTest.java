@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that FileResultSink writes one record per equation in both formats, with the index of the equation, when
+ * batches are handed over from several threads and the buffers fill up many times.
+ */
+class FileResultSinkTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesEveryEquationFromSeveralThreadsAsText() throws Exception {
+        Path file = directory.resolve("roots.txt");
+        int threads = 4;
+        int batchesPerThread = 200;
+        int batchSize = 50;
+        // Small buffers, so that each fills up many times
+        try (FileResultSink sink = new FileResultSink(file, FileResultSink.Format.TEXT, 4096, 3)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    EquationBatch batch = new EquationBatch(batchSize);
+                    for (int k = 0; k < batchesPerThread; k++) {
+                        long first = (long) (k * threads + thread) * batchSize;
+                        fill(batch, first, batchSize);
+                        sink.accept(batch);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        int total = threads * batchesPerThread * batchSize;
+        assertEquals(total, lines.size());
+        boolean[] seen = new boolean[total];
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            int index = Integer.parseInt(fields[0]);
+            seen[index] = true;
+            assertEquals(index + 0.5, Double.parseDouble(fields[1]));
+            assertEquals(-index, Double.parseDouble(fields[2]));
+            assertEquals(0.0, Double.parseDouble(fields[3]));
+            assertEquals(1.0 / (index + 1), Double.parseDouble(fields[4]), 1e-14 / (index + 1));
+        }
+        for (int i = 0; i < total; i++) {
+            assertEquals(true, seen[i], "equation " + i);
+        }
+    }
+
+    @Test
+    void writesBinaryRecords() throws Exception {
+        Path file = directory.resolve("roots.bin");
+        try (FileResultSink sink = new FileResultSink(file, FileResultSink.Format.BINARY, 1024, 2)) {
+            EquationBatch batch = new EquationBatch(100);
+            fill(batch, 1000, 100);
+            sink.accept(batch);
+            // The sink copies the roots, so the batch can be refilled at once
+            fill(batch, 2000, 10);
+            sink.accept(batch);
+        }
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(110 * 40, records.remaining());
+        for (int i = 0; i < 110; i++) {
+            long index = records.getLong();
+            assertEquals(i < 100 ? 1000 + i : 2000 + i - 100, index);
+            assertEquals(index + 0.5, records.getDouble());
+            assertEquals(-index, records.getDouble());
+            assertEquals(0.0, records.getDouble());
+            assertEquals(1.0 / (index + 1), records.getDouble());
+        }
+    }
+
+    @Test
+    void formatsNumbersThatReadBackToFifteenDigits() throws Exception {
+        double[] values = {0.0, -0.0, 1.0, -2.5, 0.001, 0.00099999, 1234567.0, 9999999.5, 1e7, 1e-300, 4.9e-324,
+                1e308, Math.PI, -Math.E, 1.0 / 3, Double.NaN, Double.POSITIVE_INFINITY};
+        Path file = directory.resolve("numbers.txt");
+        try (FileResultSink sink = new FileResultSink(file, FileResultSink.Format.TEXT, 4096, 2)) {
+            EquationBatch batch = new EquationBatch(values.length);
+            batch.reset(0);
+            for (int i = 0; i < values.length; i++) {
+                batch.add(1, 0, 0);
+                batch.setRoots(i, values[i], 0, 0, 0);
+            }
+            sink.accept(batch);
+        }
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < values.length; i++) {
+            double parsed = Double.parseDouble(lines.get(i).split(" ")[1]);
+            if (Double.isNaN(values[i]) || Double.isInfinite(values[i]) || values[i] == 0) {
+                assertEquals(values[i], parsed);
+            } else {
+                assertEquals(values[i], parsed, Math.abs(values[i]) * 1e-14, lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    void rejectsBatchesAfterClose() throws Exception {
+        FileResultSink sink = new FileResultSink(directory.resolve("closed.txt"), FileResultSink.Format.TEXT, 4096, 2);
+        sink.close();
+        sink.close();
+        assertThrows(UncheckedIOException.class, () -> sink.accept(new EquationBatch(1)));
+    }
+
+    private static void fill(EquationBatch batch, long first, int size) {
+        batch.reset(first);
+        for (int i = 0; i < size; i++) {
+            long index = first + i;
+            batch.add(1, 0, 0);
+            batch.setRoots(i, index + 0.5, -index, 0, 1.0 / (index + 1));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that ForkJoinSolver reports the number of equations it actually solved and prints the same roots whether it
+ * keeps the job on the heap or off it.
+ */
+class ForkJoinSolverTest {
+    private PrintStream console;
+    private ByteArrayOutputStream output;
+
+    @BeforeEach
+    void capture() {
+        console = System.out;
+        output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+    }
+
+    @AfterEach
+    void restore() {
+        System.setOut(console);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void countsTheEquationsItSolved(boolean offHeap) {
+        ForkJoinSolver solver = new ForkJoinSolver(3, 100_000, false, new CoefficientGenerator(5, 2), offHeap);
+        solver.start();
+        assertEquals(100_000, solver.getSolvedCount());
+        solver.start();
+        assertEquals(100_000, solver.getSolvedCount());
+        assertTrue(output.toString().contains("Total solved: 100000"));
+    }
+
+    @Test
+    void printsTheSameRootsOnOrOffTheHeap() {
+        new ForkJoinSolver(2, 30, true, new CoefficientGenerator(9, 1), false).start();
+        String heap = output.toString();
+        output.reset();
+        new ForkJoinSolver(2, 30, true, new CoefficientGenerator(9, 1), true).start();
+        assertEquals(heap, output.toString());
+        assertEquals(30, heap.lines().filter(line -> line.startsWith("Root: ")).count());
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the percentiles, merging and differences of LatencyHistogram.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void reportsPercentilesWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(100_000, histogram.getCount());
+        long median = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(median >= 50_000 && median <= 50_000 * 1.04, "median " + median);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 1.04, "p99 " + p99);
+        assertTrue(histogram.getMax() >= 100_000 && histogram.getMax() <= 104_000);
+    }
+
+    @Test
+    void keepsSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(7, 3);
+        assertEquals(3, histogram.getCount());
+        assertEquals(7, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(50));
+    }
+
+    @Test
+    void addsAndSubtractsHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        first.record(10);
+        LatencyHistogram snapshot = first.copy();
+        first.record(1_000_000);
+        LatencyHistogram interval = first.since(snapshot);
+        assertEquals(1, interval.getCount());
+        assertTrue(interval.getValueAtPercentile(50) >= 1_000_000);
+
+        LatencyHistogram total = new LatencyHistogram();
+        total.add(first);
+        total.add(snapshot);
+        assertEquals(3, total.getCount());
+    }
+
+    @Test
+    void countsConcurrentRecords() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+    }
+}
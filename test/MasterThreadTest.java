@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs whole MasterThread jobs, checking that they solve every equation and that a job that fails part way stops its
+ * slave threads instead of leaving them blocked on the buffer.
+ */
+class MasterThreadTest {
+    @TempDir
+    Path directory;
+
+    private PrintStream console;
+
+    @BeforeEach
+    void silence() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void restore() {
+        System.setOut(console);
+    }
+
+    @Test
+    void solvesEveryEquationInBatches() throws Exception {
+        Path output = directory.resolve("roots.txt");
+        SolverOptions options = SolverOptions.parse(new String[] {"--batch-size=64", "--threads=3",
+                "--output=" + output, "--output-format=text"});
+        new MasterThread(options.createBuffer(), 3, 1000, false, options).start();
+        assertEquals(1000, Files.readAllLines(output).size());
+    }
+
+    @Test
+    void stopsItsSlaveThreadsWhenTheInputFails() throws Exception {
+        Path input = Files.writeString(directory.resolve("broken.csv"), "1,2,3\n".repeat(5000) + "1,2\n");
+        SolverOptions options = SolverOptions.parse(new String[] {"--input=" + input, "--threads=3",
+                "--batch-size=16"});
+        MasterThread master = new MasterThread(options.createBuffer(), 3, 0, false, options);
+        assertThrows(UncheckedIOException.class, master::start);
+        assertFalse(slaveThreadsRunning(5), "slave threads still running");
+    }
+
+    @Test
+    void stopsItsSlaveThreadsWhenTheOutputCannotBeOpened() throws Exception {
+        Path output = directory.resolve("missing").resolve("roots.txt");
+        SolverOptions options = SolverOptions.parse(new String[] {"--batch-size=64", "--output=" + output});
+        MasterThread master = new MasterThread(options.createBuffer(), 2, 100, false, options);
+        assertThrows(UncheckedIOException.class, master::start);
+        assertFalse(slaveThreadsRunning(5), "slave threads still running");
+    }
+
+    /**
+     * Waits for every thread that runs a SlaveThread to exit.
+     *
+     * @return True if a SlaveThread is still running after the timeout.
+     */
+    private static boolean slaveThreadsRunning(int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            boolean running = Thread.getAllStackTraces().values().stream()
+                    .flatMap(stack -> List.of(stack).stream())
+                    .anyMatch(frame -> frame.getClassName().equals("SlaveThread"));
+            if (!running) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that OffHeapEquationStore solves ranges across its buffers and threads exactly like the heap kernel, checks
+ * indexes and sizes, and gives its direct memory back as soon as it is closed.
+ */
+class OffHeapEquationStoreTest {
+
+    @Test
+    void solvesRangesAcrossBuffersLikeTheHeapKernel() {
+        int n = 10_000;
+        double[][] heap = randomColumns(n);
+        try (OffHeapEquationStore store = new OffHeapEquationStore(n, 1024)) {
+            for (int i = 0; i < n; i++) {
+                store.setCoefficients(i, heap[0][i], heap[1][i], heap[2][i]);
+            }
+            store.solve(0, 3);
+            store.solve(3, 5000);
+            store.solve(5003, n - 5003);
+            QuadraticEquation.solve(heap[0], heap[1], heap[2], 0, n, heap[3], heap[4], heap[5], heap[6]);
+            assertSameAsHeap(store, heap);
+        }
+    }
+
+    @Test
+    void solvesDisjointRangesOnSeveralThreads() throws Exception {
+        int n = 50_000;
+        double[][] heap = randomColumns(n);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (OffHeapEquationStore store = new OffHeapEquationStore(n, 4096)) {
+            for (int i = 0; i < n; i++) {
+                store.setCoefficients(i, heap[0][i], heap[1][i], heap[2][i]);
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < n; from += 777) {
+                long start = from;
+                futures.add(executor.submit(() -> store.solve(start, Math.min(777, n - start))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            QuadraticEquation.solve(heap[0], heap[1], heap[2], 0, n, heap[3], heap[4], heap[5], heap[6]);
+            assertSameAsHeap(store, heap);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void checksIndexesAndRanges() {
+        try (OffHeapEquationStore store = new OffHeapEquationStore(10, 8)) {
+            assertEquals(10, store.capacity());
+            assertEquals(10 * 7 * Double.BYTES, store.getFootprintBytes());
+            assertThrows(IndexOutOfBoundsException.class, () -> store.setCoefficients(10, 1, 2, 3));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.getA(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.solve(5, 6));
+        }
+    }
+
+    @Test
+    void refusesUseAfterClose() {
+        OffHeapEquationStore store = new OffHeapEquationStore(4);
+        store.close();
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.getReal1(0));
+        assertThrows(IllegalStateException.class, () -> store.solve(0, 4));
+    }
+
+    @Test
+    void returnsTheDirectMemoryOnClose() {
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct")).findFirst().orElseThrow();
+        long before = direct.getMemoryUsed();
+        OffHeapEquationStore store = new OffHeapEquationStore(100_000, 1 << 16);
+        assertTrue(direct.getMemoryUsed() >= before + store.getFootprintBytes());
+        store.close();
+        // Without a garbage collection in between, only the cleaners give the memory back
+        assertTrue(direct.getMemoryUsed() < before + store.getFootprintBytes());
+    }
+
+    @Test
+    void rejectsBadSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapEquationStore(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapEquationStore(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapEquationStore(10, 1000));
+    }
+
+    private static double[][] randomColumns(int n) {
+        SplittableRandom random = new SplittableRandom(12);
+        double[][] columns = new double[7][n];
+        for (int i = 0; i < n; i++) {
+            columns[0][i] = random.nextDouble(-5, 5);
+            columns[1][i] = random.nextDouble(-5, 5);
+            columns[2][i] = random.nextDouble(-5, 5);
+        }
+        return columns;
+    }
+
+    private static void assertSameAsHeap(OffHeapEquationStore store, double[][] heap) {
+        for (int i = 0; i < heap[0].length; i++) {
+            assertEquals(heap[0][i], store.getA(i));
+            assertEquals(heap[1][i], store.getB(i));
+            assertEquals(heap[2][i], store.getC(i));
+            assertEquals(heap[3][i], store.getReal1(i));
+            assertEquals(heap[4][i], store.getImag1(i));
+            assertEquals(heap[5][i], store.getReal2(i));
+            assertEquals(heap[6][i], store.getImag2(i));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests filling and solving a PolynomialBatch, and that it travels through the same buffers, slave threads and
+ * EquationSolver as a batch of quadratic equations.
+ */
+class PolynomialBatchTest {
+
+    @Test
+    void solvesEveryPolynomialItHolds() {
+        PolynomialBatch batch = new PolynomialBatch(3, 4);
+        batch.reset(50);
+        batch.add(new double[] {1, -6, 11, -6}, 0);    // (x - 1)(x - 2)(x - 3)
+        batch.solve();
+        assertEquals(1, batch.size());
+        assertEquals(50, batch.getFirstIndex());
+        assertEquals(3, batch.getDegree());
+        assertEquals(-6, batch.getCoefficient(0, 2));
+        double sum = 0;
+        for (int root = 0; root < 3; root++) {
+            sum += batch.getRootReal(0, root);
+            assertEquals(0, batch.getRootImag(0, root), 1e-12);
+        }
+        assertEquals(6, sum, 1e-12);
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.getRootReal(0, 3));
+    }
+
+    @Test
+    void rejectsMorePolynomialsThanItsCapacity() {
+        PolynomialBatch batch = new PolynomialBatch(1, 1);
+        batch.add(new double[] {2, 4}, 0);
+        assertThrows(IllegalStateException.class, () -> batch.add(new double[] {2, 4}, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialBatch(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PolynomialBatch(2, 0));
+    }
+
+    @Test
+    void hasTheRootsOfAnEquationBatchAtDegreeTwo() {
+        CoefficientGenerator generator = new CoefficientGenerator(3, 1);
+        EquationBatch equations = new EquationBatch(100);
+        PolynomialBatch polynomials = new PolynomialBatch(2, 100);
+        generator.fill(new SplittableRandom(8), equations, 0, 100);
+        generator.fill(new SplittableRandom(8), polynomials, 0, 100);
+        equations.solve();
+        polynomials.solve();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(equations.getA(i), polynomials.getCoefficient(i, 2));
+            // The two solvers may list the roots in either order
+            int swap = Math.abs(equations.getRootReal(i, 0) - polynomials.getRootReal(i, 0)) < 1e-9
+                    && Math.abs(equations.getRootImag(i, 0) - polynomials.getRootImag(i, 0)) < 1e-9 ? 0 : 1;
+            for (int root = 0; root < 2; root++) {
+                assertEquals(equations.getRootReal(i, root), polynomials.getRootReal(i, root ^ swap), 1e-9);
+                assertEquals(equations.getRootImag(i, root), polynomials.getRootImag(i, root ^ swap), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void isSolvedBySlaveThreadsThroughAnEquationSolver() throws Exception {
+        Buffer buffer = new Buffer(8);
+        CoefficientGenerator generator = new CoefficientGenerator(4, 1);
+        try (SlavePool slaves = new SlavePool(buffer, 2);
+             EquationSolver solver = new EquationSolver(buffer, 4)) {
+            PolynomialBatch batch = new PolynomialBatch(5, 32);
+            generator.fill(new SplittableRandom(1), batch, 0, 32);
+            CompletableFuture<PolynomialBatch> future = solver.submitBatch(batch);
+            assertSame(batch, future.get(10, TimeUnit.SECONDS));
+            solver.drain();
+            assertEquals(32, slaves.getSolvedCount());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the roots of QuadraticEquation.getRoots and of the batch kernel, and the precision tiers they are solved in.
+ */
+class QuadraticEquationTest {
+
+    @Test
+    void solvesTwoRealRoots() {
+        double[][] roots = solveOne(1, -3, 2, QuadraticEquation.Tier.FAST);
+        assertEquals(2, roots[0][0]);
+        assertEquals(0, roots[0][1]);
+        assertEquals(1, roots[1][0]);
+        assertEquals(0, roots[1][1]);
+    }
+
+    @Test
+    void solvesComplexRootsAsConjugates() {
+        double[][] roots = solveOne(1, 2, 5, QuadraticEquation.Tier.FAST);
+        assertEquals(-1, roots[0][0]);
+        assertEquals(2, roots[0][1]);
+        assertEquals(-1, roots[1][0]);
+        assertEquals(-2, roots[1][1]);
+    }
+
+    @Test
+    void solvesRepeatedRoot() {
+        double[][] roots = solveOne(4, -12, 9, QuadraticEquation.Tier.FAST);
+        assertEquals(1.5, roots[0][0]);
+        assertEquals(1.5, roots[1][0]);
+        assertEquals(0, roots[1][1]);
+    }
+
+    @Test
+    void solvesLinearEquationWhenAIsZero() {
+        long linear = QuadraticEquation.getTierCount(QuadraticEquation.Tier.LINEAR);
+        double[][] roots = solveOne(0, 2, -3, QuadraticEquation.Tier.FAST);
+        assertEquals(1.5, roots[0][0]);
+        assertTrue(Double.isNaN(roots[1][0]));
+        assertTrue(QuadraticEquation.getTierCount(QuadraticEquation.Tier.LINEAR) > linear);
+    }
+
+    @Test
+    void avoidsCancellationWhenBIsLarge() {
+        // The textbook formula loses every digit of the small root, x = c / b
+        double[][] roots = solveOne(1, 1e9, 1, QuadraticEquation.Tier.FAST);
+        assertEquals(-1e-9, roots[0][0], 1e-24);
+        assertEquals(-1e9, roots[1][0], 1e-6);
+    }
+
+    @Test
+    void getRootsReturnsTheFirstRootOfTheKernel() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            double a = random.nextDouble() * 10 - 5;
+            double b = random.nextDouble() * 10 - 5;
+            double c = random.nextDouble() * 10 - 5;
+            Complex root = new QuadraticEquation(a, b, c).getRoots();
+            double[][] roots = solveOne(a, b, c, QuadraticEquation.Tier.FAST);
+            assertEquals(roots[0][0], root.getReal());
+            assertEquals(roots[0][1], root.getImag());
+        }
+    }
+
+    @Test
+    void escalatesCloseRootsAndKeepsThemAccurate() {
+        long doubleDouble = QuadraticEquation.getTierCount(QuadraticEquation.Tier.DOUBLE_DOUBLE);
+        long fma = QuadraticEquation.getTierCount(QuadraticEquation.Tier.FMA);
+        // Roots 1 and 1 + 2^-26: the plain double discriminant is pure rounding error
+        double a = 1;
+        double b = -(2 + 0x1p-26);
+        double c = 1 + 0x1p-26;
+        double[][] roots = solveOne(a, b, c, QuadraticEquation.Tier.FAST);
+        assertEquals(1 + 0x1p-26, roots[0][0], 0x1p-52);
+        assertEquals(1, roots[1][0], 0x1p-52);
+        assertTrue(QuadraticEquation.getTierCount(QuadraticEquation.Tier.DOUBLE_DOUBLE)
+                + QuadraticEquation.getTierCount(QuadraticEquation.Tier.FMA) > doubleDouble + fma);
+    }
+
+    @Test
+    void everyFloorAgreesWithExactRoots() {
+        Random random = new Random(2);
+        int n = 2000;
+        double[] a = new double[n];
+        double[] b = new double[n];
+        double[] c = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = random.nextDouble() * 4 + 1;
+            double r = random.nextDouble() * 10 - 5;
+            b[i] = -2 * a[i] * r;
+            c[i] = a[i] * (r * r - (i % 2 == 0 ? 1e-12 : 1) * (random.nextDouble() + 0.5));
+        }
+        for (QuadraticEquation.Tier floor : new QuadraticEquation.Tier[] {QuadraticEquation.Tier.FAST,
+                QuadraticEquation.Tier.FMA, QuadraticEquation.Tier.DOUBLE_DOUBLE}) {
+            double[] real1 = new double[n];
+            double[] imag1 = new double[n];
+            double[] real2 = new double[n];
+            double[] imag2 = new double[n];
+            QuadraticEquation.solve(a, b, c, 0, n, real1, imag1, real2, imag2, floor);
+            for (int i = 0; i < n; i++) {
+                double[] exact = exactRealRoots(a[i], b[i], c[i]);
+                // Close roots are ill-conditioned in the coefficients, so only ask for what the rounded input allows
+                double tolerance = 1e-13 * Math.abs(exact[0]) + 1e-15;
+                assertEquals(exact[0], real1[i], tolerance, floor + " root 1 of equation " + i);
+                assertEquals(exact[1], real2[i], tolerance, floor + " root 2 of equation " + i);
+                assertEquals(0, imag1[i]);
+                assertEquals(0, imag2[i]);
+            }
+        }
+    }
+
+    @Test
+    void solvesOnlyTheGivenRange() {
+        double[] a = {1, 1, 1};
+        double[] b = {-3, -5, -7};
+        double[] c = {2, 6, 12};
+        double[] real1 = new double[3];
+        double[] imag1 = new double[3];
+        double[] real2 = new double[3];
+        double[] imag2 = new double[3];
+        QuadraticEquation.solve(a, b, c, 1, 1, real1, imag1, real2, imag2);
+        assertEquals(0, real1[0]);
+        assertEquals(3, real1[1]);
+        assertEquals(2, real2[1]);
+        assertEquals(0, real1[2]);
+    }
+
+    @Test
+    void summarisesTiers() {
+        solveOne(1, -3, 2, QuadraticEquation.Tier.FAST);
+        String summary = QuadraticEquation.getTierSummary();
+        assertTrue(summary.startsWith("Precision tiers: fast "), summary);
+        assertTrue(summary.contains("double-double"), summary);
+    }
+
+    @Test
+    void solvesEscalatedEquationsWithoutAllocating() {
+        // A linear equation and one whose roots nearly coincide both leave the fast tier
+        double[] a = {1, 0, 1, 1e-3};
+        double[] b = {-3, 2, -2, -2};
+        double[] c = {2, -4, 1 - 0x1p-40, 1000};
+        double[][] roots = new double[4][a.length];
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 10_000; i++) {
+            QuadraticEquation.solveScalar(a, b, c, 0, a.length, roots[0], roots[1], roots[2], roots[3],
+                    QuadraticEquation.Tier.FAST);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            QuadraticEquation.solveScalar(a, b, c, 0, a.length, roots[0], roots[1], roots[2], roots[3],
+                    QuadraticEquation.Tier.FAST);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+        assertEquals(2, roots[0][1]);
+    }
+
+    /**
+     * Solves one equation with the batch kernel.
+     * @return The first and second root, each as real and imaginary part.
+     */
+    static double[][] solveOne(double a, double b, double c, QuadraticEquation.Tier floor) {
+        double[] real1 = new double[1];
+        double[] imag1 = new double[1];
+        double[] real2 = new double[1];
+        double[] imag2 = new double[1];
+        QuadraticEquation.solve(new double[] {a}, new double[] {b}, new double[] {c}, 0, 1, real1, imag1, real2, imag2,
+                floor);
+        return new double[][] {{real1[0], imag1[0]}, {real2[0], imag2[0]}};
+    }
+
+    /**
+     * Calculates the real roots of an equation with a positive discriminant in 50-digit decimal arithmetic.
+     */
+    private static double[] exactRealRoots(double a, double b, double c) {
+        MathContext context = new MathContext(50);
+        BigDecimal bigA = new BigDecimal(a);
+        BigDecimal bigB = new BigDecimal(b);
+        BigDecimal d = bigB.multiply(bigB).subtract(new BigDecimal(4).multiply(bigA).multiply(new BigDecimal(c)));
+        BigDecimal sqrt = d.sqrt(context);
+        BigDecimal twoA = bigA.multiply(new BigDecimal(2));
+        return new double[] {bigB.negate().add(sqrt).divide(twoA, context).doubleValue(),
+                bigB.negate().subtract(sqrt).divide(twoA, context).doubleValue()};
+    }
+}
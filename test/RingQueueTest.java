@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Tests RingQueue on one thread, where it must behave like a bounded FIFO queue, and with many producers and consumers
+ * racing on the cursors, where every element must still come out exactly once.
+ */
+class RingQueueTest {
+    private static final int ITEMS_PER_PRODUCER = 200_000;
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        assertEquals(1, new RingQueue<Integer>(1, WaitStrategy.PARK).capacity());
+        assertEquals(8, new RingQueue<Integer>(5, WaitStrategy.PARK).capacity());
+        assertEquals(8, new RingQueue<Integer>(8, WaitStrategy.PARK).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingQueue<Integer>(0, WaitStrategy.PARK));
+        assertThrows(IllegalArgumentException.class, () -> new RingQueue<Integer>((1 << 30) + 1, WaitStrategy.PARK));
+    }
+
+    @Test
+    void isFirstInFirstOutAcrossManyLaps() {
+        RingQueue<Integer> queue = new RingQueue<>(4, WaitStrategy.PARK);
+        int next = 0;
+        for (int lap = 0; lap < 100; lap++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(lap * 3 + i));
+            }
+            assertEquals(3, queue.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next++, queue.poll());
+            }
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void rejectsOffersWhenFullAndReturnsNullWhenEmpty() {
+        RingQueue<Integer> queue = new RingQueue<>(2, WaitStrategy.PARK);
+        assertNull(queue.poll());
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.poll());
+        assertTrue(queue.offer(3));
+        assertEquals(2, queue.poll());
+        assertEquals(3, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void takeStopsWhenTheThreadIsInterrupted() throws Exception {
+        RingQueue<Integer> queue = new RingQueue<>(2, WaitStrategy.PARK);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                queue.take();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        consumer.interrupt();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    // BUSY_SPIN is left out: with more threads than cores a spinning thread can hold the core the others need
+    @ParameterizedTest
+    @EnumSource(value = WaitStrategy.class, names = {"YIELD", "PARK"})
+    void deliversEveryElementExactlyOnceWithManyProducersAndConsumers(WaitStrategy waitStrategy) throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        RingQueue<Integer> queue = new RingQueue<>(16, waitStrategy);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * ITEMS_PER_PRODUCER);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int first = p * ITEMS_PER_PRODUCER;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < first + ITEMS_PER_PRODUCER; i++) {
+                        queue.put(i);
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(executor.submit(() -> {
+                    // Each producer's elements must come out in the order it put them, as seen by any one consumer
+                    int[] last = new int[producers];
+                    Arrays.fill(last, -1);
+                    for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                        int item = queue.take();
+                        int producer = item / ITEMS_PER_PRODUCER;
+                        assertTrue(item > last[producer], "out of order: " + item + " after " + last[producer]);
+                        last[producer] = item;
+                        seen.incrementAndGet(item);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i), "element " + i);
+        }
+        assertNull(queue.poll());
+    }
+}
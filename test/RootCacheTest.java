@@ -0,0 +1,166 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that RootCache returns the roots an uncached solve gives, also for scaled equations and from several threads,
+ * evicts the least used entry of a full set, shares entries between nearly equal keys only when quantizing, and
+ * rejects capacities it cannot index.
+ */
+class RootCacheTest {
+
+    @Test
+    void returnsTheRootsOfTheEquationThroughTheCache() {
+        RootCache cache = new RootCache(64, 0);
+        for (int r = 0; r < 10; r++) {
+            // (x - r)(x + 1) = x^2 + (1 - r)x - r, solved twice so the second time hits
+            for (int pass = 0; pass < 2; pass++) {
+                QuadraticEquation equation = new QuadraticEquation(1, 1 - r, -r);
+                Complex expected = equation.getRoots();
+                Complex cached = cache.getRoots(equation);
+                assertEquals(expected.getReal(), cached.getReal());
+                assertEquals(expected.getImag(), cached.getImag());
+            }
+        }
+        assertEquals(10, cache.getHits());
+        assertEquals(10, cache.getMisses());
+    }
+
+    @Test
+    void sharesEntriesBetweenEquationsScaledByANegativeFactor() {
+        RootCache cache = new RootCache(64, 0);
+        double[] a = {1, -2};
+        double[] b = {2, -4};
+        double[] c = {5, -10};
+        double[][] cached = new double[4][2];
+        double[][] solved = new double[4][2];
+        cache.solve(a, b, c, 0, 2, cached[0], cached[1], cached[2], cached[3]);
+        QuadraticEquation.solve(a, b, c, 0, 2, solved[0], solved[1], solved[2], solved[3]);
+        assertEquals(1, cache.getHits());
+        for (int root = 0; root < 4; root++) {
+            assertEquals(solved[root][1], cached[root][1], 1e-15);
+        }
+    }
+
+    @Test
+    void evictsTheLeastUsedEntryAndAgesTheOthers() {
+        // A capacity of WAYS is a single set, so every key competes for the same slots
+        RootCache cache = new RootCache(RootCache.WAYS, 0);
+        for (int key = 0; key < RootCache.WAYS; key++) {
+            solve(cache, key);
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int key = 0; key < RootCache.WAYS - 1; key++) {
+                assertHit(cache, key);
+            }
+        }
+        assertEquals(0, cache.getEvictions());
+
+        // The last key was only used once, so it makes way, and every use count of the set is halved
+        solve(cache, RootCache.WAYS);
+        assertEquals(1, cache.getEvictions());
+        // Halving leaves every entry used once, so the next new key takes the first slot, although that key was
+        // popular before
+        solve(cache, RootCache.WAYS + 1);
+        assertEquals(2, cache.getEvictions());
+        for (int key = 1; key <= RootCache.WAYS; key++) {
+            if (key != RootCache.WAYS - 1) {
+                assertHit(cache, key);
+            }
+        }
+        assertMiss(cache, 0);
+        assertMiss(cache, RootCache.WAYS - 1);
+    }
+
+    @Test
+    void sharesEntriesBetweenNearlyEqualKeysOnlyWhenQuantizing() {
+        RootCache exact = new RootCache(64, 0);
+        RootCache quantized = new RootCache(64, 8);
+        for (RootCache cache : new RootCache[] {exact, quantized}) {
+            solve(cache, 2.0);
+        }
+        assertMiss(exact, Math.nextUp(2.0));
+        assertHit(quantized, Math.nextUp(2.0));
+        // Rounding the largest mantissa below 2 carries into the exponent and lands on the key of 2
+        assertMiss(exact, Math.nextDown(2.0));
+        assertHit(quantized, Math.nextDown(2.0));
+        assertMiss(quantized, 2.1);
+    }
+
+    @Test
+    void matchesUncachedRootsWhenThreadsShareKeys() throws Exception {
+        int n = 20_000;
+        RootCache cache = new RootCache(256, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                futures.add(executor.submit(() -> {
+                    double[][] columns = new double[11][n];
+                    for (int i = 0; i < n; i++) {
+                        // 500 keys over 256 slots, with a negative a half of the time
+                        double sign = random.nextBoolean() ? 1 : -1;
+                        columns[0][i] = sign;
+                        columns[1][i] = sign * random.nextInt(25);
+                        columns[2][i] = sign * (random.nextInt(20) - 10);
+                    }
+                    cache.solve(columns[0], columns[1], columns[2], 0, n, columns[3], columns[4], columns[5],
+                            columns[6]);
+                    QuadraticEquation.solve(columns[0], columns[1], columns[2], 0, n, columns[7], columns[8],
+                            columns[9], columns[10]);
+                    for (int i = 0; i < n; i++) {
+                        for (int root = 0; root < 4; root++) {
+                            double expected = columns[7 + root][i];
+                            assertEquals(expected, columns[3 + root][i], 1e-9 * Math.max(1, Math.abs(expected)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4L * n, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getEvictions() > 0, "the keys do not fit, so entries must be evicted");
+    }
+
+    /**
+     * Solves x^2 + px + 1 = 0 through the cache.
+     */
+    private static void solve(RootCache cache, double p) {
+        cache.getRoots(new QuadraticEquation(1, p, 1));
+    }
+
+    private static void assertHit(RootCache cache, double p) {
+        long hits = cache.getHits();
+        solve(cache, p);
+        assertEquals(hits + 1, cache.getHits(), "expected a hit for " + p);
+    }
+
+    private static void assertMiss(RootCache cache, double p) {
+        long misses = cache.getMisses();
+        solve(cache, p);
+        assertEquals(misses + 1, cache.getMisses(), "expected a miss for " + p);
+    }
+
+    @Test
+    void rejectsCapacitiesItCannotIndex() {
+        assertThrows(IllegalArgumentException.class, () -> new RootCache(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RootCache(RootCache.MAX_CAPACITY + 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RootCache(Integer.MAX_VALUE, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> SolverOptions.parse(new String[] {"--cache=" + Integer.MAX_VALUE}));
+    }
+}
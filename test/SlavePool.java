@@ -0,0 +1,49 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SlavePool runs batch mode SlaveThreads on a buffer for a test, and stops them with poison pills when it is closed.
+ */
+class SlavePool implements AutoCloseable {
+    private final SolverBuffer buffer;
+    private final int threads;
+    private final ExecutorService executor;
+    private final CountDownLatch stopped;
+    private final AtomicInteger solvedCount = new AtomicInteger();
+
+    SlavePool(SolverBuffer buffer, int threads) {
+        this.buffer = buffer;
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.stopped = new CountDownLatch(threads);
+        MasterThread.ThreadStats[] stats = new MasterThread.ThreadStats[threads];
+        for (int i = 0; i < threads; i++) {
+            stats[i] = new MasterThread.ThreadStats();
+            executor.execute(new SlaveThread(buffer, solvedCount, stopped, i, stats, true));
+        }
+    }
+
+    int getSolvedCount() {
+        return solvedCount.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (int i = 0; i < threads; i++) {
+                buffer.blockingPutBatch(SlaveThread.POISON_BATCH);
+            }
+            if (!stopped.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Slave threads did not stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the slave threads", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that both SolverBuffer implementations move every equation and batch through their rings exactly once while
+ * producers and consumers contend on them, and that the rings do not mix with each other.
+ */
+class SolverBufferTest {
+    private static final int EQUATIONS_PER_PRODUCER = 50_000;
+
+    static Stream<Arguments> buffers() {
+        return Stream.of(
+                Arguments.of("monitor", 4, 4),
+                Arguments.of("monitor", 1, 4),
+                Arguments.of("monitor", 4, 1),
+                Arguments.of("lock-free", 4, 4),
+                Arguments.of("lock-free", 1, 4),
+                Arguments.of("lock-free", 4, 1));
+    }
+
+    private static SolverBuffer create(String kind) {
+        return kind.equals("monitor") ? new Buffer(8) : new LockFreeBuffer(8, WaitStrategy.PARK);
+    }
+
+    @ParameterizedTest(name = "{0}, {1} producers, {2} consumers")
+    @MethodSource("buffers")
+    void movesEveryEquationExactlyOnce(String kind, int producers, int consumers) throws Exception {
+        SolverBuffer buffer = create(kind);
+        int total = producers * EQUATIONS_PER_PRODUCER;
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int first = p * EQUATIONS_PER_PRODUCER;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < first + EQUATIONS_PER_PRODUCER; i++) {
+                        buffer.blockingPutEquation(new QuadraticEquation(1, i, 0));
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                int share = total / consumers + (c < total % consumers ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        QuadraticEquation equation = buffer.blockingGetEquation();
+                        seen.incrementAndGet((int) equation.getB());
+                        // Pass the roots back on the other ring, as a SlaveThread does
+                        buffer.blockingPutRoots(new Complex(equation.getB(), 0));
+                    }
+                    return null;
+                }));
+            }
+            // The roots ring is drained here, so the consumers never block on it for long
+            double sum = 0;
+            for (int i = 0; i < total; i++) {
+                sum += buffer.blockingGetRoots().getReal();
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals((double) total * (total - 1) / 2, sum);
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "equation " + i);
+        }
+        assertEquals(0, buffer.getPendingEquations());
+        assertEquals(0, buffer.getPendingResults());
+    }
+
+    @ParameterizedTest(name = "{0}, {1} producers, {2} consumers")
+    @MethodSource("buffers")
+    void movesEveryBatchExactlyOnce(String kind, int producers, int consumers) throws Exception {
+        SolverBuffer buffer = create(kind);
+        int batchesPerProducer = 5_000;
+        int total = producers * batchesPerProducer;
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int first = p * batchesPerProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < first + batchesPerProducer; i++) {
+                        EquationBatch batch = new EquationBatch(1);
+                        batch.reset(i);
+                        buffer.blockingPutBatch(batch);
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                int share = total / consumers + (c < total % consumers ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        buffer.blockingPutSolvedBatch(buffer.blockingGetBatch());
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < total; i++) {
+                seen.incrementAndGet((int) buffer.blockingGetSolvedBatch().getFirstIndex());
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "batch " + i);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"monitor", "lock-free"})
+    void keepsTheRingsApart(String kind) throws Exception {
+        SolverBuffer buffer = create(kind);
+        EquationBatch batch = new EquationBatch(1);
+        QuadraticEquation equation = new QuadraticEquation(1, 2, 3);
+        buffer.blockingPutBatch(batch);
+        buffer.blockingPutEquation(equation);
+        assertEquals(2, buffer.getPendingEquations());
+        assertEquals(0, buffer.getPendingResults());
+        assertSame(equation, buffer.blockingGetEquation());
+        assertSame(batch, buffer.blockingGetBatch());
+        assertTrue(buffer.getCapacity() >= 8);
+    }
+}
@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that every SolverMonitor is published under a name of its own and that reading it does not change what the
+ * next reader sees.
+ */
+class SolverMonitorTest {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    void registersEveryMonitorUnderItsOwnName() throws Exception {
+        // Closed by the test itself, so neither is held as a resource
+        SolverMonitor a = SolverMonitor.register("Test", new Buffer(4), new MasterThread.ThreadStats[0], () -> 1);
+        SolverMonitor b = SolverMonitor.register("Test", new Buffer(8), new MasterThread.ThreadStats[0], () -> 2);
+        ObjectName first = a.getObjectName();
+        ObjectName second = b.getObjectName();
+        try {
+            assertNotEquals(first, second);
+            assertEquals(1L, server.getAttribute(first, "SolvedCount"));
+            assertEquals(2L, server.getAttribute(second, "SolvedCount"));
+            assertTrue(server.queryNames(new ObjectName(SolverMonitor.OBJECT_NAME + ",*"), null)
+                    .containsAll(List.of(first, second)));
+
+            a.close();
+            assertNull(a.getObjectName());
+            assertFalse(server.isRegistered(first));
+            assertTrue(server.isRegistered(second));
+            a.close();
+        } finally {
+            a.close();
+            b.close();
+        }
+        assertFalse(server.isRegistered(second));
+    }
+
+    @Test
+    void readsTheSameRingTotalsForEveryClient() throws Exception {
+        Buffer buffer = new Buffer(4);
+        buffer.blockingPutEquation(new QuadraticEquation(1, 0, -1));
+        buffer.blockingPutEquation(new QuadraticEquation(1, 0, -4));
+        buffer.blockingGetEquation();
+        try (SolverMonitor monitor = SolverMonitor.register("Test", buffer, new MasterThread.ThreadStats[0], () -> 0)) {
+            CompositeData[] first = (CompositeData[]) server.getAttribute(monitor.getObjectName(), "Rings");
+            CompositeData[] second = (CompositeData[]) server.getAttribute(monitor.getObjectName(), "Rings");
+            assertEquals("equations", first[0].get("name"));
+            for (CompositeData rings : new CompositeData[] {first[0], second[0]}) {
+                assertEquals(1, rings.get("depth"));
+                assertEquals(2L, rings.get("puts"));
+                assertEquals(1L, rings.get("gets"));
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that SolverProcessor publishes one result per equation, in order if asked to, and only requests as many
+ * equations from upstream as it has room for.
+ */
+class SolverProcessorTest {
+
+    @Test
+    void publishesEveryResultInInputOrder() throws Exception {
+        try (SolverService service = new SolverService(new Buffer(16), 2, 8, 4, false, null)) {
+            SolverProcessor processor = new SolverProcessor(service, 8, 3, true);
+            CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+            processor.subscribe(subscriber);
+            CountingPublisher publisher = new CountingPublisher(1000);
+            publisher.subscribe(processor);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+
+            assertEquals(1000, subscriber.results.size());
+            for (int i = 0; i < 1000; i++) {
+                SolvedEquation result = subscriber.results.get(i);
+                assertEquals(i, result.getSequence());
+                assertEquals(i, result.getReal1(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void publishesEveryResultOnceWhenUnordered() throws Exception {
+        try (SolverService service = new SolverService(new Buffer(16), 2, 8, 4, false, null)) {
+            SolverProcessor processor = new SolverProcessor(service, 8, 3, false);
+            CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+            processor.subscribe(subscriber);
+            new CountingPublisher(1000).subscribe(processor);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+
+            List<Long> sequences = new ArrayList<>();
+            for (SolvedEquation result : subscriber.results) {
+                sequences.add(result.getSequence());
+            }
+            Collections.sort(sequences);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, sequences.get(i));
+            }
+        }
+    }
+
+    @Test
+    void requestsNoMoreThanItsBatchesHoldFromUpstream() throws Exception {
+        try (SolverService service = new SolverService(new Buffer(16), 2, 8, 4, false, null)) {
+            SolverProcessor processor = new SolverProcessor(service, 8, 3, true);
+            // The subscriber takes nothing, so at most three batches of equations fit into the processor
+            CollectingSubscriber subscriber = new CollectingSubscriber(0);
+            processor.subscribe(subscriber);
+            CountingPublisher publisher = new CountingPublisher(1000);
+            publisher.subscribe(processor);
+            Thread.sleep(200);
+            assertTrue(publisher.requested.get() <= 3 * 8, "requested " + publisher.requested.get());
+            assertEquals(0, subscriber.results.size());
+
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            assertEquals(1000, subscriber.results.size());
+        }
+    }
+
+    @Test
+    void signalsNothingUntilOnSubscribeHasReturned() throws Exception {
+        try (SolverService service = new SolverService(new Buffer(16), 2, 8, 4, false, null)) {
+            // Delivering on the calling thread, the request made inside onSubscribe could complete the subscriber
+            // right there, as the empty upstream has already completed
+            SolverProcessor processor = new SolverProcessor(service, 8, 3, true, Runnable::run);
+            new CountingPublisher(0).subscribe(processor);
+            CollectingSubscriber subscriber = new CollectingSubscriber(1);
+            processor.subscribe(subscriber);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            assertFalse(subscriber.signalledWhileSubscribing, "signalled before onSubscribe returned");
+        }
+    }
+
+    /**
+     * CountingPublisher publishes the equations x^2 - (i - 1)x - i, whose first root is i, as they are requested.
+     */
+    private static class CountingPublisher implements Flow.Publisher<QuadraticEquation> {
+        private final int count;
+        private final AtomicLong requested = new AtomicLong();
+
+        CountingPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super QuadraticEquation> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicLong demand = new AtomicLong();
+                private long next;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    if (demand.getAndAdd(n) > 0) {
+                        return;     // The thread already publishing picks the new demand up
+                    }
+                    long emitted = 0;
+                    do {
+                        while (emitted < demand.get() && next < count) {
+                            subscriber.onNext(new QuadraticEquation(1, -(next - 1), -next));
+                            next++;
+                            emitted++;
+                        }
+                        if (next == count) {
+                            subscriber.onComplete();
+                            return;
+                        }
+                    } while (demand.addAndGet(-emitted) > 0 && (emitted = 0) == 0);
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+
+    /**
+     * CollectingSubscriber keeps every result, requesting a fixed number up front.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<SolvedEquation> {
+        private final long initialRequest;
+        private final List<SolvedEquation> results = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean subscribing;   // Whether onSubscribe is running
+        private volatile boolean signalledWhileSubscribing;
+
+        CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscribing = true;
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+            subscribing = false;
+        }
+
+        @Override
+        public void onNext(SolvedEquation item) {
+            signalledWhileSubscribing |= subscribing;
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signalledWhileSubscribing |= subscribing;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            signalledWhileSubscribing |= subscribing;
+            done.countDown();
+        }
+    }
+}
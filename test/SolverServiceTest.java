@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that SolverService solves the jobs and batches it accepts, also when it is shut down while they are being
+ * submitted, and rejects them afterwards.
+ */
+class SolverServiceTest {
+
+    @Test
+    void solvesJobsAndRejectsThemAfterShutdown() throws Exception {
+        double[] a = new double[1000];
+        double[] b = new double[1000];
+        double[] c = new double[1000];
+        for (int r = 0; r < a.length; r++) {
+            // (x - r)(x + 1) = x^2 + (1 - r)x - r
+            a[r] = 1;
+            b[r] = 1 - r;
+            c[r] = -r;
+        }
+        SolverService service = new SolverService(new Buffer(8), 2, 64, 4, false, null);
+        SolverJob job = service.submit(a, b, c).await();
+        service.shutdown();
+
+        for (int r = 0; r < a.length; r++) {
+            assertEquals(Math.max(r, -1), job.getReal1(r), 1e-9);
+        }
+        assertEquals(1000, service.getSolvedCount());
+        assertThrows(RejectedExecutionException.class, () -> service.submit(a, b, c));
+        assertThrows(RejectedExecutionException.class, () -> service.submitBatch(new EquationBatch(1)));
+    }
+
+    @Test
+    void shutdownWaitsForBatchesThatWereAlreadyAccepted() throws Exception {
+        GatedBuffer buffer = new GatedBuffer();
+        SolverService service = new SolverService(buffer, 1, 4, 1, false, null);
+        AtomicReference<CompletableFuture<EquationBatch>> first = new AtomicReference<>();
+        AtomicReference<CompletableFuture<EquationBatch>> second = new AtomicReference<>();
+
+        // The first batch takes the only place in the window and is held at the buffer, so the second one has passed
+        // the shutdown check and waits for the window when the shutdown starts
+        Thread firstSubmitter = submitter(service, batch(1), first);
+        buffer.entered.await();
+        Thread secondSubmitter = submitter(service, batch(2), second);
+        awaitWaiting(secondSubmitter);
+        Thread shutdown = new Thread(() -> service.close());
+        shutdown.start();
+        awaitWaiting(shutdown);
+        assertThrows(RejectedExecutionException.class, () -> service.submitBatch(new EquationBatch(1)));
+
+        buffer.gate.countDown();
+        firstSubmitter.join();
+        secondSubmitter.join();
+        assertEquals(1, first.get().get(10, TimeUnit.SECONDS).getReal1(0), 1e-12);
+        assertEquals(2, second.get().get(10, TimeUnit.SECONDS).getReal1(0), 1e-12);
+        shutdown.join();
+    }
+
+    @Test
+    void concurrentShutdownsWaitForABatchHeldAtTheWindow() throws Exception {
+        GatedBuffer buffer = new GatedBuffer();
+        SolverService service = new SolverService(buffer, 1, 4, 1, false, null);
+        AtomicReference<CompletableFuture<EquationBatch>> first = new AtomicReference<>();
+        AtomicReference<CompletableFuture<EquationBatch>> second = new AtomicReference<>();
+
+        Thread firstSubmitter = submitter(service, batch(1), first);
+        buffer.entered.await();
+        Thread secondSubmitter = submitter(service, batch(2), second);
+        awaitWaiting(secondSubmitter);
+        // The first shutdown waits for the second batch, the other one for the slave threads to stop; neither may keep
+        // the second batch from leaving submitBatch
+        Thread firstShutdown = new Thread(() -> service.close());
+        firstShutdown.start();
+        awaitWaiting(firstShutdown);
+        Thread secondShutdown = new Thread(() -> service.close());
+        secondShutdown.start();
+        awaitWaiting(secondShutdown);
+
+        buffer.gate.countDown();
+        for (Thread thread : new Thread[] {firstSubmitter, secondSubmitter, firstShutdown, secondShutdown}) {
+            thread.join(10_000);
+            assertFalse(thread.isAlive(), thread + " is stuck");
+        }
+        assertEquals(2, second.get().get(10, TimeUnit.SECONDS).getReal1(0), 1e-12);
+        assertEquals(2, service.getSolvedCount());
+    }
+
+    /**
+     * Creates a batch of one equation with the roots root and -1.
+     */
+    private static EquationBatch batch(int root) {
+        EquationBatch batch = new EquationBatch(1);
+        batch.reset(0);
+        batch.add(1, 1 - root, -root);
+        return batch;
+    }
+
+    private static Thread submitter(SolverService service, EquationBatch batch,
+                                    AtomicReference<CompletableFuture<EquationBatch>> future) {
+        Thread thread = new Thread(() -> {
+            try {
+                future.set(service.submitBatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    /**
+     * GatedBuffer holds the first batch put into it until the gate opens.
+     */
+    private static final class GatedBuffer extends Buffer {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        private final AtomicBoolean held = new AtomicBoolean();
+
+        GatedBuffer() {
+            super(8);
+        }
+
+        @Override
+        public void blockingPutBatch(SolverBatch batch) throws InterruptedException {
+            if (batch != SlaveThread.POISON_BATCH && held.compareAndSet(false, true)) {
+                entered.countDown();
+                gate.await();
+            }
+            super.blockingPutBatch(batch);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that the SIMD kernel writes bit for bit the roots of the scalar loop, for real, repeated and complex roots,
+ * for equations that need a higher tier or are linear, and for ranges that do not fill a whole vector. The kernel is
+ * only there in the vector build, run with mvn -Pvector test; otherwise these tests are skipped.
+ */
+class VectorQuadraticKernelTest {
+
+    @AfterEach
+    void useScalarKernel() {
+        QuadraticEquation.useKernel(null);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 128, 256, 512})
+    void writesTheSameRootsAsTheScalarLoop(int bits) {
+        QuadraticEquation.BatchKernel kernel = load(bits);
+        int n = 10_000;
+        double[][] coefficients = mixedCoefficients(n, 42);
+        for (int offset : new int[] {0, 1, 3}) {
+            for (int length : new int[] {0, 1, 7, 8, 9, 63, n - offset}) {
+                double[][] scalar = new double[4][n];
+                double[][] vector = new double[4][n];
+                QuadraticEquation.solveScalar(coefficients[0], coefficients[1], coefficients[2], offset, length,
+                        scalar[0], scalar[1], scalar[2], scalar[3], QuadraticEquation.Tier.FAST);
+                kernel.solve(coefficients[0], coefficients[1], coefficients[2], offset, length,
+                        vector[0], vector[1], vector[2], vector[3]);
+                for (int i = 0; i < n; i++) {
+                    for (int part = 0; part < 4; part++) {
+                        assertEquals(Double.doubleToRawLongBits(scalar[part][i]),
+                                Double.doubleToRawLongBits(vector[part][i]),
+                                () -> kernel.getName() + " differs at " + offset + "/" + length);
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 128, 256, 512})
+    void writesTheFirstRootOfGetRoots(int bits) {
+        QuadraticEquation.BatchKernel kernel = load(bits);
+        int n = 1000;
+        double[][] coefficients = mixedCoefficients(n, 7);
+        double[][] roots = new double[4][n];
+        kernel.solve(coefficients[0], coefficients[1], coefficients[2], 0, n, roots[0], roots[1], roots[2], roots[3]);
+        for (int i = 0; i < n; i++) {
+            Complex root = new QuadraticEquation(coefficients[0][i], coefficients[1][i], coefficients[2][i]).getRoots();
+            assertEquals(root.getReal(), roots[0][i]);
+            assertEquals(root.getImag(), roots[1][i]);
+        }
+    }
+
+    @Test
+    void isUsedByTheBatchKernelOnceSelected() {
+        QuadraticEquation.BatchKernel kernel = load(0);
+        QuadraticEquation.useKernel(kernel);
+        assertEquals(kernel.getName(), QuadraticEquation.getKernelName());
+        QuadraticEquation.useKernel(null);
+        assertEquals("scalar", QuadraticEquation.getKernelName());
+    }
+
+    @Test
+    void isNotThereWithoutTheIncubatorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty());
+        assertNull(QuadraticEquation.loadVectorKernel(0));
+    }
+
+    private static QuadraticEquation.BatchKernel load(int bits) {
+        QuadraticEquation.BatchKernel kernel;
+        try {
+            kernel = QuadraticEquation.loadVectorKernel(bits);
+        } catch (IllegalArgumentException e) {
+            kernel = null;  // Wider than this CPU
+        }
+        assumeTrue(kernel != null, "No vector kernel of " + bits + " bits in this build");
+        return kernel;
+    }
+
+    /**
+     * Creates equations with real, complex and repeated roots, close roots that need a higher tier, linear ones and
+     * ones with huge or tiny coefficients, in runs so that some vectors are all fast and some are mixed.
+     */
+    private static double[][] mixedCoefficients(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] a = new double[n];
+        double[] b = new double[n];
+        double[] c = new double[n];
+        for (int i = 0; i < n; i++) {
+            int kind = (i / 16) % 4 == 0 ? random.nextInt(8) : random.nextInt(2);
+            a[i] = random.nextDouble(-5, 5);
+            b[i] = random.nextDouble(-5, 5);
+            c[i] = random.nextDouble(-5, 5);
+            switch (kind) {
+                case 0:     // Real roots
+                    c[i] = -Math.copySign(c[i], a[i]);
+                    break;
+                case 1:     // Complex roots
+                    c[i] = Math.copySign(c[i] + b[i] * b[i] / (4 * a[i]), a[i]) + a[i];
+                    break;
+                case 2:     // Repeated roots
+                    a[i] = 1;
+                    b[i] = -2 * Math.rint(b[i]);
+                    c[i] = b[i] * b[i] / 4;
+                    break;
+                case 3:     // Close roots
+                    a[i] = 1;
+                    c[i] = b[i] * b[i] / 4 - 1e-12;
+                    break;
+                case 4:     // Linear
+                    a[i] = 0;
+                    break;
+                case 5:     // Signed zeros
+                    b[i] = random.nextBoolean() ? 0.0 : -0.0;
+                    break;
+                case 6:     // Huge and tiny
+                    a[i] *= 1e300;
+                    c[i] *= 1e-300;
+                    break;
+                default:    // Not finite
+                    b[i] = random.nextBoolean() ? Double.NaN : Double.POSITIVE_INFINITY;
+                    break;
+            }
+        }
+        return new double[][] {a, b, c};
+    }
+}
@@ -0,0 +1,106 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorQuadraticKernel solves the fast tier of a batch of quadratic equations in SIMD lanes with jdk.incubator.vector.
+ * The discriminant, its error bound, the square root and the divides are the same for every lane, and the three cases
+ * of the scalar loop become masks: lanes with real roots blend in the cancellation-free roots, the other lanes the
+ * shared real part and the imaginary part. Every lane performs the same IEEE operations in the same order as the
+ * scalar loop, so the roots are bit for bit the ones {@link QuadraticEquation#solveScalar} writes.
+ * <p>
+ * A block of equations in which any lane fails the error bound of the fast tier, or is linear, is solved by the scalar
+ * loop instead, and so are the equations after the last whole vector. Blocks that need a higher tier are rare in
+ * practice, so they are not worth splitting lane by lane.
+ * <p>
+ * This class is compiled only by the vector build and is created through
+ * {@link QuadraticEquation#loadVectorKernel}, because the incubator module must be added to compile and run it.
+ */
+final class VectorQuadraticKernel implements QuadraticEquation.BatchKernel {
+    private static final long SIGN_BIT = 0x8000_0000_0000_0000L;
+
+    private final VectorSpecies<Double> species;
+
+    /**
+     * Constructs a kernel of one vector width.
+     * @param bits The width of the vectors: 128, 256 or 512, or 0 for the widest this CPU supports.
+     * @throws IllegalArgumentException If the width is not one of those, or wider than the CPU supports.
+     */
+    VectorQuadraticKernel(int bits) {
+        if (bits == 0) {
+            species = DoubleVector.SPECIES_PREFERRED;
+        } else if (bits != 128 && bits != 256 && bits != 512) {
+            throw new IllegalArgumentException("Vector width must be 128, 256 or 512 bits: " + bits);
+        } else if (bits > DoubleVector.SPECIES_PREFERRED.vectorBitSize()) {
+            throw new IllegalArgumentException("This CPU has vectors of at most "
+                    + DoubleVector.SPECIES_PREFERRED.vectorBitSize() + " bits: " + bits);
+        } else {
+            species = VectorSpecies.of(double.class, VectorShape.forBitSize(bits));
+        }
+    }
+
+    @Override
+    public void solve(double[] a, double[] b, double[] c, int offset, int length,
+                      double[] real1, double[] imag1, double[] real2, double[] imag2) {
+        int lanes = species.length();
+        int end = offset + length;
+        int fast = 0;
+        int i = offset;
+        for (; i <= end - lanes; i += lanes) {
+            DoubleVector va = DoubleVector.fromArray(species, a, i);
+            DoubleVector vb = DoubleVector.fromArray(species, b, i);
+            DoubleVector vc = DoubleVector.fromArray(species, c, i);
+
+            // The discriminant and its error bound, as in QuadraticEquation.fastDiscriminant
+            DoubleVector bb = vb.mul(vb);
+            DoubleVector ac4 = va.mul(4).mul(vc);
+            DoubleVector d = bb.sub(ac4);
+            DoubleVector scale = bb.add(ac4.abs());
+            VectorMask<Double> accurate = d.abs().mul(2 * QuadraticEquation.FAST_ULPS)
+                    .compare(VectorOperators.GE, scale)
+                    .and(scale.compare(VectorOperators.GE, QuadraticEquation.MIN_SCALE))
+                    .and(scale.compare(VectorOperators.LE, QuadraticEquation.MAX_SCALE))
+                    .and(va.compare(VectorOperators.NE, 0));
+            if (!accurate.allTrue()) {
+                QuadraticEquation.solveScalar(a, b, c, i, lanes, real1, imag1, real2, imag2,
+                        QuadraticEquation.Tier.FAST);
+                continue;
+            }
+
+            VectorMask<Double> real = d.compare(VectorOperators.GT, 0);
+            VectorMask<Double> notNegative = d.compare(VectorOperators.GE, 0);
+            DoubleVector root = d.abs().sqrt();
+
+            // Real roots: q = -(b + sign(b) sqrt(d)) / 2, and the roots q / a and c / q
+            DoubleVector signedRoot = root.reinterpretAsLongs()
+                    .or(vb.reinterpretAsLongs().and(SIGN_BIT))
+                    .reinterpretAsDoubles();
+            DoubleVector q = vb.add(signedRoot).mul(-0.5);
+            DoubleVector big = q.div(va);
+            DoubleVector small = vc.div(q);
+            VectorMask<Double> positive = signedRoot.compare(VectorOperators.GT, 0);
+
+            // Repeated and complex roots: -b / 2a plus and minus i sqrt(-d) / 2a
+            DoubleVector a2 = va.mul(2);
+            DoubleVector shared = vb.neg().div(a2);
+            DoubleVector imag = root.div(a2).blend(0, notNegative);
+
+            big.blend(small, positive).blend(shared, real.not()).intoArray(real1, i);
+            small.blend(big, positive).blend(shared, real.not()).intoArray(real2, i);
+            imag.intoArray(imag1, i);
+            imag.neg().blend(0, notNegative).intoArray(imag2, i);
+            fast += lanes;
+        }
+        QuadraticEquation.countFast(fast);
+        if (i < end) {
+            QuadraticEquation.solveScalar(a, b, c, i, end - i, real1, imag1, real2, imag2, QuadraticEquation.Tier.FAST);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector-" + species.vectorBitSize();
+    }
+}